@@ -0,0 +1,76 @@
+package by.koronatech.benchmarks;
+
+import by.koronatech.ParseState;
+import by.koronatech.Parser;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic input shared by all benchmarks of a trial, generated once into a temporary
+ * directory and removed afterwards.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+
+    public static final String TEMP_DIR_PREFIX = "sb-bench-";
+    public static final long SEED = 42;
+
+    @Param("200000")
+    public int rows;
+
+    @Param("2000")
+    public int departments;
+
+    @Param("0.05")
+    public double errorRate;
+
+    @Param("0.02")
+    public double orphanRate;
+
+    @Param("4")
+    public int files;
+
+    public Path directory;
+    public List<Path> inputFiles;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory(TEMP_DIR_PREFIX);
+        inputFiles = new SbDataGenerator(rows, departments, errorRate, orphanRate, files, SEED)
+                .generate(directory.resolve("input"));
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public ParseState parse(Parser parser) {
+        ParseState state = new ParseState();
+        for (Path file : inputFiles) {
+            parser.parseFile(file, state);
+        }
+        return state;
+    }
+
+    public ParseState parseAndResolve() throws IOException {
+        ParseState state = parse(new Parser());
+        state.resolvePendingEmployees();
+        return state;
+    }
+}
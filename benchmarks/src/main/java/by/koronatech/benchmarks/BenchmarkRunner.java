@@ -0,0 +1,36 @@
+package by.koronatech.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line and, unless {@code -rf}/{@code -rff}
+ * say otherwise, publishes the results as {@code jmh-result-<version>.json} so that runs of
+ * different releases can be compared.
+ */
+public class BenchmarkRunner {
+
+    public static final String RESULT_FILE_PREFIX = "jmh-result-";
+    public static final String RESULT_FILE_EXTENSION = ".json";
+    public static final String UNKNOWN_VERSION = "dev";
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+
+        OptionsBuilder builder = new OptionsBuilder();
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(RESULT_FILE_PREFIX + (version != null ? version : UNKNOWN_VERSION) + RESULT_FILE_EXTENSION);
+        }
+        Options options = builder.parent(commandLine).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,102 @@
+package by.koronatech.benchmarks;
+
+import by.koronatech.Department;
+import by.koronatech.DistributionOptions;
+import by.koronatech.Employee;
+import by.koronatech.Stats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-department stages over all departments of the parsed input: sorting, top-N selection
+ * and statistics, with and without the salary distribution.
+ * Sorting starts from the original input order on every invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DepartmentBenchmark {
+
+    @Param({"name", "salary"})
+    public String sortType;
+
+    @Param({"asc", "desc"})
+    public String order;
+
+    @Param({"10"})
+    public int top;
+
+    private Map<String, Department> departments;
+    private Map<Department, List<Employee>> inputOrder;
+
+    @Setup(Level.Trial)
+    public void parse(BenchmarkData data) throws IOException {
+        departments = data.parseAndResolve().getDepartments();
+        inputOrder = new IdentityHashMap<>();
+        for (Department department : departments.values()) {
+            inputOrder.put(department, new ArrayList<>(department.getEmployees()));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreInputOrder() {
+        for (Map.Entry<Department, List<Employee>> entry : inputOrder.entrySet()) {
+            entry.getKey().setEmployees(new ArrayList<>(entry.getValue()));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Department> sortEmployees() {
+        for (Department department : departments.values()) {
+            department.sortEmployees(sortType, order);
+        }
+        return departments;
+    }
+
+    @Benchmark
+    public Map<String, Department> selectTopEmployees() {
+        for (Department department : departments.values()) {
+            department.selectTopEmployees(order, top);
+        }
+        return departments;
+    }
+
+    @Benchmark
+    public void calculateStats(Blackhole blackhole) {
+        for (Map.Entry<String, Department> entry : departments.entrySet()) {
+            Stats stats = entry.getValue().calculateStats(entry.getKey());
+            blackhole.consume(stats);
+        }
+    }
+
+    @Benchmark
+    public void calculateDistribution(Blackhole blackhole) {
+        DistributionOptions options = new DistributionOptions(DistributionOptions.NO_EXACT_LIMIT,
+                DistributionOptions.DEFAULT_BANDS);
+        for (Map.Entry<String, Department> entry : departments.entrySet()) {
+            Stats stats = entry.getValue().calculateStats(entry.getKey(), options);
+            blackhole.consume(stats);
+        }
+    }
+}
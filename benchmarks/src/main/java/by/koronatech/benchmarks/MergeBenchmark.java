@@ -0,0 +1,44 @@
+package by.koronatech.benchmarks;
+
+import by.koronatech.ParseState;
+import by.koronatech.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of the pending per-manager employee buckets into their departments; every
+ * invocation gets a freshly parsed, unresolved state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class MergeBenchmark {
+
+    private ParseState state;
+
+    @Setup(Level.Invocation)
+    public void parse(BenchmarkData data) {
+        state = data.parse(new Parser());
+    }
+
+    @Benchmark
+    public ParseState resolvePendingEmployees() throws IOException {
+        state.resolvePendingEmployees();
+        return state;
+    }
+}
@@ -0,0 +1,46 @@
+package by.koronatech.benchmarks;
+
+import by.koronatech.ParseState;
+import by.koronatech.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"false", "true"})
+    public boolean memoryMapped;
+
+    @Param({"false", "true"})
+    public boolean fixedPoint;
+
+    private Parser parser;
+
+    @Setup
+    public void setUp() {
+        parser = new Parser();
+        parser.setMemoryMapped(memoryMapped);
+        parser.setFixedPoint(fixedPoint);
+    }
+
+    @Benchmark
+    public ParseState parseFiles(BenchmarkData data) {
+        return data.parse(parser);
+    }
+}
@@ -0,0 +1,100 @@
+package by.koronatech.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic {@code .sb} input: one manager per department, employees spread over
+ * the managers, a share of malformed lines and a share of employees whose manager does not
+ * exist. The same seed always produces the same files.
+ */
+public class SbDataGenerator {
+
+    public static final String FILE_PREFIX = "input-";
+    public static final String FILE_EXTENSION = ".sb";
+    public static final String DEPARTMENT_PREFIX = "Dept";
+    public static final int FIRST_EMPLOYEE_ID = 1_000_000;
+    public static final int MISSING_MANAGER_ID = -1;
+    public static final int MIN_SALARY_CENTS = 100_000;
+    public static final int SALARY_SPREAD_CENTS = 1_000_000;
+
+    private static final String[] FIRST_NAMES = {"John", "Alice", "Mark", "Claire", "Ivan", "Olga", "Bob", "Zoë"};
+    private static final String[] LAST_NAMES = {"Doe", "Smith", "White", "Green", "Petrov", "Brown", "Ivanova"};
+    private static final String[] MALFORMED_LINES = {
+            "Employee,%d,%s,notanumber,1",
+            "Employee,%d,%s,0,1",
+            "Employee,x%d,%s,100,1",
+            "Boss,%d,%s,100,1",
+            "Employee,%d,%s,100"
+    };
+
+    private final int rows;
+    private final int departments;
+    private final double errorRate;
+    private final double orphanRate;
+    private final int files;
+    private final long seed;
+
+    public SbDataGenerator(int rows, int departments, double errorRate, double orphanRate, int files, long seed) {
+        this.rows = rows;
+        this.departments = departments;
+        this.errorRate = errorRate;
+        this.orphanRate = orphanRate;
+        this.files = files;
+        this.seed = seed;
+    }
+
+    public List<Path> generate(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(seed);
+        List<Path> paths = new ArrayList<>();
+        List<BufferedWriter> writers = new ArrayList<>();
+        try {
+            for (int i = 0; i < files; i++) {
+                Path path = directory.resolve(FILE_PREFIX + i + FILE_EXTENSION);
+                paths.add(path);
+                writers.add(Files.newBufferedWriter(path));
+            }
+            for (int dept = 1; dept <= departments; dept++) {
+                write(writers.get(random.nextInt(files)), String.format("Manager,%d,%s,%s,%s%d",
+                        dept, name(random), salary(random), DEPARTMENT_PREFIX, dept));
+            }
+            for (int row = 0; row < rows; row++) {
+                write(writers.get(random.nextInt(files)), employeeLine(random, FIRST_EMPLOYEE_ID + row));
+            }
+        } finally {
+            for (BufferedWriter writer : writers) {
+                writer.close();
+            }
+        }
+        return paths;
+    }
+
+    private String employeeLine(Random random, int id) {
+        if (random.nextDouble() < errorRate) {
+            String pattern = MALFORMED_LINES[random.nextInt(MALFORMED_LINES.length)];
+            return String.format(pattern, id, name(random));
+        }
+        int managerId = random.nextDouble() < orphanRate ? MISSING_MANAGER_ID : 1 + random.nextInt(departments);
+        return String.format("Employee,%d,%s,%s,%d", id, name(random), salary(random), managerId);
+    }
+
+    private String name(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private String salary(Random random) {
+        int cents = MIN_SALARY_CENTS + random.nextInt(SALARY_SPREAD_CENTS);
+        return cents % 100 == 0 ? Integer.toString(cents / 100) : String.format("%d.%02d", cents / 100, cents % 100);
+    }
+
+    private void write(BufferedWriter writer, String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+    }
+}
@@ -0,0 +1,61 @@
+package by.koronatech.benchmarks;
+
+import by.koronatech.Department;
+import by.koronatech.ErrorSet;
+import by.koronatech.Writer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriteBenchmark {
+
+    public static final String OUTPUT_DIR = "output";
+    public static final String ERROR_LOG = "error.log";
+    public static final String EXTENSION = ".sb";
+
+    @Param({"1", "4", "16"})
+    public int maxOpenFiles;
+
+    private Map<String, Department> departments;
+    private Writer writer;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) throws IOException {
+        departments = data.parseAndResolve().getDepartments();
+        writer = new Writer(data.directory.resolve(OUTPUT_DIR), ERROR_LOG, EXTENSION);
+        writer.setMaxOpenFiles(maxOpenFiles);
+        writer.prepareOutputDirectory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        writer.close();
+    }
+
+    @Benchmark
+    public ErrorSet writeDepartmentFiles() throws IOException {
+        ErrorSet errors = new ErrorSet();
+        writer.writeDepartmentFiles(departments, errors);
+        return errors;
+    }
+}
@@ -1,31 +1,73 @@
 package by.koronatech;
 
+import by.koronatech.api.DirectorySink;
+import by.koronatech.api.OutputSink;
+import by.koronatech.api.OutputStage;
+import by.koronatech.api.StatisticsCsvSink;
+import by.koronatech.validators.AtomicOutputValidator;
+import by.koronatech.validators.BandsValidator;
+import by.koronatech.validators.ChunkSizeValidator;
+import by.koronatech.validators.CompressValidator;
+import by.koronatech.validators.EmployeeStoreValidator;
+import by.koronatech.validators.ErrorSampleValidator;
+import by.koronatech.validators.FixedPointValidator;
+import by.koronatech.validators.GroupByValidator;
+import by.koronatech.validators.GroupMapValidator;
+import by.koronatech.validators.IncludeManagersValidator;
+import by.koronatech.validators.IncrementalValidator;
+import by.koronatech.validators.IndexValidator;
+import by.koronatech.validators.InputValidator;
+import by.koronatech.validators.MaxErrorsValidator;
+import by.koronatech.validators.MaxOpenFilesValidator;
+import by.koronatech.validators.MaxSalaryValidator;
+import by.koronatech.validators.MetricsValidator;
+import by.koronatech.validators.MinSalaryValidator;
+import by.koronatech.validators.MmapValidator;
 import by.koronatech.validators.OrderValidator;
 import by.koronatech.validators.OutputValidator;
+import by.koronatech.validators.ParallelValidator;
 import by.koronatech.validators.PathValidator;
+import by.koronatech.validators.QueryDepartmentValidator;
+import by.koronatech.validators.QueryIdValidator;
+import by.koronatech.validators.QueryManagerValidator;
+import by.koronatech.validators.RecursiveValidator;
+import by.koronatech.validators.RollupCompanyValidator;
+import by.koronatech.validators.SnapshotInValidator;
+import by.koronatech.validators.SnapshotOutValidator;
 import by.koronatech.validators.SortValidator;
+import by.koronatech.validators.SpillThresholdValidator;
+import by.koronatech.validators.StatExactValidator;
+import by.koronatech.validators.StatModeValidator;
+import by.koronatech.validators.StatOnlyValidator;
 import by.koronatech.validators.StatValidator;
+import by.koronatech.validators.StreamErrorsValidator;
+import by.koronatech.validators.TopValidator;
+import by.koronatech.validators.WatchValidator;
 import lombok.RequiredArgsConstructor;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @RequiredArgsConstructor
 public class App {
 
     public static final String INPUT_EXTENSION = ".sb";
     public static final String ERROR_LOG = "error.log";
-    public static final String TEMP_DEPT_PREFIX = "TEMP_";
-    public static final int TEMP_PREFIX_LENGTH = 5;
     public static final String ERROR_PREFIX = "Ошибка: ";
     public static final String UNEXPECTED_ERROR = "Неожиданная ошибка: ";
     public static final Path OUTPUT_DIR = Path.of("output");
@@ -35,8 +77,49 @@ public class App {
     public static final String PATH_WITHOUT_FILE = "Путь не может быть указан без output=file";
     public static final String PATH_REQUIRED_FOR_FILE = "Путь должен быть указан при output=file";
     public static final String OUTPUT_WITHOUT_STAT = "Параметры output или path не могут быть указаны без stat";
+    public static final String STAT_ONLY_WITHOUT_STAT = "Параметр stat-only не может быть указан без stat";
+    public static final String STAT_ONLY_WITH_SORT = "Сортировка не может быть указана вместе с stat-only";
+    public static final String TOP_REQUIRES_SALARY_SORT = "Параметр top может быть указан только с сортировкой по salary";
+    public static final String WATCH_WITH_SNAPSHOT_IN = "Режим наблюдения не может быть указан вместе с загрузкой снимка";
+    public static final String CHUNK_SIZE_REQUIRES_PARALLEL_MMAP =
+            "Параметр chunk-size может быть указан только вместе с parallel и mmap";
+    public static final String SPILL_THRESHOLD_REQUIRES_SORT =
+            "Параметр spill-threshold может быть указан только вместе с сортировкой";
+    public static final String SPILL_THRESHOLD_WITH_SNAPSHOT_OUT =
+            "Параметр spill-threshold не может быть указан вместе с записью снимка";
+    public static final String ERROR_LIMITS_REQUIRE_STREAM_ERRORS =
+            "Параметры max-errors и error-sample могут быть указаны только вместе с stream-errors";
+    public static final String STREAM_ERRORS_WITH_INCREMENTAL =
+            "Потоковая запись ошибок не может быть указана вместе с инкрементальным режимом";
+    public static final String STREAM_ERRORS_WITH_SNAPSHOT =
+            "Потоковая запись ошибок не может быть указана вместе со снимком";
+    public static final String BANDS_REQUIRE_HISTOGRAM =
+            "Параметр bands может быть указан только вместе с stat=histogram";
+    public static final String STAT_EXACT_REQUIRES_DISTRIBUTION =
+            "Параметр stat-exact может быть указан только вместе с stat=percentiles или stat=histogram";
+    public static final String ROLLUP_WITHOUT_STAT =
+            "Параметры rollup-company, group-by, group-map и include-managers не могут быть указаны без stat";
+    public static final String GROUP_BY_WITH_GROUP_MAP =
+            "Параметры group-by и group-map не могут быть указаны одновременно";
+    public static final String SNAPSHOT_OUT_WITH_STAT_ONLY = "Снимок не может быть записан в режиме stat-only";
+    public static final String SNAPSHOT_IN_WITH_INCREMENTAL =
+            "Загрузка снимка не может быть указана вместе с инкрементальным режимом";
+    public static final String WATCH_WITH_INPUT_ROOTS =
+            "Режим наблюдения не может быть указан вместе с параметрами input и recursive";
+    public static final String ATOMIC_OUTPUT_WITH_INCREMENTAL =
+            "Атомарная публикация результатов не может быть указана вместе с инкрементальным режимом";
+    public static final String INDEX_WITH_COMPRESS = "Индекс не может быть построен для сжатых файлов";
+    public static final String INDEX_WITH_STAT_ONLY = "Индекс не может быть построен в режиме stat-only";
+    public static final String INDEX_WITH_SPILL_THRESHOLD =
+            "Индекс не может быть построен вместе с параметром spill-threshold";
+    public static final String QUERY_TARGET_REQUIRED =
+            "Запрос должен содержать ровно один из параметров id, manager или department";
+    public static final String SALARY_RANGE_REQUIRES_DEPARTMENT =
+            "Параметры min-salary и max-salary могут быть указаны только вместе с department";
+    public static final String INVALID_SALARY_RANGE = "Нижняя граница зарплаты больше верхней";
     public static final Path CURRENT_DIRECTORY = Path.of(".");
-    public static final String INPUT_FILE_PATTERN = "*" + INPUT_EXTENSION;
+    public static final String INPUT_FILE_PATTERN =
+            "*{" + INPUT_EXTENSION + "," + INPUT_EXTENSION + Compression.GZIP_SUFFIX + "}";
     public static final String FILE_OUTPUT = "file";
     public static final String SORT_FLAG_LONG = "--sort=";
     public static final String SORT_FLAG_SHORT = "-s=";
@@ -45,9 +128,52 @@ public class App {
     public static final String OUTPUT_FLAG_LONG = "--output=";
     public static final String OUTPUT_FLAG_SHORT = "-o=";
     public static final String PATH_FLAG = "--path=";
+    public static final String PARALLEL_FLAG = "--parallel";
+    public static final String MMAP_FLAG = "--mmap";
+    public static final String FIXED_POINT_FLAG = "--fixed-point";
+    public static final String STAT_ONLY_FLAG = "--stat-only";
+    public static final String MAX_OPEN_FILES_FLAG = "--max-open-files=";
+    public static final String INCREMENTAL_FLAG = "--incremental";
+    public static final String SNAPSHOT_OUT_FLAG = "--snapshot-out=";
+    public static final String SNAPSHOT_IN_FLAG = "--snapshot-in=";
+    public static final String TOP_FLAG = "--top=";
+    public static final String WATCH_FLAG = "--watch";
+    public static final String METRICS_FLAG = "--metrics=";
+    public static final String EMPLOYEE_STORE_FLAG = "--employee-store=";
+    public static final String STORE_COLUMNAR = "columnar";
+    public static final String STORE_OFF_HEAP = "off-heap";
+    public static final String CHUNK_SIZE_FLAG = "--chunk-size=";
+    public static final int PARSE_WINDOW = 2 * Runtime.getRuntime().availableProcessors();
+    public static final String SPILL_THRESHOLD_FLAG = "--spill-threshold=";
+    public static final String COMPRESS_FLAG = "--compress=";
+    public static final String STREAM_ERRORS_FLAG = "--stream-errors";
+    public static final String MAX_ERRORS_FLAG = "--max-errors=";
+    public static final String ERROR_SAMPLE_FLAG = "--error-sample=";
+    public static final String STAT_MODE_FLAG = "--stat=";
+    public static final String BANDS_FLAG = "--bands=";
+    public static final String STAT_EXACT_FLAG = "--stat-exact=";
+    public static final String ROLLUP_COMPANY_FLAG = "--rollup-company";
+    public static final String GROUP_BY_FLAG = "--group-by=";
+    public static final String GROUP_MAP_FLAG = "--group-map=";
+    public static final String INCLUDE_MANAGERS_FLAG = "--include-managers";
+    public static final String INPUT_FLAG = "--input=";
+    public static final String RECURSIVE_FLAG = "--recursive";
+    public static final String ATOMIC_OUTPUT_FLAG = "--atomic-output";
+    public static final String INDEX_FLAG = "--index";
+    public static final String QUERY_COMMAND = "query";
+    public static final String QUERY_ID_FLAG = "--id=";
+    public static final String QUERY_MANAGER_FLAG = "--manager=";
+    public static final String QUERY_DEPARTMENT_FLAG = "--department=";
+    public static final String MIN_SALARY_FLAG = "--min-salary=";
+    public static final String MAX_SALARY_FLAG = "--max-salary=";
+    public static final Set<String> QUERY_FLAGS =
+            Set.of(QUERY_ID_FLAG, QUERY_MANAGER_FLAG, QUERY_DEPARTMENT_FLAG, MIN_SALARY_FLAG, MAX_SALARY_FLAG);
+    public static final String MANIFEST_FILE = ".manifest";
+    public static final long UNKNOWN_SIZE = -1;
     public static final String ARG_DELIMITER = "=";
     public static final int SPLIT_LIMIT = 2;
     public static final int VALUE_INDEX = 1;
+    public static final int SUCCESS_EXIT_CODE = 0;
     public static final int ERROR_EXIT_CODE = 1;
 
     private final Path directoryForFindFiles;
@@ -57,14 +183,48 @@ public class App {
 
 
     public static void main(String[] args) {
-        Map<String, ArgumentValidator> argValidators = Map.of(
-                SORT_FLAG_LONG, new SortValidator(),
-                SORT_FLAG_SHORT, new SortValidator(),
-                ORDER_FLAG, new OrderValidator(),
-                STAT_FLAG, new StatValidator(),
-                OUTPUT_FLAG_LONG, new OutputValidator(),
-                OUTPUT_FLAG_SHORT, new OutputValidator(),
-                PATH_FLAG, new PathValidator());
+        Map<String, ArgumentValidator> argValidators = Map.ofEntries(
+                Map.entry(SORT_FLAG_LONG, new SortValidator()),
+                Map.entry(SORT_FLAG_SHORT, new SortValidator()),
+                Map.entry(ORDER_FLAG, new OrderValidator()),
+                Map.entry(STAT_FLAG, new StatValidator()),
+                Map.entry(OUTPUT_FLAG_LONG, new OutputValidator()),
+                Map.entry(OUTPUT_FLAG_SHORT, new OutputValidator()),
+                Map.entry(PATH_FLAG, new PathValidator()),
+                Map.entry(PARALLEL_FLAG, new ParallelValidator()),
+                Map.entry(MMAP_FLAG, new MmapValidator()),
+                Map.entry(FIXED_POINT_FLAG, new FixedPointValidator()),
+                Map.entry(STAT_ONLY_FLAG, new StatOnlyValidator()),
+                Map.entry(MAX_OPEN_FILES_FLAG, new MaxOpenFilesValidator()),
+                Map.entry(INCREMENTAL_FLAG, new IncrementalValidator()),
+                Map.entry(SNAPSHOT_OUT_FLAG, new SnapshotOutValidator()),
+                Map.entry(SNAPSHOT_IN_FLAG, new SnapshotInValidator()),
+                Map.entry(TOP_FLAG, new TopValidator()),
+                Map.entry(WATCH_FLAG, new WatchValidator()),
+                Map.entry(METRICS_FLAG, new MetricsValidator()),
+                Map.entry(EMPLOYEE_STORE_FLAG, new EmployeeStoreValidator()),
+                Map.entry(CHUNK_SIZE_FLAG, new ChunkSizeValidator()),
+                Map.entry(SPILL_THRESHOLD_FLAG, new SpillThresholdValidator()),
+                Map.entry(COMPRESS_FLAG, new CompressValidator()),
+                Map.entry(STREAM_ERRORS_FLAG, new StreamErrorsValidator()),
+                Map.entry(MAX_ERRORS_FLAG, new MaxErrorsValidator()),
+                Map.entry(ERROR_SAMPLE_FLAG, new ErrorSampleValidator()),
+                Map.entry(STAT_MODE_FLAG, new StatModeValidator()),
+                Map.entry(BANDS_FLAG, new BandsValidator()),
+                Map.entry(STAT_EXACT_FLAG, new StatExactValidator()),
+                Map.entry(ROLLUP_COMPANY_FLAG, new RollupCompanyValidator()),
+                Map.entry(GROUP_BY_FLAG, new GroupByValidator()),
+                Map.entry(GROUP_MAP_FLAG, new GroupMapValidator()),
+                Map.entry(INCLUDE_MANAGERS_FLAG, new IncludeManagersValidator()),
+                Map.entry(INPUT_FLAG, new InputValidator()),
+                Map.entry(RECURSIVE_FLAG, new RecursiveValidator()),
+                Map.entry(ATOMIC_OUTPUT_FLAG, new AtomicOutputValidator()),
+                Map.entry(INDEX_FLAG, new IndexValidator()),
+                Map.entry(QUERY_ID_FLAG, new QueryIdValidator()),
+                Map.entry(QUERY_MANAGER_FLAG, new QueryManagerValidator()),
+                Map.entry(QUERY_DEPARTMENT_FLAG, new QueryDepartmentValidator()),
+                Map.entry(MIN_SALARY_FLAG, new MinSalaryValidator()),
+                Map.entry(MAX_SALARY_FLAG, new MaxSalaryValidator()));
 
         App app = new App(
                 CURRENT_DIRECTORY,
@@ -75,67 +235,520 @@ public class App {
     }
 
     public void start(String[] args) {
+        int exitCode = run(args);
+        if (exitCode != SUCCESS_EXIT_CODE) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Like {@link #main}, but returns the exit code instead of ending the process.
+     */
+    public int run(String[] args) {
         try {
             Config config = parseArguments(args);
-            processFiles(config);
+            if (config.isQuery()) {
+                query(config);
+            } else if (config.isWatch()) {
+                watch(config);
+            } else {
+                processFiles(config);
+            }
+            return SUCCESS_EXIT_CODE;
         } catch (IllegalArgumentException e) {
             System.err.println(ERROR_PREFIX + e.getMessage());
-            System.exit(ERROR_EXIT_CODE);
+            return ERROR_EXIT_CODE;
         } catch (Exception e) {
             System.err.println(UNEXPECTED_ERROR + e.getMessage());
-            System.exit(ERROR_EXIT_CODE);
+            return ERROR_EXIT_CODE;
         }
     }
 
     private Config parseArguments(String[] args) {
         Config config = new Config();
+        config.setQuery(args.length > 0 && QUERY_COMMAND.equals(args[0]));
 
-        for (String arg : args) {
+        for (String arg : config.isQuery() ? Arrays.copyOfRange(args, 1, args.length) : args) {
             String key = arg.contains(ARG_DELIMITER) ? arg.substring(0, arg.indexOf(ARG_DELIMITER) + 1) : arg;
             String value = arg.contains(ARG_DELIMITER) ? arg.split(ARG_DELIMITER, SPLIT_LIMIT)[VALUE_INDEX] : null;
             ArgumentValidator validator = argValidators.get(key);
-            if (validator != null) {
+            if (validator != null && QUERY_FLAGS.contains(key) == config.isQuery()) {
                 validator.preValidate(config, value);
                 validator.apply(config, value);
             } else {
                 throw new IllegalArgumentException(UNKNOWN_PARAMETER + arg);
             }
         }
-        postValidate(config);
+        if (config.isQuery()) {
+            postValidateQuery(config);
+        } else {
+            postValidate(config);
+        }
         return config;
     }
 
-    private void processFiles(Config config) throws IOException {
-        List<Path> inputFiles = loadInputFiles();
-        Map<String, Department> departments = new HashMap<>();
-        Set<String> errors = new HashSet<>();
-        Map<Employee, String> employeeLines = new HashMap<>();
-        Set<Integer> usedIds = new HashSet<>();
+    private void query(Config config) throws IOException {
+        OutputIndex index = OutputIndex.read(writer.getOutputDir(), INPUT_EXTENSION);
+        List<String> lines;
+        if (config.getQueryId() != null) {
+            String line = index.findById(config.getQueryId());
+            lines = line != null ? List.of(line) : List.of();
+        } else if (config.getQueryManagerId() != null) {
+            lines = index.reportsOf(config.getQueryManagerId());
+        } else {
+            long minCents = config.getMinSalary() != null
+                    ? salaryBound(config.getMinSalary(), RoundingMode.CEILING) : 0;
+            long maxCents = config.getMaxSalary() != null
+                    ? salaryBound(config.getMaxSalary(), RoundingMode.FLOOR) : Long.MAX_VALUE;
+            lines = index.salaryRange(config.getQueryDepartment(), minCents, maxCents);
+        }
+        StringBuilder output = new StringBuilder();
+        for (String line : lines) {
+            output.append(line).append(System.lineSeparator());
+        }
+        System.out.print(output);
+    }
+
+    /**
+     * Bounds beyond a {@code long} of cents are clamped.
+     */
+    private static long salaryBound(BigDecimal salary, RoundingMode rounding) {
+        BigDecimal cents = salary.movePointRight(Salaries.CENTS_SCALE).setScale(0, rounding);
+        return cents.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0 ? Long.MAX_VALUE : cents.longValue();
+    }
+
+    /**
+     * Re-processes the input directory after every burst of changes; a failed batch does not stop
+     * the watcher.
+     */
+    private void watch(Config config) throws IOException, InterruptedException {
+        InputWatcher watcher = new InputWatcher(directoryForFindFiles, INPUT_FILE_PATTERN,
+                InputWatcher.DEFAULT_DEBOUNCE_MILLIS);
+        watcher.watch(() -> {
+            try {
+                processFiles(config);
+            } catch (IllegalArgumentException e) {
+                System.err.println(ERROR_PREFIX + e.getMessage());
+            } catch (Exception e) {
+                System.err.println(UNEXPECTED_ERROR + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * {@code config} must already have passed {@link #postValidate}.
+     */
+    public PipelineMetrics processFiles(Config config) throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        parser.resetDictionaryCounters();
+        ParseState state;
+        try {
+            state = process(config, metrics);
+            metrics.stage(PipelineMetrics.STAGE_PUBLISH, writer::publish);
+        } finally {
+            // A failed staged run leaves the previous output in place.
+            writer.discardStaging();
+        }
+        metrics.setDictionaryCounters(parser.getDictionaryLookups(), parser.getDictionaryHits());
+        metrics.finish(state, writer.outputBytes());
+        if (config.getMetricsPath() != null) {
+            metrics.writeJson(Path.of(config.getMetricsPath()));
+        }
+        return metrics;
+    }
+
+    private ParseState process(Config config, PipelineMetrics metrics) throws IOException {
+        if (config.getMaxOpenFiles() != null) {
+            writer.setMaxOpenFiles(config.getMaxOpenFiles());
+        }
+        writer.setCompressOutput(Compression.GZIP.equals(config.getCompression()));
+        writer.setAtomicOutput(config.isAtomicOutput());
+        writer.setIndexOutput(config.isIndex());
+        writer.recoverOutput();
+        if (config.isAtomicOutput()) {
+            // Staging starts before parsing, so spilled runs and a streamed error log go there too.
+            writer.prepareOutputDirectory();
+        }
+        DirectorySink directory = new DirectorySink(writer);
+        if (config.getSnapshotIn() != null) {
+            Path snapshotFile = Path.of(config.getSnapshotIn());
+            ErrorSet errors = ErrorSet.inInsertionOrder();
+            ParseState state = metrics.stage(PipelineMetrics.STAGE_SNAPSHOT_LOAD,
+                    () -> Snapshot.read(snapshotFile, errors));
+            metrics.setInputBytes(Files.size(snapshotFile));
+            writeSnapshotIfRequested(config, state, errors, metrics);
+            OutputStage.run(config, state, OutputSink.of(directory, statisticsSink(config)), metrics);
+            return state;
+        }
+
+        InputScanner scanner = inputScanner(config);
+        parser.setMemoryMapped(config.isMemoryMapped());
+        parser.setFixedPoint(config.isFixedPoint());
+        parser.setStreamingStats(config.isStreamingStats());
+        parser.setColumnar(config.getEmployeeStore() != null);
+        parser.setOffHeap(STORE_OFF_HEAP.equals(config.getEmployeeStore()));
+        parser.setDistributionOptions(DistributionOptions.of(config));
+
+        // Spilled runs live under the output directory until the department files are written.
+        try (ExternalSorter externalSorter = config.getSpillThreshold() != null
+                ? new ExternalSorter(writer.getOutputDir(), config.getSpillThreshold(), config.getSortType(),
+                config.getOrder())
+                : null;
+             ErrorLog errorLog = config.isStreamErrors() ? directory.openErrorLog(config) : null) {
+            // Snapshots and incremental runs, which --stream-errors rules out, read the lines back.
+            ErrorSet errors = new ErrorSet();
+            parser.setExternalSorter(externalSorter);
+            if (config.isIncremental()) {
+                return processIncrementally(config, scanner, errors, metrics);
+            }
+            ParseState state = new ParseState(errorLog != null ? errorLog : errors);
+            parseAndWrite(config, scanner, state, errors, directory, metrics);
+            return state;
+        }
+    }
+
+    private void parseAndWrite(Config config, InputScanner scanner, ParseState state, ErrorSet errors,
+                               DirectorySink directory, PipelineMetrics metrics) throws IOException {
+        metrics.stage(PipelineMetrics.STAGE_PARSE, () -> {
+            if (config.isParallel()) {
+                parseFilesInParallel(config, scanner, state);
+            } else {
+                scanner.scan(file -> parser.parseFile(file.getPath(), state));
+            }
+        });
+        metrics.setInputBytes(scanner.getScannedBytes());
+
+        metrics.stage(PipelineMetrics.STAGE_RESOLVE, state::resolvePendingEmployees);
+        writeSnapshotIfRequested(config, state, errors, metrics);
+        OutputStage.run(config, state, OutputSink.of(directory, statisticsSink(config)), metrics);
+    }
+
+    private OutputSink statisticsSink(Config config) {
+        if (!config.isGenerateStats()) {
+            return new OutputSink() {
+            };
+        }
+        StringBuilder statistics = new StringBuilder();
+        return new StatisticsCsvSink(statistics, config) {
+            @Override
+            public void finish() throws IOException {
+                super.finish();
+                writer.writeStatistics(statistics, config);
+            }
+        };
+    }
+
+    /**
+     * Merges again only the files that changed and the files their lines can interact with, found
+     * from the summaries in the manifest; every other file contributes its department files and
+     * statistics rows as they are and its error lines from the previous error log. Only output
+     * files whose content changed are rewritten.
+     */
+    private ParseState processIncrementally(Config config, InputScanner scanner, ErrorSet errors,
+                                            PipelineMetrics metrics) throws IOException {
+        Path manifestFile = writer.getOutputDir().resolve(MANIFEST_FILE);
+        RunManifest previous = RunManifest.read(manifestFile);
+        RunManifest current = new RunManifest();
+        current.setParserOptions(parser.lineOptions());
+        current.setOutputOptions(RunManifest.outputOptions(config));
+        if (previous.getParserOptions() != current.getParserOptions()
+                || !previous.getOutputOptions().equals(current.getOutputOptions())) {
+            previous.getInputs().clear();
+            previous.getStatistics().clear();
+        }
+        RunManifest.ErrorRecorder recorder = new RunManifest.ErrorRecorder(errors);
+        ParseState state = new ParseState(recorder);
+
+        List<InputFile> inputFiles = scanner.scanAll();
+        metrics.setInputBytes(scanner.getScannedBytes());
+        Set<String> reusedDepartments = new HashSet<>();
+        metrics.stage(PipelineMetrics.STAGE_PARSE, () -> {
+            List<LoadedInput> inputs = join(inputFiles.stream()
+                    .map(file -> supply(config, () -> loadInput(file, previous)))
+                    .toList());
+            MergePlan plan = planMerge(config, inputFiles, inputs, previous);
+            boolean[] merged = plan.merged();
+            List<CompletableFuture<List<ParsedLine>>> lines = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                LoadedInput input = inputs.get(i);
+                Path file = inputFiles.get(i).getPath();
+                lines.add(!merged[i] ? null
+                        : input.lines() != null ? CompletableFuture.completedFuture(input.lines())
+                        : supply(config, () -> parser.readFile(file)));
+            }
+            for (int i = 0; i < inputs.size(); i++) {
+                RunManifest.FileSummary summary = inputs.get(i).entry().getSummary();
+                if (merged[i]) {
+                    recorder.startFile(summary);
+                    parser.mergeLines(lines.get(i).join(), state);
+                } else {
+                    recorder.replay(summary, plan.previousErrors());
+                    reusedDepartments.addAll(Arrays.asList(summary.getDepartments()));
+                }
+                current.getInputs().put(inputFiles.get(i).getPath().toString(), inputs.get(i).entry());
+            }
+        });
 
-        for (Path file : inputFiles) {
-            Map<Employee, String> fileEmployeeLines = parser.parseFile(file, departments, errors, usedIds);
-            employeeLines.putAll(fileEmployeeLines);
+        metrics.stage(PipelineMetrics.STAGE_RESOLVE, state::resolvePendingEmployees);
+        recorder.finish();
+        writeSnapshotIfRequested(config, state, errors, metrics);
+
+        for (String department : reusedDepartments) {
+            String fileName = writer.departmentFileName(department);
+            if (previous.getOutputs().containsKey(fileName)) {
+                current.getOutputs().put(fileName, previous.getOutputs().get(fileName));
+            }
+        }
+        OutputSink changedFiles = new OutputSink() {
+            @Override
+            public void errors(ErrorSink sink) throws IOException {
+                writer.ensureOutputDirectory();
+                String errorLogName = writer.errorLogName();
+                byte[] errorsDigest = writer.writeErrorsIfChanged(errors, previous.getOutputs().get(errorLogName));
+                if (errorsDigest != null) {
+                    current.getOutputs().put(errorLogName, errorsDigest);
+                }
+            }
+
+            @Override
+            public void departments(Map<String, Department> departments) throws IOException {
+                current.getOutputs().putAll(
+                        writer.writeChangedDepartmentFiles(departments, errors, previous.getOutputs()));
+            }
+        };
+        OutputSink statistics = statisticsSink(config);
+        if (config.isGenerateStats() && !Rollup.isRequested(config)) {
+            Map<String, Stats> rows = new TreeMap<>();
+            for (String department : reusedDepartments) {
+                rows.put(department, previous.getStatistics().get(department));
+            }
+            statistics = withReusedStatistics(statistics, rows, current.getStatistics());
         }
+        OutputStage.run(config, state, OutputSink.of(changedFiles, statistics), metrics);
 
-        mergeTempDepartments(departments, errors, employeeLines);
+        Set<Path> produced = new HashSet<>();
+        for (String fileName : current.getOutputs().keySet()) {
+            produced.add(writer.getOutputDir().resolve(fileName).normalize());
+        }
+        produced.add(manifestFile.normalize());
+        if (config.isIndex()) {
+            produced.add(writer.getOutputDir().resolve(OutputIndex.FILE_NAME).normalize());
+        }
+        if (config.isGenerateStats() && FILE_OUTPUT.equals(config.getOutputType())) {
+            produced.add(writer.getOutputDir().resolve(config.getOutputPath()).normalize());
+        }
+        writer.removeStaleFiles(produced);
+        current.write(manifestFile);
+        return state;
+    }
 
-        writer.prepareOutputDirectory();
-        writer.writeErrors(errors);
+    /**
+     * The changed files, then every file that shares an id, a manager or a department with a file
+     * already chosen, until none is left; everything when the outputs are built across all
+     * departments, or when a department's output or an error line cannot be reused.
+     */
+    private MergePlan planMerge(Config config, List<InputFile> inputFiles, List<LoadedInput> inputs,
+                                RunManifest previous) throws IOException {
+        boolean[] merged = new boolean[inputs.size()];
+        if (config.isIndex() || Rollup.isRequested(config) || config.getSnapshotOut() != null) {
+            Arrays.fill(merged, true);
+            return new MergePlan(merged, Map.of());
+        }
+        IntHashSet affectedIds = new IntHashSet();
+        Set<String> affectedDepartments = new HashSet<>();
+        Set<String> present = new HashSet<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            String path = inputFiles.get(i).getPath().toString();
+            present.add(path);
+            if (inputs.get(i).lines() != null) {
+                merged[i] = true;
+                inputs.get(i).entry().getSummary().addTo(affectedIds, affectedDepartments);
+                RunManifest.InputEntry replaced = previous.getInputs().get(path);
+                if (replaced != null) {
+                    replaced.getSummary().addTo(affectedIds, affectedDepartments);
+                }
+            }
+        }
+        for (Map.Entry<String, RunManifest.InputEntry> entry : previous.getInputs().entrySet()) {
+            if (!present.contains(entry.getKey())) {
+                entry.getValue().getSummary().addTo(affectedIds, affectedDepartments);
+            }
+        }
+        for (LoadedInput input : inputs) {
+            for (String department : input.entry().getSummary().getDepartments()) {
+                if (!isReusable(config, department, previous)) {
+                    affectedDepartments.add(department);
+                }
+            }
+        }
+        addInteractingFiles(inputs, merged, affectedIds, affectedDepartments);
 
-        if (config.getSortType() != null) {
-            for (Department dept : departments.values()) {
-                dept.sortEmployees(config.getSortType(), config.getOrder());
+        Map<Long, String> previousErrors = previousErrors(inputs, merged);
+        for (int i = 0; i < inputs.size(); i++) {
+            RunManifest.FileSummary summary = inputs.get(i).entry().getSummary();
+            if (!merged[i] && !Arrays.stream(summary.getErrorFingerprints()).allMatch(previousErrors::containsKey)) {
+                merged[i] = true;
+                summary.addTo(affectedIds, affectedDepartments);
             }
         }
+        addInteractingFiles(inputs, merged, affectedIds, affectedDepartments);
+        return new MergePlan(merged, previousErrors);
+    }
 
-        writer.writeDepartmentFiles(departments, errors);
+    /**
+     * {@code previousErrors} holds the error lines of every file not merged again, and possibly
+     * more.
+     */
+    private record MergePlan(boolean[] merged, Map<Long, String> previousErrors) {
+    }
 
-        if (config.isGenerateStats()) {
-            writer.writeStatistics(departments, config);
+    private static void addInteractingFiles(List<LoadedInput> inputs, boolean[] merged, IntHashSet affectedIds,
+                                            Set<String> affectedDepartments) {
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (int i = 0; i < inputs.size(); i++) {
+                RunManifest.FileSummary summary = inputs.get(i).entry().getSummary();
+                if (!merged[i] && summary.touches(affectedIds, affectedDepartments)) {
+                    merged[i] = true;
+                    summary.addTo(affectedIds, affectedDepartments);
+                    grown = true;
+                }
+            }
         }
     }
 
-    private void postValidate(Config config) {
+    private boolean isReusable(Config config, String department, RunManifest previous) {
+        if (config.isGenerateStats() && !previous.getStatistics().containsKey(department)) {
+            return false;
+        }
+        if (config.isStreamingStats()) {
+            return true;
+        }
+        String fileName = writer.departmentFileName(department);
+        return previous.getOutputs().containsKey(fileName) && Files.exists(writer.getOutputDir().resolve(fileName));
+    }
+
+    /**
+     * The lines of the previous error log that the files not merged again still need.
+     */
+    private Map<Long, String> previousErrors(List<LoadedInput> inputs, boolean[] merged) throws IOException {
+        LongHashSet wanted = new LongHashSet();
+        for (int i = 0; i < inputs.size(); i++) {
+            if (!merged[i]) {
+                for (long fingerprint : inputs.get(i).entry().getSummary().getErrorFingerprints()) {
+                    wanted.add(fingerprint);
+                }
+            }
+        }
+        Map<Long, String> lines = new HashMap<>();
+        Path errorLog = writer.getOutputDir().resolve(writer.errorLogName());
+        if (wanted.size() == 0 || !Files.isRegularFile(errorLog)) {
+            return lines;
+        }
+        try (Utf8LineReader reader = new Utf8LineReader(Compression.newInputStream(errorLog))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long fingerprint = ParsedLine.fingerprint(line);
+                if (wanted.contains(fingerprint)) {
+                    lines.put(fingerprint, line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Rows from {@link OutputStage} replace the reused ones; all of them go to {@code target} in
+     * department order once the stage is done, and are kept in {@code kept}.
+     */
+    private static OutputSink withReusedStatistics(OutputSink target, Map<String, Stats> rows,
+                                                   Map<String, Stats> kept) {
+        return new OutputSink() {
+            @Override
+            public void statistics(String level, Stats stats) {
+                rows.put(stats.getDepartment(), stats);
+            }
+
+            @Override
+            public void finish() throws IOException {
+                for (Stats stats : rows.values()) {
+                    target.statistics(Rollup.LEVEL_DEPARTMENT, stats);
+                }
+                kept.putAll(rows);
+                target.finish();
+            }
+        };
+    }
+
+    private static <T> CompletableFuture<T> supply(Config config, Supplier<T> supplier) {
+        return config.isParallel()
+                ? CompletableFuture.supplyAsync(PipelineMetrics.onWorker(supplier))
+                : CompletableFuture.completedFuture(supplier.get());
+    }
+
+    private static <T> List<T> join(List<CompletableFuture<T>> futures) {
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private void writeSnapshotIfRequested(Config config, ParseState state, ErrorSet errors, PipelineMetrics metrics)
+            throws IOException {
+        if (config.getSnapshotOut() != null) {
+            metrics.stage(PipelineMetrics.STAGE_SNAPSHOT_WRITE,
+                    () -> Snapshot.write(Path.of(config.getSnapshotOut()), state, errors));
+        }
+    }
+
+    /**
+     * A changed file is parsed here; an unchanged one keeps its summary from the manifest.
+     */
+    private LoadedInput loadInput(InputFile input, RunManifest previous) {
+        Path file = input.getPath();
+        RunManifest.InputEntry cached = previous.getInputs().get(file.toString());
+        try {
+            BasicFileAttributes attributes = input.getAttributes();
+            long size = attributes.size();
+            long modifiedNanos = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+            if (cached != null && cached.getSize() == size && cached.getModifiedNanos() == modifiedNanos) {
+                return new LoadedInput(cached, null);
+            }
+            byte[] contentHash = RunManifest.contentHash(file);
+            if (cached != null && Arrays.equals(cached.getContentHash(), contentHash)) {
+                return new LoadedInput(
+                        new RunManifest.InputEntry(size, modifiedNanos, contentHash, cached.getSummary()), null);
+            }
+            return parsed(size, modifiedNanos, contentHash, parser.readFile(file));
+        } catch (IOException e) {
+            return parsed(UNKNOWN_SIZE, UNKNOWN_SIZE, new byte[0], parser.readFile(file));
+        }
+    }
+
+    private static LoadedInput parsed(long size, long modifiedNanos, byte[] contentHash, List<ParsedLine> lines) {
+        return new LoadedInput(new RunManifest.InputEntry(size, modifiedNanos, contentHash,
+                RunManifest.FileSummary.of(lines)), lines);
+    }
+
+    /**
+     * {@code lines} is {@code null} for a file that did not change.
+     */
+    private record LoadedInput(RunManifest.InputEntry entry, List<ParsedLine> lines) {
+    }
+
+    private void parseFilesInParallel(Config config, InputScanner scanner, ParseState state) throws IOException {
+        long chunkSize = config.getChunkSize() != null ? config.getChunkSize() : Parser.DEFAULT_CHUNK_SIZE;
+        ParseWindow window = new ParseWindow(parser, state);
+        scanner.scan(file -> {
+            List<FileChunk> chunks = config.isMemoryMapped()
+                    ? parser.splitFile(file.getPath(), chunkSize)
+                    : List.of(FileChunk.wholeFile(file.getPath()));
+            for (FileChunk chunk : chunks) {
+                window.submit(chunk.getPath(), () -> parser.readChunk(chunk));
+            }
+        });
+        window.finish();
+    }
+
+    public static void postValidate(Config config) {
         if (config.getSortType() != null && config.getOrder() == null) {
             throw new IllegalArgumentException(ORDER_REQUIRED);
         }
@@ -151,53 +764,97 @@ public class App {
         if (!config.isGenerateStats() && config.getOutputType() != null) {
             throw new IllegalArgumentException(OUTPUT_WITHOUT_STAT);
         }
+        if (config.isStreamingStats() && !config.isGenerateStats()) {
+            throw new IllegalArgumentException(STAT_ONLY_WITHOUT_STAT);
+        }
+        if (config.isStreamingStats() && config.getSortType() != null) {
+            throw new IllegalArgumentException(STAT_ONLY_WITH_SORT);
+        }
+        if (config.getTop() != null && !Department.SORT_SALARY.equals(config.getSortType())) {
+            throw new IllegalArgumentException(TOP_REQUIRES_SALARY_SORT);
+        }
+        if (config.isWatch() && config.getSnapshotIn() != null) {
+            throw new IllegalArgumentException(WATCH_WITH_SNAPSHOT_IN);
+        }
+        if (config.isWatch() && (config.getInputRoots() != null || config.isRecursive())) {
+            throw new IllegalArgumentException(WATCH_WITH_INPUT_ROOTS);
+        }
+        if (config.getChunkSize() != null && !(config.isParallel() && config.isMemoryMapped())) {
+            throw new IllegalArgumentException(CHUNK_SIZE_REQUIRES_PARALLEL_MMAP);
+        }
+        if (config.getSpillThreshold() != null && config.getSortType() == null) {
+            throw new IllegalArgumentException(SPILL_THRESHOLD_REQUIRES_SORT);
+        }
+        if (config.getSpillThreshold() != null && config.getSnapshotOut() != null) {
+            throw new IllegalArgumentException(SPILL_THRESHOLD_WITH_SNAPSHOT_OUT);
+        }
+        if ((config.getMaxErrors() != null || config.getErrorSample() != null) && !config.isStreamErrors()) {
+            throw new IllegalArgumentException(ERROR_LIMITS_REQUIRE_STREAM_ERRORS);
+        }
+        if (config.isAtomicOutput() && config.isIncremental()) {
+            throw new IllegalArgumentException(ATOMIC_OUTPUT_WITH_INCREMENTAL);
+        }
+        if (config.isStreamErrors() && config.isIncremental()) {
+            throw new IllegalArgumentException(STREAM_ERRORS_WITH_INCREMENTAL);
+        }
+        if (config.isStreamErrors() && (config.getSnapshotIn() != null || config.getSnapshotOut() != null)) {
+            throw new IllegalArgumentException(STREAM_ERRORS_WITH_SNAPSHOT);
+        }
+        if (config.getSalaryBands() != null && !DistributionOptions.MODE_HISTOGRAM.equals(config.getStatMode())) {
+            throw new IllegalArgumentException(BANDS_REQUIRE_HISTOGRAM);
+        }
+        if (config.getExactStatLimit() != null && DistributionOptions.of(config) == null) {
+            throw new IllegalArgumentException(STAT_EXACT_REQUIRES_DISTRIBUTION);
+        }
+        if ((config.isRollupCompany() || config.getGroupPattern() != null || config.getGroupMap() != null
+                || config.isIncludeManagers()) && !config.isGenerateStats()) {
+            throw new IllegalArgumentException(ROLLUP_WITHOUT_STAT);
+        }
+        if (config.getGroupPattern() != null && config.getGroupMap() != null) {
+            throw new IllegalArgumentException(GROUP_BY_WITH_GROUP_MAP);
+        }
+        if (config.isStreamingStats() && config.getSnapshotOut() != null) {
+            throw new IllegalArgumentException(SNAPSHOT_OUT_WITH_STAT_ONLY);
+        }
+        if (config.isIncremental() && config.getSnapshotIn() != null) {
+            throw new IllegalArgumentException(SNAPSHOT_IN_WITH_INCREMENTAL);
+        }
+        if (config.isIndex() && config.getCompression() != null) {
+            throw new IllegalArgumentException(INDEX_WITH_COMPRESS);
+        }
+        if (config.isIndex() && config.isStreamingStats()) {
+            throw new IllegalArgumentException(INDEX_WITH_STAT_ONLY);
+        }
+        if (config.isIndex() && config.getSpillThreshold() != null) {
+            // The index is built from the positions of every record, which would undo the bound on memory.
+            throw new IllegalArgumentException(INDEX_WITH_SPILL_THRESHOLD);
+        }
     }
 
-    private List<Path> loadInputFiles() throws IOException {
-        List<Path> inputFiles = new ArrayList<>();
-        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(directoryForFindFiles, INPUT_FILE_PATTERN)) {
-            for (Path path : dirStream) {
-                if (Files.isRegularFile(path)) {
-                    inputFiles.add(path);
-                }
-            }
+    private static void postValidateQuery(Config config) {
+        int targets = (config.getQueryId() != null ? 1 : 0) + (config.getQueryManagerId() != null ? 1 : 0)
+                + (config.getQueryDepartment() != null ? 1 : 0);
+        if (targets != 1) {
+            throw new IllegalArgumentException(QUERY_TARGET_REQUIRED);
         }
-        return inputFiles;
-    }
-
-    private void mergeTempDepartments(Map<String, Department> departments,
-                                      Set<String> errors,
-                                      Map<Employee, String> employeeLines) {
-        for (Iterator<Map.Entry<String, Department>> it = departments.entrySet().iterator(); it.hasNext(); ) {
-            Map.Entry<String, Department> entry = it.next();
-            String key = entry.getKey();
-            Department dept = entry.getValue();
-            if (key.startsWith(TEMP_DEPT_PREFIX)) {
-                int managerId = Integer.parseInt(key.substring(TEMP_PREFIX_LENGTH));
-                String targetDeptName = findTargetDepartment(departments, managerId);
-                if (targetDeptName != null) {
-                    Department targetDept = departments.get(targetDeptName);
-                    for (Employee emp : dept.getEmployees()) {
-                        String line = employeeLines.get(emp);
-                        if (line != null) {
-                            errors.remove(line);
-                        }
-                    }
-                    targetDept.getEmployees().addAll(dept.getEmployees());
-                }
-                it.remove();
-            }
+        if ((config.getMinSalary() != null || config.getMaxSalary() != null) && config.getQueryDepartment() == null) {
+            throw new IllegalArgumentException(SALARY_RANGE_REQUIRES_DEPARTMENT);
+        }
+        if (config.getMinSalary() != null && config.getMaxSalary() != null
+                && config.getMinSalary().compareTo(config.getMaxSalary()) > 0) {
+            throw new IllegalArgumentException(INVALID_SALARY_RANGE);
         }
     }
 
-    private String findTargetDepartment(Map<String, Department> departments, int managerId) {
-        for (Map.Entry<String, Department> deptEntry : departments.entrySet()) {
-            if (!deptEntry.getKey().startsWith(TEMP_DEPT_PREFIX)
-                    && deptEntry.getValue().getManager() != null
-                    && deptEntry.getValue().getManager().getId() == managerId) {
-                return deptEntry.getKey();
-            }
-        }
-        return null;
+    /**
+     * Without {@code --input} and {@code --recursive} the working directory is scanned in listing
+     * order; otherwise in name order.
+     */
+    private InputScanner inputScanner(Config config) {
+        List<Path> roots = config.getInputRoots() != null
+                ? config.getInputRoots().stream().map(Path::of).toList()
+                : List.of(directoryForFindFiles);
+        boolean sorted = config.getInputRoots() != null || config.isRecursive();
+        return new InputScanner(roots, INPUT_FILE_PATTERN, config.isRecursive(), sorted, writer.ownedDirectories());
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package by.koronatech;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a whole batch: totals and error counts per {@link ErrorCategory}.
+ */
+@Name("by.koronatech.Batch")
+@Label("Pipeline Batch")
+@Category("Employee Processor")
+@Description("Processing of one batch of input files")
+class BatchEvent extends jdk.jfr.Event {
+
+    @Label("CPU Time")
+    @Timespan
+    long cpuTime;
+
+    @Label("Records")
+    long records;
+
+    @Label("Input Bytes")
+    @DataAmount
+    long inputBytes;
+
+    @Label("Output Bytes")
+    @DataAmount
+    long outputBytes;
+
+    @Label("Error Log Lines")
+    long errorLogLines;
+
+    @Label("Dictionary Lookups")
+    long dictionaryLookups;
+
+    @Label("Dictionary Hits")
+    long dictionaryHits;
+
+    @Label("Malformed Lines")
+    long malformedLine;
+
+    @Label("Bad Ids")
+    long badId;
+
+    @Label("Unknown Types")
+    long unknownType;
+
+    @Label("Bad Salaries")
+    long badSalary;
+
+    @Label("Bad Manager Ids")
+    long badManagerId;
+
+    @Label("Duplicate Ids")
+    long duplicateId;
+
+    @Label("Duplicate Managers")
+    long duplicateManager;
+
+    @Label("Missing Managers")
+    long missingManager;
+
+    @Label("Read Errors")
+    long readError;
+}
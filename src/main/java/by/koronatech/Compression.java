@@ -0,0 +1,49 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip for files whose name ends in {@link #GZIP_SUFFIX}. Compressed files are always streamed,
+ * never mapped or split.
+ */
+public final class Compression {
+
+    public static final String GZIP = "gzip";
+    public static final String GZIP_SUFFIX = ".gz";
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private Compression() {
+    }
+
+    public static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(GZIP_SUFFIX);
+    }
+
+    public static InputStream newInputStream(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return isCompressed(file) ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+    }
+
+    public static OutputStream newOutputStream(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        return isCompressed(file) ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    public static WritableByteChannel newChannel(Path file) throws IOException {
+        if (isCompressed(file)) {
+            return Channels.newChannel(newOutputStream(file));
+        }
+        return FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+}
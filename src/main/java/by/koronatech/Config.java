@@ -3,6 +3,9 @@ package by.koronatech;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 @Getter
 @Setter
 public class Config {
@@ -11,4 +14,39 @@ public class Config {
     private boolean generateStats;
     private String outputType;
     private String outputPath;
+    private boolean parallel;
+    private boolean memoryMapped;
+    private boolean fixedPoint;
+    private boolean streamingStats;
+    private Integer maxOpenFiles;
+    private boolean incremental;
+    private String snapshotOut;
+    private String snapshotIn;
+    private Integer top;
+    private boolean watch;
+    private String metricsPath;
+    private String employeeStore;
+    private Long chunkSize;
+    private Integer spillThreshold;
+    private String compression;
+    private boolean streamErrors;
+    private Long maxErrors;
+    private Integer errorSample;
+    private String statMode;
+    private long[] salaryBands;
+    private Integer exactStatLimit;
+    private boolean rollupCompany;
+    private String groupPattern;
+    private String groupMap;
+    private boolean includeManagers;
+    private List<String> inputRoots;
+    private boolean recursive;
+    private boolean atomicOutput;
+    private boolean index;
+    private boolean query;
+    private Integer queryId;
+    private Integer queryManagerId;
+    private String queryDepartment;
+    private BigDecimal minSalary;
+    private BigDecimal maxSalary;
 }
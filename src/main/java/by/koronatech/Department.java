@@ -3,13 +3,10 @@ package by.koronatech;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Getter
 @Setter
@@ -17,42 +14,78 @@ public class Department {
 
     public static final int SCALE_AVERAGE = 2;
     public static final String SORT_NAME = "name";
+    public static final String SORT_SALARY = "salary";
     public static final String ORDER_DESC = "desc";
+    public static final int NO_OUTPUT_LIMIT = Integer.MAX_VALUE;
 
     private Manager manager;
     private List<Employee> employees = new ArrayList<>();
+    private SalaryAccumulator streamedSalaries = new SalaryAccumulator();
+    /**
+     * How many leading employees are written; statistics cover all of them.
+     */
+    private int outputLimit = NO_OUTPUT_LIMIT;
+    /**
+     * Positions of the employees to write, in order; {@code null} writes the leading ones.
+     */
+    private int[] outputOrder;
+    /**
+     * Employees in spilled runs are not in {@link #employees}.
+     */
+    private List<Path> spilledRuns = new ArrayList<>();
+    private Comparator<Employee> spillOrder;
 
-    public void sortEmployees(String sortType, String order) {
-        Comparator<Employee> comparator = SORT_NAME.equals(sortType)
-                ? Comparator.comparing(Employee::getName)
-                : Comparator.comparing(Employee::getSalary);
-
-        if (ORDER_DESC.equals(order)) {
-            comparator = comparator.reversed();
+    public void arrangeEmployees(Config config) {
+        if (config.getSortType() == null) {
+            return;
         }
+        if (config.getTop() != null) {
+            selectTopEmployees(config.getOrder(), config.getTop());
+        } else {
+            sortEmployees(config.getSortType(), config.getOrder());
+        }
+    }
 
-        employees = employees.stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
+    public void sortEmployees(String sortType, String order) {
+        EmployeeSorter.sort(employees, sortType, order);
     }
 
-    public Stats calculateStats(String departmentName) {
-        if (employees.isEmpty()) {
-            return new Stats(departmentName, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    /**
+     * Highest-paid for {@code desc}, without sorting or moving the rest.
+     */
+    public void selectTopEmployees(String order, int count) {
+        if (spilledRuns.isEmpty()) {
+            outputOrder = EmployeeSorter.selectTop(employees, order, count);
+        } else {
+            EmployeeSorter.sort(employees, SORT_SALARY, order);
         }
+        outputLimit = count;
+    }
 
-        List<BigDecimal> salaries = employees.stream()
-                .map(Employee::getSalary)
-                .toList();
-
-        BigDecimal min = Collections.min(salaries);
-        BigDecimal max = Collections.max(salaries);
-
-        BigDecimal sum = salaries.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Stats calculateStats(String departmentName) {
+        return calculateStats(departmentName, null);
+    }
 
-        BigDecimal avg = sum.divide(BigDecimal.valueOf(salaries.size()), SCALE_AVERAGE, RoundingMode.HALF_UP);
+    public Stats calculateStats(String departmentName, DistributionOptions options) {
+        return summarizeSalaries(options, false).toStats(departmentName);
+    }
 
-        return new Stats(departmentName, min, max, avg);
+    /**
+     * The manager is left out unless {@code includeManager} is set.
+     */
+    public SalaryAccumulator summarizeSalaries(DistributionOptions options, boolean includeManager) {
+        SalaryAccumulator salaries = SalaryAccumulator.of(options);
+        salaries.merge(streamedSalaries);
+        if (includeManager && manager != null) {
+            salaries.add(manager);
+        }
+        if (employees instanceof EmployeeColumns columns) {
+            columns.addSalariesTo(salaries);
+        } else {
+            for (Employee employee : employees) {
+                salaries.add(employee);
+            }
+        }
+        return salaries;
     }
-}
\ No newline at end of file
+}
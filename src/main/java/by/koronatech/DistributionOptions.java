@@ -0,0 +1,42 @@
+package by.koronatech;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What the extended {@code --stat} modes compute. Band bounds are ascending lower bounds in cents.
+ */
+@Getter
+@AllArgsConstructor
+public class DistributionOptions {
+
+    public static final String MODE_BASIC = "basic";
+    public static final String MODE_PERCENTILES = "percentiles";
+    public static final String MODE_HISTOGRAM = "histogram";
+    public static final int[] PERCENTILES = {50, 90, 99};
+    public static final long[] DEFAULT_BANDS = {100_000, 200_000, 500_000, 1_000_000, 2_000_000, 5_000_000};
+    public static final int NO_EXACT_LIMIT = 0;
+
+    private int exactLimit;
+    private long[] bandBounds;
+
+    /**
+     * Returns {@code null} when the configured mode needs no distribution.
+     */
+    public static DistributionOptions of(Config config) {
+        String mode = config.getStatMode();
+        if (mode == null || MODE_BASIC.equals(mode)) {
+            return null;
+        }
+        int exactLimit = config.getExactStatLimit() != null ? config.getExactStatLimit() : NO_EXACT_LIMIT;
+        if (!MODE_HISTOGRAM.equals(mode)) {
+            return new DistributionOptions(exactLimit, null);
+        }
+        return new DistributionOptions(exactLimit,
+                config.getSalaryBands() != null ? config.getSalaryBands() : DEFAULT_BANDS);
+    }
+
+    public boolean hasBands() {
+        return bandBounds != null;
+    }
+}
@@ -1,20 +1,41 @@
 package by.koronatech;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
 
 @Getter
 @AllArgsConstructor
 public class Employee {
+
+    public static final Comparator<Employee> BY_SALARY = (a, b) -> a.hasCents() && b.hasCents()
+            ? Long.compare(a.salaryCents, b.salaryCents)
+            : a.getSalary().compareTo(b.getSalary());
+
     private int id;
     private String name;
+    @Getter(AccessLevel.NONE)
     private BigDecimal salary;
+    private long salaryCents;
     private int managerId;
 
+    public Employee(int id, String name, BigDecimal salary, int managerId) {
+        this(id, name, salary, Salaries.NO_CENTS, managerId);
+    }
+
+    public BigDecimal getSalary() {
+        return salary != null ? salary : Salaries.toBigDecimal(salaryCents);
+    }
+
+    public boolean hasCents() {
+        return salary == null;
+    }
+
     @Override
     public String toString() {
-        return String.format("Employee,%d,%s,%.2f,%d", id, name, salary, managerId);
+        return String.format("Employee,%d,%s,%.2f,%d", id, getName(), getSalary(), managerId);
     }
-}
\ No newline at end of file
+}
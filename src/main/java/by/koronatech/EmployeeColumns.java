@@ -0,0 +1,23 @@
+package by.koronatech;
+
+/**
+ * Employee list whose rows can be sorted and summed by position, without building the employees.
+ */
+interface EmployeeColumns {
+
+    /**
+     * {@link Salaries#NO_CENTS} for a salary not held in cents.
+     */
+    long salaryCents(int row);
+
+    int compareSalaries(int a, int b);
+
+    int compareNames(int a, int b);
+
+    /**
+     * Row {@code i} becomes the former row {@code order[i]}.
+     */
+    void permute(int[] order);
+
+    void addSalariesTo(SalaryAccumulator accumulator);
+}
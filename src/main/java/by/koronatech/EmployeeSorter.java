@@ -0,0 +1,239 @@
+package by.koronatech;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Stable in-place ordering of a department's employees: a radix sort when every salary is in cents,
+ * row positions for an {@link EmployeeStore} or a snapshot, {@link List#sort} otherwise.
+ */
+public final class EmployeeSorter {
+
+    public static final int RADIX_THRESHOLD = 64;
+    public static final int RADIX_BITS = 8;
+    public static final int RADIX = 1 << RADIX_BITS;
+    public static final int INSERTION_THRESHOLD = 16;
+
+    private EmployeeSorter() {
+    }
+
+    public static void sort(List<Employee> employees, String sortType, String order) {
+        boolean descending = Department.ORDER_DESC.equals(order);
+        if (!Department.SORT_NAME.equals(sortType) && employees.size() >= RADIX_THRESHOLD) {
+            long[] keys = salaryKeys(employees, descending);
+            if (keys != null) {
+                permute(employees, radixSort(keys));
+                return;
+            }
+        }
+        if (employees instanceof EmployeeColumns store) {
+            int[] rows = new int[employees.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = i;
+            }
+            mergeSort(rows, new int[rows.length], 0, rows.length, rowOrder(employees, sortType, descending));
+            store.permute(rows);
+            return;
+        }
+        employees.sort(comparator(sortType, descending));
+    }
+
+    /**
+     * Positions of the {@code n} best employees, best first, as a full stable sort would order
+     * them; the list is left untouched.
+     */
+    public static int[] selectTop(List<Employee> employees, String order, int n) {
+        int count = Math.min(n, employees.size());
+        IndexOrder salaryOrder = rowOrder(employees, Department.SORT_SALARY, Department.ORDER_DESC.equals(order));
+        IndexOrder rank = (a, b) -> {
+            int result = salaryOrder.compare(a, b);
+            return result != 0 ? result : Integer.compare(a, b);
+        };
+
+        // Max-heap under rank: the root is the worst of the positions kept so far.
+        int[] heap = new int[count];
+        int heapSize = 0;
+        for (int i = 0; i < employees.size(); i++) {
+            if (heapSize < count) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, rank);
+            } else if (count > 0 && rank.compare(i, heap[0]) < 0) {
+                heap[0] = i;
+                siftDown(heap, count, rank);
+            }
+        }
+        // Popping the worst into the freed slot at the end leaves the heap array in rank order.
+        for (int end = count - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            siftDown(heap, end, rank);
+            heap[end] = worst;
+        }
+        return heap;
+    }
+
+    public static Comparator<Employee> comparator(String sortType, String order) {
+        return comparator(sortType, Department.ORDER_DESC.equals(order));
+    }
+
+    private static Comparator<Employee> comparator(String sortType, boolean descending) {
+        Comparator<Employee> comparator = Department.SORT_NAME.equals(sortType)
+                ? Comparator.comparing(Employee::getName)
+                : Employee.BY_SALARY;
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    private static IndexOrder rowOrder(List<Employee> employees, String sortType, boolean descending) {
+        IndexOrder order;
+        if (employees instanceof EmployeeColumns store) {
+            order = Department.SORT_NAME.equals(sortType) ? store::compareNames : store::compareSalaries;
+        } else {
+            Comparator<Employee> comparator = comparator(sortType, false);
+            order = (a, b) -> comparator.compare(employees.get(a), employees.get(b));
+        }
+        return descending ? (a, b) -> order.compare(b, a) : order;
+    }
+
+    /**
+     * {@code null} when any salary is not held in cents.
+     */
+    private static long[] salaryKeys(List<Employee> employees, boolean descending) {
+        EmployeeColumns store = employees instanceof EmployeeColumns columns ? columns : null;
+        long[] keys = new long[employees.size()];
+        for (int i = 0; i < keys.length; i++) {
+            long cents = store != null ? store.salaryCents(i) : centsOf(employees.get(i));
+            if (cents == Salaries.NO_CENTS) {
+                return null;
+            }
+            keys[i] = descending ? Long.MAX_VALUE - cents : cents;
+        }
+        return keys;
+    }
+
+    private static long centsOf(Employee employee) {
+        return employee.hasCents() ? employee.getSalaryCents() : Salaries.NO_CENTS;
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, IndexOrder order) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i;
+                while (j > from && order.compare(rows[j - 1], row) > 0) {
+                    rows[j] = rows[j - 1];
+                    j--;
+                }
+                rows[j] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, order);
+        mergeSort(rows, buffer, middle, to, order);
+        if (order.compare(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && order.compare(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted order as input positions.
+     */
+    static int[] radixSort(long[] keys) {
+        int size = keys.length;
+        long[] keyBuffer = new long[size];
+        int[] order = new int[size];
+        int[] orderBuffer = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        long[] sourceKeys = keys.clone();
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (long key : sourceKeys) {
+                counts[(int) (key >>> shift) & (RADIX - 1)]++;
+            }
+            if (counts[(int) (sourceKeys[0] >>> shift) & (RADIX - 1)] == size) {
+                continue;
+            }
+            for (int digit = 0, total = 0; digit < RADIX; digit++) {
+                int count = counts[digit];
+                counts[digit] = total;
+                total += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int target = counts[(int) (sourceKeys[i] >>> shift) & (RADIX - 1)]++;
+                keyBuffer[target] = sourceKeys[i];
+                orderBuffer[target] = order[i];
+            }
+            long[] swapKeys = sourceKeys;
+            sourceKeys = keyBuffer;
+            keyBuffer = swapKeys;
+            int[] swapOrder = order;
+            order = orderBuffer;
+            orderBuffer = swapOrder;
+        }
+        return order;
+    }
+
+    private static void permute(List<Employee> employees, int[] order) {
+        if (employees instanceof EmployeeColumns store) {
+            store.permute(order);
+            return;
+        }
+        Employee[] snapshot = employees.toArray(new Employee[0]);
+        for (int i = 0; i < order.length; i++) {
+            employees.set(i, snapshot[order[i]]);
+        }
+    }
+
+    private static void siftUp(int[] heap, int position, IndexOrder rank) {
+        int value = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (rank.compare(value, heap[parent]) <= 0) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, IndexOrder rank) {
+        if (size == 0) {
+            return;
+        }
+        int value = heap[0];
+        int position = 0;
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && rank.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (rank.compare(value, heap[child]) >= 0) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = value;
+    }
+
+    @FunctionalInterface
+    private interface IndexOrder {
+        int compare(int a, int b);
+    }
+}
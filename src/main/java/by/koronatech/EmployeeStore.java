@@ -0,0 +1,340 @@
+package by.koronatech;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar list of employees: id, manager id and salary columns plus the names as UTF-8 in one
+ * arena, on or off the heap. The salary column holds cents, or {@code -(index + 1)} into a side
+ * table of salaries not exact in cents.
+ */
+public class EmployeeStore extends AbstractList<Employee> implements RandomAccess, EmployeeColumns {
+
+    public static final int INITIAL_ROWS = 16;
+    public static final int INITIAL_ARENA_BYTES = 256;
+    public static final int MAX_BUFFER_BYTES = Integer.MAX_VALUE - 8;
+    public static final int MAX_ROWS = MAX_BUFFER_BYTES / Long.BYTES;
+    public static final String TOO_MANY_ROWS =
+            "Слишком много сотрудников в одном департаменте для хранения по столбцам: ";
+    public static final String NAMES_TOO_LARGE =
+            "Имена сотрудников одного департамента не помещаются в буфер, байт: ";
+    public static final String FOREIGN_ROW = "В хранилище по столбцам можно записать только его собственную строку";
+    private static final int UTF8_SURROGATE_FIXUP_LEAD = 0xEE;
+
+    private final boolean offHeap;
+    private final List<BigDecimal> decimals = new ArrayList<>();
+    private IntBuffer ids;
+    private IntBuffer managerIds;
+    private LongBuffer salaries;
+    private IntBuffer nameOffsets;
+    private IntBuffer nameLengths;
+    private ByteBuffer names;
+    private int size;
+    private int namesSize;
+
+    public EmployeeStore(boolean offHeap) {
+        this.offHeap = offHeap;
+        ids = allocate(INITIAL_ROWS * Integer.BYTES).asIntBuffer();
+        managerIds = allocate(INITIAL_ROWS * Integer.BYTES).asIntBuffer();
+        salaries = allocate(INITIAL_ROWS * Long.BYTES).asLongBuffer();
+        nameOffsets = allocate(INITIAL_ROWS * Integer.BYTES).asIntBuffer();
+        nameLengths = allocate(INITIAL_ROWS * Integer.BYTES).asIntBuffer();
+        names = allocate(INITIAL_ARENA_BYTES);
+    }
+
+    public void add(int id, String name, BigDecimal salary, long salaryCents, int managerId) {
+        ensureRows(size + 1);
+        int row = size++;
+        ids.put(row, id);
+        managerIds.put(row, managerId);
+        salaries.put(row, salaryColumn(salary, salaryCents));
+        appendName(row, name);
+    }
+
+    @Override
+    public boolean add(Employee employee) {
+        if (employee instanceof Row stored && stored.store() == this) {
+            ensureRows(size + 1);
+            writeRow(size++, stored);
+        } else {
+            add(employee.getId(), employee.getName(), employee.hasCents() ? null : employee.getSalary(),
+                    employee.getSalaryCents(), employee.getManagerId());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Employee> employees) {
+        if (!(employees instanceof EmployeeStore other)) {
+            return super.addAll(employees);
+        }
+        if (other.size == 0) {
+            return false;
+        }
+        ensureRows((long) size + other.size);
+        ensureArena((long) namesSize + other.namesSize);
+        names.put(namesSize, other.names, 0, other.namesSize);
+        for (int i = 0; i < other.size; i++) {
+            int row = size + i;
+            ids.put(row, other.ids.get(i));
+            managerIds.put(row, other.managerIds.get(i));
+            long salary = other.salaries.get(i);
+            if (salary < 0) {
+                decimals.add(other.decimals.get((int) (-salary - 1)));
+                salary = -decimals.size();
+            }
+            salaries.put(row, salary);
+            nameOffsets.put(row, namesSize + other.nameOffsets.get(i));
+            nameLengths.put(row, other.nameLengths.get(i));
+        }
+        size += other.size;
+        namesSize += other.namesSize;
+        return true;
+    }
+
+    @Override
+    public Employee get(int index) {
+        checkIndex(index);
+        long salary = salaries.get(index);
+        return new Row(ids.get(index), salary, salary < 0 ? decimals.get((int) (-salary - 1)) : null,
+                managerIds.get(index), nameOffsets.get(index), nameLengths.get(index));
+    }
+
+    /**
+     * Only takes rows read from this store; anything else would grow the arena for good.
+     */
+    @Override
+    public Employee set(int index, Employee employee) {
+        if (!(employee instanceof Row stored && stored.store() == this)) {
+            throw new UnsupportedOperationException(FOREIGN_ROW);
+        }
+        Employee previous = get(index);
+        writeRow(index, stored);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        namesSize = 0;
+        decimals.clear();
+    }
+
+    @Override
+    public void addSalariesTo(SalaryAccumulator accumulator) {
+        for (int i = 0; i < size; i++) {
+            long salary = salaries.get(i);
+            if (salary < 0) {
+                accumulator.add(decimals.get((int) (-salary - 1)));
+            } else {
+                accumulator.add(salary);
+            }
+        }
+    }
+
+    /**
+     * In place.
+     */
+    @Override
+    public void permute(int[] order) {
+        BitSet placed = new BitSet(size);
+        for (int start = 0; start < size; start++) {
+            if (placed.get(start) || order[start] == start) {
+                continue;
+            }
+            int id = ids.get(start);
+            int managerId = managerIds.get(start);
+            long salary = salaries.get(start);
+            int nameOffset = nameOffsets.get(start);
+            int nameLength = nameLengths.get(start);
+            int row = start;
+            while (order[row] != start) {
+                int source = order[row];
+                ids.put(row, ids.get(source));
+                managerIds.put(row, managerIds.get(source));
+                salaries.put(row, salaries.get(source));
+                nameOffsets.put(row, nameOffsets.get(source));
+                nameLengths.put(row, nameLengths.get(source));
+                placed.set(row);
+                row = source;
+            }
+            ids.put(row, id);
+            managerIds.put(row, managerId);
+            salaries.put(row, salary);
+            nameOffsets.put(row, nameOffset);
+            nameLengths.put(row, nameLength);
+            placed.set(row);
+        }
+    }
+
+    @Override
+    public long salaryCents(int row) {
+        long salary = salaries.get(row);
+        return salary < 0 ? Salaries.NO_CENTS : salary;
+    }
+
+    @Override
+    public int compareSalaries(int a, int b) {
+        long salaryA = salaries.get(a);
+        long salaryB = salaries.get(b);
+        if (salaryA >= 0 && salaryB >= 0) {
+            return Long.compare(salaryA, salaryB);
+        }
+        return salary(salaryA).compareTo(salary(salaryB));
+    }
+
+    /**
+     * Orders as {@link String#compareTo} would, on the UTF-8 bytes: code point order, with
+     * supplementary characters moved after U+E000..U+FFFF.
+     */
+    @Override
+    public int compareNames(int a, int b) {
+        int offsetA = nameOffsets.get(a);
+        int offsetB = nameOffsets.get(b);
+        int lengthA = nameLengths.get(a);
+        int lengthB = nameLengths.get(b);
+        int length = Math.min(lengthA, lengthB);
+        for (int i = 0; i < length; i++) {
+            int byteA = names.get(offsetA + i) & 0xFF;
+            int byteB = names.get(offsetB + i) & 0xFF;
+            if (byteA != byteB) {
+                if (byteA >= UTF8_SURROGATE_FIXUP_LEAD && byteB >= UTF8_SURROGATE_FIXUP_LEAD) {
+                    return Integer.compare(utf16Order(byteA), utf16Order(byteB));
+                }
+                return Integer.compare(byteA, byteB);
+            }
+        }
+        return Integer.compare(lengthA, lengthB);
+    }
+
+    private static int utf16Order(int leadByte) {
+        // 0xEE and 0xEF start U+E000..U+FFFF, which UTF-16 sorts after the surrogate pairs.
+        return leadByte < 0xF0 ? leadByte + 0x10 : leadByte;
+    }
+
+    private BigDecimal salary(long salaryColumn) {
+        return salaryColumn < 0 ? decimals.get((int) (-salaryColumn - 1)) : Salaries.toBigDecimal(salaryColumn);
+    }
+
+    private void writeRow(int row, Row stored) {
+        ids.put(row, stored.getId());
+        managerIds.put(row, stored.getManagerId());
+        salaries.put(row, stored.salaryColumn);
+        nameOffsets.put(row, stored.nameOffset);
+        nameLengths.put(row, stored.nameLength);
+    }
+
+    private long salaryColumn(BigDecimal salary, long salaryCents) {
+        if (salary == null) {
+            return salaryCents;
+        }
+        long cents = Salaries.toCents(salary);
+        if (cents != Salaries.NO_CENTS) {
+            return cents;
+        }
+        decimals.add(salary);
+        return -decimals.size();
+    }
+
+    private void appendName(int row, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ensureArena((long) namesSize + bytes.length);
+        names.put(namesSize, bytes);
+        nameOffsets.put(row, namesSize);
+        nameLengths.put(row, bytes.length);
+        namesSize += bytes.length;
+    }
+
+    private String decodeName(int offset, int length) {
+        byte[] bytes = new byte[length];
+        names.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureRows(long rows) {
+        int capacity = ids.capacity();
+        if (rows <= capacity) {
+            return;
+        }
+        if (rows > MAX_ROWS) {
+            throw new IllegalStateException(TOO_MANY_ROWS + rows);
+        }
+        int grown = (int) Math.min(MAX_ROWS, Math.max(rows, capacity * 2L));
+        ids = grow(ids, grown);
+        managerIds = grow(managerIds, grown);
+        nameOffsets = grow(nameOffsets, grown);
+        nameLengths = grow(nameLengths, grown);
+        LongBuffer grownSalaries = allocate(grown * Long.BYTES).asLongBuffer();
+        grownSalaries.put(0, salaries, 0, size);
+        salaries = grownSalaries;
+    }
+
+    private IntBuffer grow(IntBuffer column, int rows) {
+        IntBuffer grown = allocate(rows * Integer.BYTES).asIntBuffer();
+        grown.put(0, column, 0, size);
+        return grown;
+    }
+
+    private void ensureArena(long bytes) {
+        if (bytes > names.capacity()) {
+            if (bytes > MAX_BUFFER_BYTES) {
+                throw new IllegalStateException(NAMES_TOO_LARGE + bytes);
+            }
+            ByteBuffer grown = allocate((int) Math.min(MAX_BUFFER_BYTES, Math.max(bytes, names.capacity() * 2L)));
+            grown.put(0, names, 0, namesSize);
+            names = grown;
+        }
+    }
+
+    private ByteBuffer allocate(int bytes) {
+        ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        return buffer.order(ByteOrder.nativeOrder());
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    private final class Row extends Employee {
+        private final int nameOffset;
+        private final int nameLength;
+        private final long salaryColumn;
+        private String name;
+
+        private Row(int id, long salaryColumn, BigDecimal decimal, int managerId, int nameOffset, int nameLength) {
+            super(id, null, decimal, decimal != null ? Salaries.NO_CENTS : salaryColumn, managerId);
+            this.salaryColumn = salaryColumn;
+            this.nameOffset = nameOffset;
+            this.nameLength = nameLength;
+        }
+
+        @Override
+        public String getName() {
+            if (name == null) {
+                name = decodeName(nameOffset, nameLength);
+            }
+            return name;
+        }
+
+        private EmployeeStore store() {
+            return EmployeeStore.this;
+        }
+    }
+}
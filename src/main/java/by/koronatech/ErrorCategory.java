@@ -0,0 +1,24 @@
+package by.koronatech;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Why a line was reported as an error. Only used for counting; the error log itself still
+ * holds the raw lines.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ErrorCategory {
+    MALFORMED_LINE("malformedLine"),
+    BAD_ID("badId"),
+    UNKNOWN_TYPE("unknownType"),
+    BAD_SALARY("badSalary"),
+    BAD_MANAGER_ID("badManagerId"),
+    DUPLICATE_ID("duplicateId"),
+    DUPLICATE_MANAGER("duplicateManager"),
+    MISSING_MANAGER("missingManager"),
+    READ_ERROR("readError");
+
+    private final String key;
+}
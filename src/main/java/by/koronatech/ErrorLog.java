@@ -0,0 +1,218 @@
+package by.koronatech;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Error log written by a background thread while the input is parsed, keeping only the 64-bit
+ * fingerprint of each line for deduplication. Withdrawable lines wait in a temporary side file
+ * until they are settled. Sampling keeps the lines whose fingerprint is divisible by the rate, so
+ * every run picks the same ones; the count of lines left out ends the log.
+ */
+public class ErrorLog implements ErrorSink, AutoCloseable {
+
+    public static final int QUEUE_CAPACITY = 1 << 12;
+    public static final long UNLIMITED = Long.MAX_VALUE;
+    public static final int NO_SAMPLING = 1;
+    public static final String SKIPPED_LINES = "Пропущено строк ошибок: ";
+    public static final String WRITER_THREAD_NAME = "error-log-writer";
+
+    private static final Entry END_OF_LOG = new Entry(null);
+
+    private final Path file;
+    private final long maxLines;
+    private final int sampleRate;
+    private final LongHashSet fingerprints = new LongHashSet();
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<Long, Long> withdrawableOffsets = new HashMap<>();
+    private FileChannel withdrawable;
+    private final Thread writerThread;
+    private volatile IOException failure;
+    private long writtenLines;
+    private long skippedLines;
+    private boolean closed;
+
+    public ErrorLog(Path file, long maxLines, int sampleRate) {
+        this.file = file;
+        this.maxLines = maxLines;
+        this.sampleRate = sampleRate;
+        this.writerThread = new Thread(this::drain, WRITER_THREAD_NAME);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Lines added after {@link #close} are ignored.
+     */
+    @Override
+    public synchronized boolean add(String line) {
+        long fingerprint = ParsedLine.fingerprint(line);
+        if (closed || !fingerprints.add(fingerprint)) {
+            return false;
+        }
+        if (writtenLines >= maxLines || Long.remainderUnsigned(fingerprint, sampleRate) != 0) {
+            skippedLines++;
+        } else {
+            writtenLines++;
+            enqueue(new Entry(line));
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int size() {
+        return (int) Math.min(writtenLines, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized void addWithdrawable(long fingerprint, String line) throws IOException {
+        if (closed || fingerprints.contains(fingerprint) || withdrawableOffsets.containsKey(fingerprint)) {
+            return;
+        }
+        if (withdrawable == null) {
+            withdrawable = FileChannel.open(Files.createTempFile("error-log", ".withdrawable"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        long offset = withdrawable.size();
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes);
+        withdrawable.write(record.flip(), offset);
+        withdrawableOffsets.put(fingerprint, offset);
+    }
+
+    @Override
+    public synchronized void settleWithdrawable(Collection<Long> lineFingerprints, boolean withdraw)
+            throws IOException {
+        for (long fingerprint : lineFingerprints) {
+            Long offset = withdrawableOffsets.remove(fingerprint);
+            if (offset != null && !withdraw) {
+                add(readWithdrawable(offset));
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(Writer writer) throws IOException {
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (skippedLines > 0) {
+                enqueue(new Entry(SKIPPED_LINES + skippedLines));
+            }
+            enqueue(END_OF_LOG);
+            withdrawableOffsets.clear();
+            if (withdrawable != null) {
+                withdrawable.close();
+            }
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private String readWithdrawable(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, offset);
+        ByteBuffer bytes = ByteBuffer.allocate(length.flip().getInt());
+        readFully(bytes, offset + Integer.BYTES);
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (withdrawable.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * After a write failure the queue is still drained, so producers never block; {@link #close}
+     * reports the failure.
+     */
+    private void drain() {
+        List<Entry> batch = new ArrayList<>();
+        BufferedWriter writer = null;
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Entry entry : batch) {
+                    if (entry == END_OF_LOG) {
+                        closeWriter(writer);
+                        return;
+                    }
+                    if (failure == null) {
+                        try {
+                            if (writer == null) {
+                                writer = new BufferedWriter(new OutputStreamWriter(
+                                        Compression.newOutputStream(file), StandardCharsets.UTF_8));
+                            }
+                            writer.write(entry.line());
+                            writer.newLine();
+                        } catch (IOException e) {
+                            failure = e;
+                        }
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            closeWriter(writer);
+            failure = new IOException(e);
+        }
+    }
+
+    private void closeWriter(BufferedWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private record Entry(String line) {
+    }
+}
@@ -0,0 +1,83 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Error lines held in memory and written once the parse is over, in hash order, or in the order
+ * added for a set from {@link #inInsertionOrder}. Hash order is by hash code, then text, so it
+ * does not depend on the order the lines came in or on lines removed since.
+ */
+public class ErrorSet implements ErrorSink, Iterable<String> {
+
+    private static final Comparator<String> HASH_ORDER =
+            Comparator.comparingInt(String::hashCode).thenComparing(Comparator.naturalOrder());
+
+    private final Set<String> lines;
+    private final boolean insertionOrder;
+    private final Map<Long, String> withdrawable = new HashMap<>();
+
+    public ErrorSet() {
+        this(new HashSet<>(), false);
+    }
+
+    private ErrorSet(Set<String> lines, boolean insertionOrder) {
+        this.lines = lines;
+        this.insertionOrder = insertionOrder;
+    }
+
+    public static ErrorSet inInsertionOrder() {
+        return new ErrorSet(new LinkedHashSet<>(), true);
+    }
+
+    @Override
+    public boolean add(String line) {
+        return lines.add(line);
+    }
+
+    @Override
+    public int size() {
+        return lines.size();
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    @Override
+    public void addWithdrawable(long fingerprint, String line) {
+        lines.add(line);
+        withdrawable.putIfAbsent(fingerprint, line);
+    }
+
+    @Override
+    public void settleWithdrawable(Collection<Long> fingerprints, boolean withdraw) {
+        for (long fingerprint : fingerprints) {
+            String line = withdrawable.remove(fingerprint);
+            if (withdraw && line != null) {
+                lines.remove(line);
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(Writer writer) throws IOException {
+        writer.writeErrors(this);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        if (!insertionOrder) {
+            return lines.stream().sorted(HASH_ORDER).iterator();
+        }
+        return Collections.unmodifiableSet(lines).iterator();
+    }
+}
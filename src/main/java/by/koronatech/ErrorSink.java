@@ -0,0 +1,24 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Receives the error lines of a parse; a line is recorded once. An exact repeat of an accepted
+ * employee line is withdrawable: it stays an error only if its manager never shows up.
+ */
+public interface ErrorSink {
+
+    boolean add(String line);
+
+    int size();
+
+    void addWithdrawable(long fingerprint, String line) throws IOException;
+
+    /**
+     * With {@code withdraw} the lines are not errors after all.
+     */
+    void settleWithdrawable(Collection<Long> fingerprints, boolean withdraw) throws IOException;
+
+    void writeTo(Writer writer) throws IOException;
+}
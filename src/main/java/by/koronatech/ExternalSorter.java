@@ -0,0 +1,189 @@
+package by.koronatech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spills full buckets to sorted run files while parsing and merges them back when the department
+ * file is written. Ties go to the earlier run, so the result is the stable sort of the whole
+ * department.
+ */
+public class ExternalSorter implements AutoCloseable {
+
+    public static final String SPILL_DIRECTORY = ".spill";
+    public static final String RUN_PREFIX = "run-";
+    public static final String RUN_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final int threshold;
+    private final String sortType;
+    private final String order;
+    private final Comparator<Employee> comparator;
+    private final AtomicInteger runCounter = new AtomicInteger();
+
+    public ExternalSorter(Path outputDir, int threshold, String sortType, String order) {
+        this.directory = outputDir.resolve(SPILL_DIRECTORY);
+        this.threshold = threshold;
+        this.sortType = sortType;
+        this.order = order;
+        this.comparator = EmployeeSorter.comparator(sortType, order);
+    }
+
+    public void spillIfFull(Department bucket) {
+        List<Employee> employees = bucket.getEmployees();
+        if (employees.size() < threshold) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            EmployeeSorter.sort(employees, sortType, order);
+            Path run = directory.resolve(RUN_PREFIX + runCounter.incrementAndGet() + RUN_SUFFIX);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                for (Employee employee : employees) {
+                    writeEmployee(out, employee);
+                    bucket.getStreamedSalaries().add(employee);
+                }
+            }
+            bucket.getSpilledRuns().add(run);
+            bucket.setSpillOrder(comparator);
+            employees.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void forEachSorted(Department department, EmployeeAction action) throws IOException {
+        List<Path> runs = department.getSpilledRuns();
+        Comparator<Employee> comparator = department.getSpillOrder();
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            PriorityQueue<RunCursor> heads = new PriorityQueue<>((a, b) -> {
+                int result = comparator.compare(a.head, b.head);
+                return result != 0 ? result : Integer.compare(a.index, b.index);
+            });
+            for (int i = 0; i < runs.size(); i++) {
+                RunCursor cursor = new RunCursor(i, new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(runs.get(i)))), null);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+            RunCursor memory = new RunCursor(runs.size(), null, department.getEmployees().iterator());
+            if (memory.advance()) {
+                heads.add(memory);
+            }
+            while (!heads.isEmpty()) {
+                RunCursor cursor = heads.poll();
+                if (!action.accept(cursor.head)) {
+                    return;
+                }
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.in.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path run : stream) {
+                Files.delete(run);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static void writeEmployee(DataOutputStream out, Employee employee) throws IOException {
+        out.writeInt(employee.getId());
+        out.writeInt(employee.getManagerId());
+        out.writeBoolean(employee.hasCents());
+        if (employee.hasCents()) {
+            out.writeLong(employee.getSalaryCents());
+        } else {
+            writeBytes(out, employee.getSalary().toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        writeBytes(out, employee.getName().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Employee readEmployee(DataInputStream in) throws IOException {
+        int id;
+        try {
+            id = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int managerId = in.readInt();
+        if (in.readBoolean()) {
+            long salaryCents = in.readLong();
+            return new Employee(id, readString(in), null, salaryCents, managerId);
+        }
+        BigDecimal salary = new BigDecimal(readString(in));
+        return new Employee(id, readString(in), salary, managerId);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    public interface EmployeeAction {
+        /**
+         * Returns {@code false} to stop the iteration.
+         */
+        boolean accept(Employee employee) throws IOException;
+    }
+
+    private static final class RunCursor {
+        private final int index;
+        private final DataInputStream in;
+        private final Iterator<Employee> memory;
+        private Employee head;
+
+        private RunCursor(int index, DataInputStream in, Iterator<Employee> memory) {
+            this.index = index;
+            this.in = in;
+            this.memory = memory;
+        }
+
+        private boolean advance() throws IOException {
+            if (memory != null) {
+                head = memory.hasNext() ? memory.next() : null;
+            } else {
+                head = readEmployee(in);
+            }
+            return head != null;
+        }
+    }
+}
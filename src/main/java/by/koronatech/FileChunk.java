@@ -0,0 +1,24 @@
+package by.koronatech;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * The bytes {@code [from, to)} of an input file, starting and ending on line boundaries.
+ */
+@Getter
+@AllArgsConstructor
+public class FileChunk {
+
+    public static final long END_OF_FILE = Long.MAX_VALUE;
+
+    private Path path;
+    private long from;
+    private long to;
+
+    public static FileChunk wholeFile(Path path) {
+        return new FileChunk(path, 0, END_OF_FILE);
+    }
+}
@@ -0,0 +1,23 @@
+package by.koronatech;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * An input file found by {@link InputScanner}, with the attributes read while scanning, so
+ * nothing has to stat it again.
+ */
+@Getter
+@AllArgsConstructor
+public class InputFile {
+
+    private Path path;
+    private BasicFileAttributes attributes;
+
+    public long size() {
+        return attributes.size();
+    }
+}
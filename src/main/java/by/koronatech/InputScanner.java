@@ -0,0 +1,236 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Finds the input files under the roots and hands them over in order while the listing goes on in
+ * parallel. A recursive scan skips the excluded directories and roots nested in earlier ones;
+ * unsorted scans keep the file system order, sorted scans go by name.
+ */
+public class InputScanner {
+
+    public static final String ROOT_NOT_FOUND = "Папка с входными файлами не найдена: ";
+
+    private final List<Path> givenRoots;
+    private final List<Path> roots = new ArrayList<>();
+    private final Set<Path> excluded = new HashSet<>();
+    private final PathMatcher matcher;
+    private final boolean recursive;
+    private final boolean sorted;
+    private long scannedBytes;
+
+    @FunctionalInterface
+    public interface InputConsumer {
+        void accept(InputFile file) throws IOException;
+    }
+
+    public InputScanner(List<Path> roots, String pattern, boolean recursive, boolean sorted) {
+        this(roots, pattern, recursive, sorted, List.of());
+    }
+
+    public InputScanner(List<Path> roots, String pattern, boolean recursive, boolean sorted,
+                        Collection<Path> excludedDirectories) {
+        this.givenRoots = roots;
+        this.matcher = roots.get(0).getFileSystem().getPathMatcher("glob:" + pattern);
+        this.recursive = recursive;
+        this.sorted = sorted;
+        for (Path directory : excludedDirectories) {
+            excluded.add(absolute(directory));
+        }
+        List<Path> distinct = new ArrayList<>();
+        for (Path root : roots) {
+            Path absolute = absolute(root);
+            if (distinct.stream().noneMatch(seen -> recursive ? absolute.startsWith(seen) : absolute.equals(seen))) {
+                distinct.add(absolute);
+                this.roots.add(root);
+            }
+        }
+        if (recursive) {
+            excluded.addAll(distinct);
+        }
+    }
+
+    /**
+     * Calls {@code consumer} on the calling thread for every input file, in order.
+     *
+     * @throws IllegalArgumentException if a root is not a directory
+     */
+    public void scan(InputConsumer consumer) throws IOException {
+        for (Path root : givenRoots) {
+            if (!Files.isDirectory(root)) {
+                throw new IllegalArgumentException(ROOT_NOT_FOUND + root);
+            }
+        }
+        List<CompletableFuture<Listing>> listings = new ArrayList<>();
+        for (Path root : roots) {
+            listings.add(listAsync(root));
+        }
+        for (CompletableFuture<Listing> listing : listings) {
+            emit(listing, consumer);
+        }
+    }
+
+    public List<InputFile> scanAll() throws IOException {
+        List<InputFile> files = new ArrayList<>();
+        scan(files::add);
+        return files;
+    }
+
+    public long getScannedBytes() {
+        return scannedBytes;
+    }
+
+    private void emit(CompletableFuture<Listing> pending, InputConsumer consumer) throws IOException {
+        Listing listing = await(pending);
+        for (InputFile file : listing.files) {
+            accept(file, consumer);
+        }
+        for (Path path : listing.unread) {
+            BasicFileAttributes attributes = readAttributes(path);
+            if (attributes != null && attributes.isRegularFile()) {
+                accept(new InputFile(path, attributes), consumer);
+            }
+        }
+        for (CompletableFuture<Listing> subdirectory : listing.subdirectories) {
+            emit(subdirectory, consumer);
+        }
+    }
+
+    private void accept(InputFile file, InputConsumer consumer) throws IOException {
+        scannedBytes += file.size();
+        consumer.accept(file);
+    }
+
+    private CompletableFuture<Listing> listAsync(Path directory) {
+        Supplier<Listing> listing = () -> {
+            try {
+                return list(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        return CompletableFuture.supplyAsync(PipelineMetrics.onWorker(listing));
+    }
+
+    private Listing list(Path directory) throws IOException {
+        Listing listing = new Listing();
+        if (!recursive) {
+            listing.unread.addAll(inputPaths(directory));
+            if (sorted) {
+                listing.unread.sort(Comparator.naturalOrder());
+            }
+            return listing;
+        }
+        List<InputFile> entries = walkEntries(directory);
+        if (sorted) {
+            entries.sort(Comparator.comparing(InputFile::getPath));
+        }
+
+        for (InputFile entry : entries) {
+            Path path = entry.getPath();
+            BasicFileAttributes attributes = entry.getAttributes();
+            if (attributes.isDirectory()) {
+                if (!excluded.contains(absolute(path))) {
+                    listing.subdirectories.add(listAsync(path));
+                }
+                continue;
+            }
+            if (!matcher.matches(path.getFileName())) {
+                continue;
+            }
+            if (attributes.isSymbolicLink()) {
+                attributes = readAttributes(path);
+            }
+            if (attributes != null && attributes.isRegularFile()) {
+                listing.files.add(new InputFile(path, attributes));
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * Only the names: a file is stat'ed when it is handed over, so parsing starts before the rest
+     * of a large directory has been.
+     */
+    private List<Path> inputPaths(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                entry -> matcher.matches(entry.getFileName()))) {
+            stream.forEach(paths::add);
+        }
+        return paths;
+    }
+
+    private List<InputFile> walkEntries(Path directory) throws IOException {
+        List<InputFile> entries = new ArrayList<>();
+        Files.walkFileTree(directory, Set.of(), 1, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                entries.add(new InputFile(file, attributes));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (file.equals(directory)) {
+                    throw e;
+                }
+                // Gone since the listing: not an input file.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * {@code null} for an entry that is gone or a dangling link.
+     */
+    private static BasicFileAttributes readAttributes(Path entry) {
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Path absolute(Path directory) {
+        return directory.toAbsolutePath().normalize();
+    }
+
+    private Listing await(CompletableFuture<Listing> listing) throws IOException {
+        try {
+            return listing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Listing {
+        private final List<InputFile> files = new ArrayList<>();
+        /**
+         * Matching entries of a flat scan, whose attributes are read as they are emitted.
+         */
+        private final List<Path> unread = new ArrayList<>();
+        private final List<CompletableFuture<Listing>> subdirectories = new ArrayList<>();
+    }
+}
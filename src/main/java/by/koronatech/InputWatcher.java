@@ -0,0 +1,70 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-runs a batch whenever input files change in the watched directory, once the directory has been
+ * quiet for {@code debounceMillis}.
+ */
+public class InputWatcher {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+    public static final String WATCH_CANCELLED = "Наблюдение за папкой прекращено: ";
+
+    private final Path directory;
+    private final PathMatcher matcher;
+    private final long debounceMillis;
+
+    @FunctionalInterface
+    public interface Batch {
+        void run();
+    }
+
+    public InputWatcher(Path directory, String pattern, long debounceMillis) {
+        this.directory = directory;
+        this.matcher = directory.getFileSystem().getPathMatcher("glob:" + pattern);
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Returns only by exception.
+     */
+    public void watch(Batch batch) throws IOException, InterruptedException {
+        try (WatchService service = directory.getFileSystem().newWatchService()) {
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            batch.run();
+            while (true) {
+                boolean relevant = drain(service.take());
+                WatchKey key;
+                while ((key = service.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    relevant |= drain(key);
+                }
+                if (relevant) {
+                    batch.run();
+                }
+            }
+        }
+    }
+
+    private boolean drain(WatchKey key) throws IOException {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || event.context() instanceof Path name && matcher.matches(name)) {
+                relevant = true;
+            }
+        }
+        if (!key.reset()) {
+            throw new IOException(WATCH_CANCELLED + directory);
+        }
+        return relevant;
+    }
+}
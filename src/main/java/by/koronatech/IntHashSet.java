@@ -0,0 +1,79 @@
+package by.koronatech;
+
+/**
+ * Open-addressing set of {@code int}s with linear probing. Zero marks a free slot, so the value
+ * zero is tracked by a flag.
+ */
+public class IntHashSet {
+
+    public static final int INITIAL_CAPACITY = 1 << 10;
+    public static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * Returns {@code false} if the value was already present, like {@link java.util.Set#add}.
+     */
+    public boolean add(int value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            return true;
+        }
+        int slot = slot(value, mask);
+        while (slots[slot] != 0) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int slot = slot(value, mask);
+        while (slots[slot] != 0) {
+            if (slots[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    private void grow() {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        mask = slots.length - 1;
+        for (int value : old) {
+            if (value != 0) {
+                int slot = slot(value, mask);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    static int slot(int value, int mask) {
+        int hash = value * GOLDEN_RATIO;
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
@@ -0,0 +1,86 @@
+package by.koronatech;
+
+/**
+ * Open-addressing {@code int -> long} map with linear probing; key zero is kept outside the table.
+ */
+public class IntLongHashMap {
+
+    public static final int INITIAL_CAPACITY = 1 << 10;
+
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+    private int size;
+    private boolean containsZero;
+    private long zeroValue;
+
+    public void put(int key, long value) {
+        if (key == 0) {
+            containsZero = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = IntHashSet.slot(key, mask);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? containsZero : find(key) >= 0;
+    }
+
+    public long getOrDefault(int key, long defaultValue) {
+        if (key == 0) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public void clear() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new long[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+        size = 0;
+        containsZero = false;
+    }
+
+    private int find(int key) {
+        int slot = IntHashSet.slot(key, mask);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = IntHashSet.slot(oldKeys[i], mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package by.koronatech;
+
+/**
+ * Open-addressing set of {@code long}s, the {@code long} counterpart of {@link IntHashSet}.
+ */
+public class LongHashSet {
+
+    public static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+    private int size;
+    private boolean containsZero;
+
+    /**
+     * Returns {@code false} if the value was already present, like {@link java.util.Set#add}.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            return true;
+        }
+        int slot = slot(value, mask);
+        while (slots[slot] != 0) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int slot = slot(value, mask);
+        while (slots[slot] != 0) {
+            if (slots[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        mask = slots.length - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int slot = slot(value, mask);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        return IntHashSet.slot((int) (value ^ value >>> 32), mask);
+    }
+}
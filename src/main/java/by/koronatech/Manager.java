@@ -1,5 +1,6 @@
 package by.koronatech;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -10,11 +11,25 @@ import java.math.BigDecimal;
 public class Manager {
     private int id;
     private String name;
+    @Getter(AccessLevel.NONE)
     private BigDecimal salary;
+    private long salaryCents;
     private String department;
 
+    public Manager(int id, String name, BigDecimal salary, String department) {
+        this(id, name, salary, Salaries.NO_CENTS, department);
+    }
+
+    public BigDecimal getSalary() {
+        return salary != null ? salary : Salaries.toBigDecimal(salaryCents);
+    }
+
+    public boolean hasCents() {
+        return salary == null;
+    }
+
     @Override
     public String toString() {
-        return String.format("Manager,%d,%s,%.2f", id, name, salary);
+        return String.format("Manager,%d,%s,%.2f", id, name, getSalary());
     }
 }
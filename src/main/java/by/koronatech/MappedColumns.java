@@ -0,0 +1,102 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only columns of a binary file, mapped in segments so columns of any length can be read.
+ */
+final class MappedColumns {
+
+    public static final int SEGMENT_SHIFT = 27;
+    public static final int SEGMENT_ENTRIES = 1 << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private long position;
+
+    MappedColumns(FileChannel channel, long position) {
+        this.channel = channel;
+        this.position = position;
+    }
+
+    long position() {
+        return position;
+    }
+
+    IntColumn ints(int length) throws IOException {
+        ByteBuffer[] mapped = map(length, Integer.BYTES);
+        IntBuffer[] segments = new IntBuffer[mapped.length];
+        for (int i = 0; i < mapped.length; i++) {
+            segments[i] = mapped[i].asIntBuffer();
+        }
+        return new IntColumn(segments, length);
+    }
+
+    LongColumn longs(int length) throws IOException {
+        ByteBuffer[] mapped = map(length, Long.BYTES);
+        LongBuffer[] segments = new LongBuffer[mapped.length];
+        for (int i = 0; i < mapped.length; i++) {
+            segments[i] = mapped[i].asLongBuffer();
+        }
+        return new LongColumn(segments);
+    }
+
+    ByteColumn bytes(int length) throws IOException {
+        return new ByteColumn(map(length, Byte.BYTES));
+    }
+
+    private ByteBuffer[] map(int length, int entryBytes) throws IOException {
+        ByteBuffer[] segments = new ByteBuffer[(int) (((long) length + SEGMENT_ENTRIES - 1) >> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long entries = Math.min(SEGMENT_ENTRIES, length - ((long) i << SEGMENT_SHIFT));
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, entries * entryBytes);
+            position += entries * entryBytes;
+        }
+        return segments;
+    }
+
+    static class IntColumn {
+        private final IntBuffer[] segments;
+        private final int size;
+
+        IntColumn(IntBuffer[] segments, int size) {
+            this.segments = segments;
+            this.size = size;
+        }
+
+        int get(int index) {
+            return segments[index >>> SEGMENT_SHIFT].get(index & (SEGMENT_ENTRIES - 1));
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    static class LongColumn {
+        private final LongBuffer[] segments;
+
+        LongColumn(LongBuffer[] segments) {
+            this.segments = segments;
+        }
+
+        long get(int index) {
+            return segments[index >>> SEGMENT_SHIFT].get(index & (SEGMENT_ENTRIES - 1));
+        }
+    }
+
+    static class ByteColumn {
+        private final ByteBuffer[] segments;
+
+        ByteColumn(ByteBuffer[] segments) {
+            this.segments = segments;
+        }
+
+        byte get(int index) {
+            return segments[index >>> SEGMENT_SHIFT].get(index & (SEGMENT_ENTRIES - 1));
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Scans a memory-mapped input file in place, creating strings and decimals only for records that
+ * get that far. Yields the same {@link ParsedLine}s as the {@link Utf8LineReader} path, malformed
+ * UTF-8 included. Not thread-safe.
+ */
+public class MappedFileScanner {
+
+    public static final int WINDOW_SIZE = 1 << 30;
+    public static final byte LINE_FEED = '\n';
+    public static final byte CARRIAGE_RETURN = '\r';
+    public static final byte COMMA = ',';
+    public static final int SPACE = ' ';
+    public static final long NOT_A_NUMBER = Long.MIN_VALUE;
+    public static final int BOUNDARY_PROBE_SIZE = 1 << 12;
+
+    private static final byte[] MANAGER_BYTES = Parser.TYPE_MANAGER.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPLOYEE_BYTES = Parser.TYPE_EMPLOYEE.getBytes(StandardCharsets.US_ASCII);
+
+    private final boolean fixedPoint;
+    private final StringDictionary dictionary;
+    private final int[] fieldStart = new int[Parser.EXPECTED_PARTS_COUNT];
+    private final int[] fieldEnd = new int[Parser.EXPECTED_PARTS_COUNT];
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private byte[] scratch = new byte[256];
+    private CharBuffer decoded = CharBuffer.allocate(256);
+    private BigDecimal salary;
+    private long salaryCents;
+
+    public MappedFileScanner(boolean fixedPoint, StringDictionary dictionary) {
+        this.fixedPoint = fixedPoint;
+        this.dictionary = dictionary;
+    }
+
+    public void scan(Path file, Consumer<ParsedLine> sink) throws IOException {
+        scan(file, 0, Long.MAX_VALUE, sink);
+    }
+
+    /**
+     * Both ends must lie on line boundaries, see {@link #lineBoundary}.
+     */
+    public void scan(Path file, long from, long to, Consumer<ParsedLine> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), to);
+            long position = from;
+            while (position < size) {
+                long remaining = size - position;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WINDOW_SIZE, remaining));
+                int end = buffer.limit();
+                if (remaining > end) {
+                    int lastLineEnd = lastLineEnd(buffer, end);
+                    if (lastLineEnd > 0) {
+                        end = lastLineEnd;
+                    }
+                }
+                scanWindow(buffer, end, sink);
+                position += end;
+            }
+        }
+    }
+
+    /**
+     * The position just past the first line break at or after {@code position}, or the file size.
+     */
+    public static long lineBoundary(FileChannel channel, long position) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        long size = channel.size();
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = probe.get(i);
+                if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private int lastLineEnd(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            byte b = buffer.get(i);
+            if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private void scanWindow(ByteBuffer buffer, int end, Consumer<ParsedLine> sink) throws CharacterCodingException {
+        int lineStart = 0;
+        boolean ascii = true;
+        for (int i = 0; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == LINE_FEED || b == CARRIAGE_RETURN) {
+                scanLine(buffer, lineStart, i, ascii, sink);
+                lineStart = i + 1;
+                ascii = true;
+            } else if (b < 0) {
+                ascii = false;
+            }
+        }
+        if (lineStart < end) {
+            scanLine(buffer, lineStart, end, ascii, sink);
+        }
+    }
+
+    private void scanLine(ByteBuffer buffer, int from, int to, boolean ascii, Consumer<ParsedLine> sink)
+            throws CharacterCodingException {
+        if (!ascii) {
+            checkUtf8(buffer, from, to);
+        }
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return;
+        }
+        sink.accept(parseRecord(buffer, from, to).withSource(buffer, from, to - from));
+    }
+
+    private void checkUtf8(ByteBuffer buffer, int from, int to) throws CharacterCodingException {
+        if (decoded.capacity() < to - from) {
+            decoded = CharBuffer.allocate(Math.max(to - from, decoded.capacity() * 2));
+        }
+        decoded.clear();
+        CoderResult result = decoder.reset().decode(buffer.slice(from, to - from), decoded, true);
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    private ParsedLine parseRecord(ByteBuffer buffer, int from, int to) {
+        if (!splitFields(buffer, from, to)) {
+            return ParsedLine.invalid(null, ErrorCategory.MALFORMED_LINE);
+        }
+
+        long id = parseInt(buffer, 1);
+        if (id == NOT_A_NUMBER) {
+            return ParsedLine.invalid(null, ErrorCategory.BAD_ID);
+        }
+
+        if (fieldEquals(buffer, 0, MANAGER_BYTES)) {
+            if (!parseSalary(buffer)) {
+                return ParsedLine.rejected((int) id, null, ErrorCategory.BAD_SALARY);
+            }
+            return ParsedLine.manager((int) id, internField(buffer, 2), salary, salaryCents,
+                    internField(buffer, 4), null);
+        } else if (fieldEquals(buffer, 0, EMPLOYEE_BYTES)) {
+            long managerId = parseInt(buffer, 4);
+            if (managerId == NOT_A_NUMBER) {
+                return ParsedLine.rejected((int) id, null, ErrorCategory.BAD_MANAGER_ID);
+            }
+            if (!parseSalary(buffer)) {
+                return ParsedLine.rejected((int) id, null, ErrorCategory.BAD_SALARY);
+            }
+            return ParsedLine.employee((int) id, internField(buffer, 2), salary, salaryCents,
+                    (int) managerId, null);
+        } else {
+            return ParsedLine.rejected((int) id, null, ErrorCategory.UNKNOWN_TYPE);
+        }
+    }
+
+    /**
+     * Mirrors {@code line.split(",")} with trimmed fields: exactly five once trailing empty fields
+     * are dropped.
+     */
+    private boolean splitFields(ByteBuffer buffer, int from, int to) {
+        int field = 0;
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == COMMA) {
+                if (field == Parser.EXPECTED_PARTS_COUNT - 1) {
+                    if (!onlyCommas(buffer, i, to)) {
+                        return false;
+                    }
+                    to = i;
+                    break;
+                }
+                setField(buffer, field++, start, i);
+                start = i + 1;
+            }
+        }
+        if (field != Parser.EXPECTED_PARTS_COUNT - 1 || start == to) {
+            return false;
+        }
+        setField(buffer, field, start, to);
+        return true;
+    }
+
+    private boolean onlyCommas(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != COMMA) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setField(ByteBuffer buffer, int field, int from, int to) {
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        fieldStart[field] = from;
+        fieldEnd[field] = to;
+    }
+
+    private boolean fieldEquals(ByteBuffer buffer, int field, byte[] expected) {
+        int from = fieldStart[field];
+        if (fieldEnd[field] - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(from + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Non-ASCII input, which may hold Unicode digits, goes to {@link Integer#parseInt(String)}.
+     */
+    private long parseInt(ByteBuffer buffer, int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        if (from == to) {
+            return NOT_A_NUMBER;
+        }
+
+        boolean negative = false;
+        byte first = buffer.get(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return NOT_A_NUMBER;
+            }
+        }
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) {
+                return parseIntSlow(buffer, field);
+            }
+            if (b < '0' || b > '9') {
+                return NOT_A_NUMBER;
+            }
+            value = value * 10 + (b - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return NOT_A_NUMBER;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE || value < Integer.MIN_VALUE ? NOT_A_NUMBER : value;
+    }
+
+    private long parseIntSlow(ByteBuffer buffer, int field) {
+        try {
+            return Integer.parseInt(decodeField(buffer, field));
+        } catch (NumberFormatException e) {
+            return NOT_A_NUMBER;
+        }
+    }
+
+    private boolean parseSalary(ByteBuffer buffer) {
+        salaryCents = fixedPoint ? fixedPointCents(buffer) : Salaries.NO_CENTS;
+        salary = salaryCents == Salaries.NO_CENTS ? Parser.parseSalary(decodeField(buffer, 3)) : null;
+        return salaryCents != Salaries.INVALID_CENTS && (salaryCents != Salaries.NO_CENTS || salary != null);
+    }
+
+    private long fixedPointCents(ByteBuffer buffer) {
+        long cents = parseCents(buffer, fieldStart[3], fieldEnd[3]);
+        if (cents != Salaries.NO_CENTS) {
+            return cents > 0 ? cents : Salaries.INVALID_CENTS;
+        }
+        return Parser.fixedPointCents(decodeField(buffer, 3));
+    }
+
+    private long parseCents(ByteBuffer buffer, int from, int to) {
+        long units = 0;
+        int i = from;
+        boolean digits = false;
+        for (; i < to && buffer.get(i) != Salaries.DECIMAL_POINT; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || units > (Long.MAX_VALUE - digit) / 10) {
+                return Salaries.NO_CENTS;
+            }
+            units = units * 10 + digit;
+            digits = true;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        for (i++; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Salaries.NO_CENTS;
+            }
+            if (fractionDigits < Salaries.CENTS_SCALE) {
+                fraction = fraction * 10 + digit;
+                fractionDigits++;
+            } else if (digit != 0) {
+                return Salaries.NO_CENTS;
+            }
+            digits = true;
+        }
+        if (!digits) {
+            return Salaries.NO_CENTS;
+        }
+        for (; fractionDigits < Salaries.CENTS_SCALE; fractionDigits++) {
+            fraction *= 10;
+        }
+        return Salaries.toCents(units, fraction);
+    }
+
+    private String internField(ByteBuffer buffer, int field) {
+        return dictionary.get(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+    }
+
+    private String decodeField(ByteBuffer buffer, int field) {
+        int from = fieldStart[field];
+        int length = fieldEnd[field] - from;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isBlank(byte b) {
+        return b >= 0 && b <= SPACE;
+    }
+}
@@ -0,0 +1,383 @@
+package by.koronatech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the department files for the {@code query} command: records by id and by salary, as byte
+ * offsets into the plain department files. A file whose size no longer matches fails the query.
+ */
+public final class OutputIndex {
+
+    public static final String FILE_NAME = ".index";
+    public static final int MAGIC = 0x53424958;
+    public static final int FORMAT_VERSION = 1;
+    public static final int INITIAL_RECORDS = 16;
+    public static final int LINE_BUFFER_SIZE = 256;
+    public static final int WRITE_BUFFER_SIZE = 1 << 16;
+    public static final String INDEX_NOT_FOUND =
+            "Индекс не найден, запустите обработку с параметром index: ";
+    public static final String UNSUPPORTED_INDEX = "Неподдерживаемый формат индекса: ";
+    public static final String STALE_INDEX = "Индекс не соответствует файлу департамента: ";
+
+    private final Path outputDir;
+    private final String fileSuffix;
+    private final String[] names;
+    private final Map<String, Integer> departmentsByName = new HashMap<>();
+    private final Map<Integer, Integer> departmentsByManager = new HashMap<>();
+    private final MappedColumns.LongColumn fileSizes;
+    private final MappedColumns.IntColumn firstSalaryEntries;
+    private final MappedColumns.IntColumn recordCounts;
+    private final MappedColumns.IntColumn ids;
+    private final MappedColumns.IntColumn idDepartments;
+    private final MappedColumns.LongColumn idOffsets;
+    private final MappedColumns.LongColumn salaryCents;
+    private final MappedColumns.LongColumn salaryOffsets;
+
+    /**
+     * Positions of the records of one department file, manager first.
+     */
+    public static class Records {
+        private int[] ids = new int[INITIAL_RECORDS];
+        private long[] cents = new long[INITIAL_RECORDS];
+        private long[] offsets = new long[INITIAL_RECORDS];
+        private int size;
+        private long fileSize;
+
+        public void clear() {
+            size = 0;
+            fileSize = 0;
+        }
+
+        public void add(int id, long salaryCents, long offset) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                cents = Arrays.copyOf(cents, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ids[size] = id;
+            cents[size] = salaryCents;
+            offsets[size] = offset;
+            size++;
+        }
+
+        public void setFileSize(long fileSize) {
+            this.fileSize = fileSize;
+        }
+    }
+
+    private OutputIndex(Path outputDir, String fileSuffix, FileChannel channel, DataInputStream header)
+            throws IOException {
+        this.outputDir = outputDir;
+        this.fileSuffix = fileSuffix;
+        int departmentCount = header.readInt();
+        int recordCount = header.readInt();
+        // Magic, version and both counts.
+        long position = 4L * Integer.BYTES;
+        names = new String[departmentCount];
+        for (int i = 0; i < departmentCount; i++) {
+            byte[] name = new byte[header.readInt()];
+            header.readFully(name);
+            position += Integer.BYTES + name.length;
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            departmentsByName.put(names[i], i);
+        }
+        MappedColumns columns = new MappedColumns(channel, position);
+        MappedColumns.IntColumn managerIds = columns.ints(departmentCount);
+        for (int i = 0; i < departmentCount; i++) {
+            departmentsByManager.put(managerIds.get(i), i);
+        }
+        fileSizes = columns.longs(departmentCount);
+        firstSalaryEntries = columns.ints(departmentCount);
+        recordCounts = columns.ints(departmentCount);
+        ids = columns.ints(recordCount);
+        idDepartments = columns.ints(recordCount);
+        idOffsets = columns.longs(recordCount);
+        salaryCents = columns.longs(recordCount);
+        salaryOffsets = columns.longs(recordCount);
+    }
+
+    public static void write(Path file, Map<String, Records> departments) throws IOException {
+        List<Map.Entry<String, Records>> sorted = new ArrayList<>(departments.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+        int recordCount = 0;
+        for (Map.Entry<String, Records> entry : sorted) {
+            recordCount += entry.getValue().size;
+        }
+
+        // Ids may be negative; the record number in the low half keeps equal ids in file order.
+        long[] idKeys = new long[recordCount];
+        int[] recordDepartments = new int[recordCount];
+        long[] recordOffsets = new long[recordCount];
+        int record = 0;
+        for (int d = 0; d < sorted.size(); d++) {
+            Records records = sorted.get(d).getValue();
+            for (int i = 0; i < records.size; i++, record++) {
+                idKeys[record] = (long) records.ids[i] << Integer.SIZE | record;
+                recordDepartments[record] = d;
+                recordOffsets[record] = records.offsets[i];
+            }
+        }
+        Arrays.sort(idKeys);
+
+        try (ColumnWriter out = new ColumnWriter(file)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(sorted.size());
+            out.writeInt(recordCount);
+
+            for (Map.Entry<String, Records> entry : sorted) {
+                out.writeString(entry.getKey());
+            }
+            for (Map.Entry<String, Records> entry : sorted) {
+                out.writeInt(entry.getValue().ids[0]);
+            }
+            for (Map.Entry<String, Records> entry : sorted) {
+                out.writeLong(entry.getValue().fileSize);
+            }
+            int firstEntry = 0;
+            for (Map.Entry<String, Records> entry : sorted) {
+                out.writeInt(firstEntry);
+                firstEntry += entry.getValue().size;
+            }
+            for (Map.Entry<String, Records> entry : sorted) {
+                out.writeInt(entry.getValue().size);
+            }
+
+            for (long key : idKeys) {
+                out.writeInt((int) (key >> Integer.SIZE));
+            }
+            for (long key : idKeys) {
+                out.writeInt(recordDepartments[(int) key]);
+            }
+            for (long key : idKeys) {
+                out.writeLong(recordOffsets[(int) key]);
+            }
+
+            // Salaries are positive, so the radix sort applies; it is stable, so equal salaries
+            // keep their file order.
+            List<int[]> salaryOrders = new ArrayList<>(sorted.size());
+            for (Map.Entry<String, Records> entry : sorted) {
+                Records records = entry.getValue();
+                salaryOrders.add(records.size > 0
+                        ? EmployeeSorter.radixSort(Arrays.copyOf(records.cents, records.size))
+                        : new int[0]);
+            }
+            for (int d = 0; d < sorted.size(); d++) {
+                Records records = sorted.get(d).getValue();
+                for (int i : salaryOrders.get(d)) {
+                    out.writeLong(records.cents[i]);
+                }
+            }
+            for (int d = 0; d < sorted.size(); d++) {
+                Records records = sorted.get(d).getValue();
+                for (int i : salaryOrders.get(d)) {
+                    out.writeLong(records.offsets[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cents as the department file shows them, or {@link Long#MAX_VALUE} when they do not fit a
+     * {@code long}.
+     */
+    public static long indexCents(boolean hasCents, long cents, BigDecimal salary) {
+        if (hasCents) {
+            return cents;
+        }
+        long rounded = Salaries.toCents(salary.setScale(Salaries.CENTS_SCALE, RoundingMode.HALF_EVEN));
+        return rounded == Salaries.NO_CENTS ? Long.MAX_VALUE : rounded;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the directory has no index
+     */
+    public static OutputIndex read(Path outputDir, String fileSuffix) throws IOException {
+        Path file = outputDir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException(INDEX_NOT_FOUND + outputDir);
+        }
+        // Mappings stay valid once the channel is closed.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION) {
+                throw new IOException(UNSUPPORTED_INDEX + file);
+            }
+            return new OutputIndex(outputDir, fileSuffix, channel, header);
+        }
+    }
+
+    public String findById(int id) throws IOException {
+        int low = 0;
+        int high = ids.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids.get(middle) < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == ids.size() || ids.get(low) != id) {
+            return null;
+        }
+        int department = idDepartments.get(low);
+        try (FileChannel channel = openDepartment(department)) {
+            return readLine(channel, idOffsets.get(low));
+        }
+    }
+
+    public List<String> reportsOf(int managerId) throws IOException {
+        Integer department = departmentsByManager.get(managerId);
+        if (department == null) {
+            return List.of();
+        }
+        // Everyone in the file after the manager's line reports to the manager.
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Channels.newInputStream(openDepartment(department)), StandardCharsets.UTF_8))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Records with cents in {@code [minCents, maxCents]}, manager included, by salary and then in
+     * file order.
+     */
+    public List<String> salaryRange(String departmentName, long minCents, long maxCents) throws IOException {
+        Integer department = departmentsByName.get(departmentName);
+        if (department == null) {
+            return List.of();
+        }
+        int low = firstSalaryEntries.get(department);
+        int end = low + recordCounts.get(department);
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (salaryCents.get(middle) < minCents) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<String> lines = new ArrayList<>();
+        try (FileChannel channel = openDepartment(department)) {
+            for (int i = low; i < end && salaryCents.get(i) <= maxCents; i++) {
+                lines.add(readLine(channel, salaryOffsets.get(i)));
+            }
+        }
+        return lines;
+    }
+
+    private FileChannel openDepartment(int department) throws IOException {
+        Path file = outputDir.resolve(names[department] + fileSuffix);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() != fileSizes.get(department)) {
+            channel.close();
+            throw new IllegalArgumentException(STALE_INDEX + file);
+        }
+        return channel;
+    }
+
+    private static String readLine(FileChannel channel, long offset) throws IOException {
+        ByteBuffer line = ByteBuffer.allocate(LINE_BUFFER_SIZE);
+        while (true) {
+            int read = channel.read(line, offset + line.position());
+            for (int i = line.position() - Math.max(read, 0); i < line.position(); i++) {
+                if (line.get(i) == '\n') {
+                    return decodeLine(line, i);
+                }
+            }
+            if (read < 0) {
+                return decodeLine(line, line.position());
+            }
+            if (!line.hasRemaining()) {
+                line = ByteBuffer.allocate(line.capacity() * 2).put(line.flip());
+            }
+        }
+    }
+
+    private static String decodeLine(ByteBuffer line, int end) {
+        if (end > 0 && line.get(end - 1) == '\r') {
+            end--;
+        }
+        return new String(line.array(), 0, end, StandardCharsets.UTF_8);
+    }
+
+    private static class ColumnWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+        ColumnWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            for (int written = 0; written < bytes.length; ) {
+                ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
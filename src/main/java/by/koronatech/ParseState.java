@@ -0,0 +1,86 @@
+package by.koronatech;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything accumulated while the input files are applied in order. Employees wait in per-manager
+ * buckets until the parse is over. The fingerprint of each accepted employee line is kept by id, so
+ * an exact repeat can be withdrawn from the errors once its manager is found.
+ */
+@Getter
+public class ParseState {
+    private final Map<String, Department> departments = new HashMap<>();
+    private final Map<Integer, Department> managerDepartments = new HashMap<>();
+    private final Map<Integer, Department> pendingEmployees = new HashMap<>();
+    private final ErrorSink errors;
+    private final IntHashSet usedIds = new IntHashSet();
+    private final IntLongHashMap employeeLineFingerprints = new IntLongHashMap();
+    private final Map<Integer, Set<Long>> withdrawableErrors = new HashMap<>();
+    private final Map<ErrorCategory, Long> errorCounts = new EnumMap<>(ErrorCategory.class);
+    private long recordCount;
+
+    public ParseState() {
+        this(new ErrorSet());
+    }
+
+    public ParseState(ErrorSink errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Buckets whose manager never showed up are counted as {@link ErrorCategory#MISSING_MANAGER}.
+     */
+    public void resolvePendingEmployees() throws IOException {
+        for (Map.Entry<Integer, Department> entry : pendingEmployees.entrySet()) {
+            Department target = managerDepartments.get(entry.getKey());
+            Department bucket = entry.getValue();
+            Set<Long> withdrawable = withdrawableErrors.getOrDefault(entry.getKey(), Set.of());
+            errors.settleWithdrawable(withdrawable, target != null);
+            if (target != null) {
+                target.getEmployees().addAll(bucket.getEmployees());
+                target.getStreamedSalaries().merge(bucket.getStreamedSalaries());
+                if (!bucket.getSpilledRuns().isEmpty()) {
+                    target.getSpilledRuns().addAll(bucket.getSpilledRuns());
+                    target.setSpillOrder(bucket.getSpillOrder());
+                }
+            } else {
+                countErrors(ErrorCategory.MISSING_MANAGER,
+                        bucket.getEmployees().size() + bucket.getStreamedSalaries().getCount());
+            }
+        }
+        pendingEmployees.clear();
+        withdrawableErrors.clear();
+        employeeLineFingerprints.clear();
+    }
+
+    public void logWithdrawableError(int managerId, long fingerprint, String line) {
+        withdrawableErrors.computeIfAbsent(managerId, k -> new LinkedHashSet<>()).add(fingerprint);
+        try {
+            errors.addWithdrawable(fingerprint, line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void countRecord() {
+        recordCount++;
+    }
+
+    public void countError(ErrorCategory category) {
+        countErrors(category, 1);
+    }
+
+    private void countErrors(ErrorCategory category, long count) {
+        if (count > 0) {
+            errorCounts.merge(category, count, Long::sum);
+        }
+    }
+}
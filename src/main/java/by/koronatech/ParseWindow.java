@@ -0,0 +1,55 @@
+package by.koronatech;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Reads at most {@link App#PARSE_WINDOW} inputs at a time and merges them in submission order, so
+ * ids resolve as in a sequential run. After a read error the later parts of that input are dropped.
+ */
+public class ParseWindow {
+
+    private final Parser parser;
+    private final ParseState state;
+    private final Deque<Part> inFlight = new ArrayDeque<>();
+    private Object failedInput;
+
+    public ParseWindow(Parser parser, ParseState state) {
+        this.parser = parser;
+        this.state = state;
+    }
+
+    /**
+     * The parts of one input share {@code input} and come in order.
+     */
+    public void submit(Object input, Supplier<List<ParsedLine>> read) {
+        if (inFlight.size() == App.PARSE_WINDOW) {
+            mergeOldest();
+        }
+        inFlight.add(new Part(input, CompletableFuture.supplyAsync(PipelineMetrics.onWorker(read))));
+    }
+
+    public void finish() {
+        while (!inFlight.isEmpty()) {
+            mergeOldest();
+        }
+    }
+
+    private void mergeOldest() {
+        Part part = inFlight.poll();
+        List<ParsedLine> lines = part.lines().join();
+        if (part.input().equals(failedInput)) {
+            return;
+        }
+        parser.mergeLines(lines, state);
+        if (!lines.isEmpty() && lines.get(lines.size() - 1).getKind() == ParsedLine.Kind.READ_ERROR) {
+            failedInput = part.input();
+        }
+    }
+
+    private record Part(Object input, CompletableFuture<List<ParsedLine>> lines) {
+    }
+}
@@ -0,0 +1,120 @@
+package by.koronatech;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+@Getter
+public class ParsedLine {
+
+    public enum Kind {
+        INVALID,
+        REJECTED,
+        MANAGER,
+        EMPLOYEE,
+        READ_ERROR
+    }
+
+    public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    public static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Kind kind;
+    private final int id;
+    private final String name;
+    private final BigDecimal salary;
+    private final long salaryCents;
+    private final String department;
+    private final int managerId;
+    private final ErrorCategory errorCategory;
+    private String line;
+    @Getter(AccessLevel.NONE)
+    private ByteBuffer source;
+    @Getter(AccessLevel.NONE)
+    private int offset;
+    @Getter(AccessLevel.NONE)
+    private int length;
+
+    private ParsedLine(Kind kind, String line, int id, String name, BigDecimal salary, long salaryCents,
+                       String department, int managerId, ErrorCategory errorCategory) {
+        this.kind = kind;
+        this.line = line;
+        this.id = id;
+        this.name = name;
+        this.salary = salary;
+        this.salaryCents = salaryCents;
+        this.department = department;
+        this.managerId = managerId;
+        this.errorCategory = errorCategory;
+    }
+
+    public static ParsedLine invalid(String line, ErrorCategory errorCategory) {
+        return new ParsedLine(Kind.INVALID, line, 0, null, null, Salaries.NO_CENTS, null, 0, errorCategory);
+    }
+
+    public static ParsedLine rejected(int id, String line, ErrorCategory errorCategory) {
+        return new ParsedLine(Kind.REJECTED, line, id, null, null, Salaries.NO_CENTS, null, 0, errorCategory);
+    }
+
+    public static ParsedLine manager(int id, String name, BigDecimal salary, long salaryCents,
+                                     String department, String line) {
+        return new ParsedLine(Kind.MANAGER, line, id, name, salary, salaryCents, department, 0, null);
+    }
+
+    public static ParsedLine employee(int id, String name, BigDecimal salary, long salaryCents,
+                                      int managerId, String line) {
+        return new ParsedLine(Kind.EMPLOYEE, line, id, name, salary, salaryCents, null, managerId, null);
+    }
+
+    public static ParsedLine readError(String message) {
+        return new ParsedLine(Kind.READ_ERROR, message, 0, null, null, Salaries.NO_CENTS, null, 0,
+                ErrorCategory.READ_ERROR);
+    }
+
+    /**
+     * The text is decoded from the mapped file only when asked for.
+     */
+    public ParsedLine withSource(ByteBuffer source, int offset, int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    public String getLine() {
+        if (line == null && source != null) {
+            byte[] bytes = new byte[length];
+            source.get(offset, bytes);
+            line = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return line;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units of the line.
+     */
+    public long getLineFingerprint() {
+        if (line == null && source != null) {
+            long hash = FNV_OFFSET_BASIS;
+            for (int i = offset; i < offset + length; i++) {
+                byte b = source.get(i);
+                if (b < 0) {
+                    return fingerprint(getLine());
+                }
+                hash = (hash ^ b) * FNV_PRIME;
+            }
+            return hash;
+        }
+        return fingerprint(line);
+    }
+
+    public static long fingerprint(String line) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < line.length(); i++) {
+            hash = (hash ^ line.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
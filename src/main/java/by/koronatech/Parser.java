@@ -1,150 +1,460 @@
 package by.koronatech;
 
-import java.io.BufferedReader;
+import lombok.Setter;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class Parser {
 
     public static final int EXPECTED_PARTS_COUNT = 5;
     public static final String CSV_DELIMITER = ",";
-    public static final String TEMP_DEPT_PREFIX = "TEMP_";
     public static final String TYPE_MANAGER = "Manager";
     public static final String TYPE_EMPLOYEE = "Employee";
     public static final String FILE_READ_ERROR = "Ошибка чтения файла ";
+    public static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+    public static final int LINE_OPTION_MEMORY_MAPPED = 1;
+    public static final int LINE_OPTION_FIXED_POINT = 1 << 1;
 
-    public Map<Employee, String> parseFile(
-            Path file,
-            Map<String, Department> departments,
-            Set<String> errors,
-            Set<Integer> usedIds) {
+    @Setter
+    private boolean memoryMapped;
+    @Setter
+    private boolean fixedPoint;
+    @Setter
+    private boolean streamingStats;
+    @Setter
+    private boolean columnar;
+    @Setter
+    private boolean offHeap;
+    @Setter
+    private ExternalSorter externalSorter;
+    /**
+     * Salaries that are streamed or spilled feed the distribution while parsing.
+     */
+    @Setter
+    private DistributionOptions distributionOptions;
+    @Setter
+    private ResourceLimits limits = ResourceLimits.UNLIMITED;
+    /**
+     * Borrowed by each file or chunk scan, so they stay warm across files and batches.
+     */
+    private final Queue<StringDictionary> idleDictionaries = new ConcurrentLinkedQueue<>();
+    private final List<StringDictionary> allDictionaries = new CopyOnWriteArrayList<>();
 
-        Map<Employee, String> employeeLines = new HashMap<>();
+    public long getDictionaryLookups() {
+        return allDictionaries.stream().mapToLong(StringDictionary::getLookups).sum();
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(file)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                parseLine(line.trim(), departments, errors, employeeLines, usedIds);
+    public long getDictionaryHits() {
+        return allDictionaries.stream().mapToLong(StringDictionary::getHits).sum();
+    }
+
+    public void resetDictionaryCounters() {
+        allDictionaries.forEach(StringDictionary::resetCounters);
+    }
+
+    /**
+     * Lines read under other {@code LINE_OPTION_*} flags must not be reused.
+     */
+    public int lineOptions() {
+        return (memoryMapped ? LINE_OPTION_MEMORY_MAPPED : 0) | (fixedPoint ? LINE_OPTION_FIXED_POINT : 0);
+    }
+
+    public void parseFile(Path file, ParseState state) {
+        scanFile(file, parsed -> accept(parsed, state));
+    }
+
+    /**
+     * Touches no shared state; the lines are applied later with {@link #mergeLines}, in file order.
+     */
+    public List<ParsedLine> readFile(Path file) {
+        List<ParsedLine> parsedLines = new ArrayList<>();
+        scanFile(file, parsedLines::add);
+        return parsedLines;
+    }
+
+    public void parseStream(String sourceName, InputStream in, ParseState state) {
+        scanStream(sourceName, in, parsed -> accept(parsed, state));
+    }
+
+    public List<ParsedLine> readStream(String sourceName, InputStream in) {
+        List<ParsedLine> parsedLines = new ArrayList<>();
+        scanStream(sourceName, in, parsedLines::add);
+        return parsedLines;
+    }
+
+    /**
+     * Line-aligned chunks of at least {@code chunkSize} bytes; a compressed file, or one that
+     * cannot be opened, is one chunk.
+     */
+    public List<FileChunk> splitFile(Path file, long chunkSize) {
+        if (Compression.isCompressed(file)) {
+            return List.of(FileChunk.wholeFile(file));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<FileChunk> chunks = new ArrayList<>();
+            long from = 0;
+            while (from < size) {
+                long to = size - from <= chunkSize ? size : MappedFileScanner.lineBoundary(channel, from + chunkSize);
+                chunks.add(new FileChunk(file, from, to));
+                from = to;
             }
+            return chunks;
         } catch (IOException e) {
-            errors.add(FILE_READ_ERROR + file + ": " + e.getMessage());
+            return List.of(FileChunk.wholeFile(file));
         }
-
-        return employeeLines;
     }
 
-    private void parseLine(
-            String line,
-            Map<String, Department> departments,
-            Set<String> errors,
-            Map<Employee, String> employeeLines,
-            Set<Integer> usedIds) {
+    public List<ParsedLine> readChunk(FileChunk chunk) {
+        if (!memoryMapped || chunk.getFrom() == 0 && chunk.getTo() == FileChunk.END_OF_FILE) {
+            return readFile(chunk.getPath());
+        }
+        List<ParsedLine> parsedLines = new ArrayList<>();
+        StringDictionary dictionary = borrowDictionary();
+        try {
+            limits.withOpenFile(() -> new MappedFileScanner(fixedPoint, dictionary)
+                    .scan(chunk.getPath(), chunk.getFrom(), chunk.getTo(), parsedLines::add));
+        } catch (IOException e) {
+            parsedLines.add(ParsedLine.readError(readErrorMessage(chunk.getPath().toString(), e)));
+        } finally {
+            idleDictionaries.add(dictionary);
+        }
+        return parsedLines;
+    }
 
-        if (line.isEmpty()) return;
+    public void mergeLines(List<ParsedLine> parsedLines, ParseState state) {
+        for (ParsedLine parsed : parsedLines) {
+            accept(parsed, state);
+        }
+    }
 
-        String[] parts = line.split(CSV_DELIMITER);
-        if (parts.length != EXPECTED_PARTS_COUNT) {
-            errors.add(line);
+    private void scanFile(Path file, Consumer<ParsedLine> sink) {
+        if (memoryMapped && !Compression.isCompressed(file)) {
+            scanMappedFile(file, sink);
             return;
         }
+        try {
+            limits.withOpenFile(() -> {
+                try (Utf8LineReader reader = new Utf8LineReader(Compression.newInputStream(file))) {
+                    scanLines(reader, sink);
+                }
+            });
+        } catch (IOException e) {
+            sink.accept(ParsedLine.readError(readErrorMessage(file.toString(), e)));
+        }
+    }
+
+    private void scanStream(String sourceName, InputStream in, Consumer<ParsedLine> sink) {
+        try (Utf8LineReader reader = new Utf8LineReader(in)) {
+            scanLines(reader, sink);
+        } catch (IOException e) {
+            sink.accept(ParsedLine.readError(readErrorMessage(sourceName, e)));
+        }
+    }
+
+    private void scanLines(Utf8LineReader reader, Consumer<ParsedLine> sink) throws IOException {
+        StringDictionary dictionary = borrowDictionary();
+        LineFields fields = new LineFields();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ParsedLine parsed = parseLine(line.trim(), fields, dictionary);
+                if (parsed != null) {
+                    sink.accept(parsed);
+                }
+            }
+        } finally {
+            idleDictionaries.add(dictionary);
+        }
+    }
+
+    private StringDictionary borrowDictionary() {
+        StringDictionary dictionary = idleDictionaries.poll();
+        if (dictionary == null) {
+            dictionary = new StringDictionary();
+            allDictionaries.add(dictionary);
+        }
+        return dictionary;
+    }
+
+    private void scanMappedFile(Path file, Consumer<ParsedLine> sink) {
+        StringDictionary dictionary = borrowDictionary();
+        try {
+            limits.withOpenFile(() -> new MappedFileScanner(fixedPoint, dictionary).scan(file, sink));
+        } catch (IOException e) {
+            sink.accept(ParsedLine.readError(readErrorMessage(file.toString(), e)));
+        } finally {
+            idleDictionaries.add(dictionary);
+        }
+    }
+
+    private String readErrorMessage(String sourceName, IOException e) {
+        return FILE_READ_ERROR + sourceName + ": " + e.getMessage();
+    }
 
-        String type = parts[0].trim();
-        String idStr = parts[1].trim();
-        String name = parts[2].trim();
-        String salaryStr = parts[3].trim();
-        String deptOrManagerId = parts[4].trim();
+    /**
+     * Fields are read in place, so a known name or department costs no allocation.
+     */
+    private ParsedLine parseLine(String line, LineFields fields, StringDictionary dictionary) {
+        if (line.isEmpty()) return null;
+
+        if (!fields.split(line)) {
+            return ParsedLine.invalid(line, ErrorCategory.MALFORMED_LINE);
+        }
 
         int id;
         try {
-            id = Integer.parseInt(idStr);
+            id = fields.parseInt(line, 1);
         } catch (NumberFormatException e) {
-            errors.add(line);
-            return;
+            return ParsedLine.invalid(line, ErrorCategory.BAD_ID);
         }
 
-        if (!usedIds.add(id)) {
-            errors.add(line);
-            return;
+        if (fields.equals(line, 0, TYPE_MANAGER)) {
+            return parseManager(id, line, fields, dictionary);
+        } else if (fields.equals(line, 0, TYPE_EMPLOYEE)) {
+            return parseEmployee(id, line, fields, dictionary);
+        } else {
+            return ParsedLine.rejected(id, line, ErrorCategory.UNKNOWN_TYPE);
         }
+    }
 
-        if (TYPE_MANAGER.equals(type)) {
-            handleManager(id, name, salaryStr, deptOrManagerId, departments, errors, line);
-        } else if (TYPE_EMPLOYEE.equals(type)) {
-            handleEmployee(id, name, salaryStr, deptOrManagerId, departments, errors, employeeLines, line);
-        } else {
-            errors.add(line);
+    private ParsedLine parseManager(int id, String line, LineFields fields, StringDictionary dictionary) {
+        long salaryCents = fixedPoint ? fixedPointCents(line, fields.start[3], fields.end[3]) : Salaries.NO_CENTS;
+        BigDecimal salary = salaryCents == Salaries.NO_CENTS ? parseSalary(fields.get(line, 3)) : null;
+        if (salaryCents == Salaries.INVALID_CENTS || salaryCents == Salaries.NO_CENTS && salary == null) {
+            return ParsedLine.rejected(id, line, ErrorCategory.BAD_SALARY);
         }
+        return ParsedLine.manager(id, fields.intern(line, 2, dictionary), salary, salaryCents,
+                fields.intern(line, 4, dictionary), line);
     }
 
-    private void handleManager(
-            int id,
-            String name,
-            String salaryStr,
-            String departmentId,
-            Map<String, Department> departments,
-            Set<String> errors,
-            String originalLine) {
+    private ParsedLine parseEmployee(int id, String line, LineFields fields, StringDictionary dictionary) {
+        int managerId;
+        try {
+            managerId = fields.parseInt(line, 4);
+        } catch (NumberFormatException e) {
+            return ParsedLine.rejected(id, line, ErrorCategory.BAD_MANAGER_ID);
+        }
+
+        long salaryCents = fixedPoint ? fixedPointCents(line, fields.start[3], fields.end[3]) : Salaries.NO_CENTS;
+        BigDecimal salary = salaryCents == Salaries.NO_CENTS ? parseSalary(fields.get(line, 3)) : null;
+        if (salaryCents == Salaries.INVALID_CENTS || salaryCents == Salaries.NO_CENTS && salary == null) {
+            return ParsedLine.rejected(id, line, ErrorCategory.BAD_SALARY);
+        }
+        return ParsedLine.employee(id, fields.intern(line, 2, dictionary), salary, salaryCents, managerId, line);
+    }
 
-        BigDecimal salary = parseSalary(salaryStr, errors, originalLine);
-        if (salary == null) {
-            return;
+    private void accept(ParsedLine parsed, ParseState state) {
+        ErrorSink errors = state.getErrors();
+        state.countRecord();
+        switch (parsed.getKind()) {
+            case INVALID, READ_ERROR -> {
+                errors.add(parsed.getLine());
+                state.countError(parsed.getErrorCategory());
+            }
+            case REJECTED -> {
+                state.getUsedIds().add(parsed.getId());
+                errors.add(parsed.getLine());
+                state.countError(parsed.getErrorCategory());
+            }
+            case MANAGER -> {
+                if (!state.getUsedIds().add(parsed.getId())) {
+                    errors.add(parsed.getLine());
+                    state.countError(ErrorCategory.DUPLICATE_ID);
+                    return;
+                }
+                handleManager(parsed, state);
+            }
+            case EMPLOYEE -> {
+                if (!state.getUsedIds().add(parsed.getId())) {
+                    state.countError(ErrorCategory.DUPLICATE_ID);
+                    if (!logRepeatedLine(parsed, state)) {
+                        errors.add(parsed.getLine());
+                    }
+                    return;
+                }
+                if (streamingStats) {
+                    streamEmployee(parsed, state);
+                } else {
+                    handleEmployee(parsed, state);
+                }
+            }
         }
+    }
 
-        Department dept = departments.computeIfAbsent(departmentId, k -> new Department());
+    private void handleManager(ParsedLine parsed, ParseState state) {
+        String departmentId = parsed.getDepartment();
+        Department dept = state.getDepartments().computeIfAbsent(departmentId, k -> newDepartment());
         if (dept.getManager() != null) {
-            errors.add(originalLine);
+            state.getErrors().add(parsed.getLine());
+            state.countError(ErrorCategory.DUPLICATE_MANAGER);
             return;
         }
 
-        Manager manager = new Manager(id, name, salary, departmentId);
+        Manager manager = new Manager(parsed.getId(), parsed.getName(), parsed.getSalary(), parsed.getSalaryCents(),
+                departmentId);
         dept.setManager(manager);
+        state.getManagerDepartments().put(manager.getId(), dept);
     }
 
-    private void handleEmployee(
-            int id,
-            String name,
-            String salaryStr,
-            String managerIdStr,
-            Map<String, Department> departments,
-            Set<String> errors,
-            Map<Employee, String> employeeLines,
-            String originalLine) {
+    private void handleEmployee(ParsedLine parsed, ParseState state) {
+        int managerId = parsed.getManagerId();
+        Department bucket = pendingBucket(state, managerId);
+        List<Employee> employees = bucket.getEmployees();
+        if (employees instanceof EmployeeStore store) {
+            store.add(parsed.getId(), parsed.getName(), parsed.getSalary(), parsed.getSalaryCents(), managerId);
+        } else {
+            employees.add(new Employee(parsed.getId(), parsed.getName(), parsed.getSalary(), parsed.getSalaryCents(),
+                    managerId));
+        }
+        if (externalSorter != null) {
+            externalSorter.spillIfFull(bucket);
+        }
+        state.getEmployeeLineFingerprints().put(parsed.getId(), parsed.getLineFingerprint());
+    }
 
-        int managerId;
-        try {
-            managerId = Integer.parseInt(managerIdStr);
-        } catch (NumberFormatException e) {
-            errors.add(originalLine);
-            return;
+    private void streamEmployee(ParsedLine parsed, ParseState state) {
+        int managerId = parsed.getManagerId();
+        SalaryAccumulator salaries = pendingBucket(state, managerId).getStreamedSalaries();
+        if (parsed.getSalary() == null) {
+            salaries.add(parsed.getSalaryCents());
+        } else {
+            salaries.add(parsed.getSalary());
         }
+        state.getEmployeeLineFingerprints().put(parsed.getId(), parsed.getLineFingerprint());
+    }
 
-        BigDecimal salary = parseSalary(salaryStr, errors, originalLine);
-        if (salary == null) {
-            return;
+    private Department pendingBucket(ParseState state, int managerId) {
+        return state.getPendingEmployees().computeIfAbsent(managerId, k -> newDepartment());
+    }
+
+    private Department newDepartment() {
+        Department department = new Department();
+        if (distributionOptions != null) {
+            department.setStreamedSalaries(SalaryAccumulator.of(distributionOptions));
+        }
+        if (columnar) {
+            department.setEmployees(new EmployeeStore(offHeap));
         }
+        return department;
+    }
+
+    /**
+     * Returns {@code false} for a duplicate id that is not an exact repeat.
+     */
+    private boolean logRepeatedLine(ParsedLine parsed, ParseState state) {
+        IntLongHashMap fingerprints = state.getEmployeeLineFingerprints();
+        if (fingerprints.containsKey(parsed.getId())
+                && fingerprints.getOrDefault(parsed.getId(), 0) == parsed.getLineFingerprint()) {
+            state.logWithdrawableError(parsed.getManagerId(), parsed.getLineFingerprint(), parsed.getLine());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@link Salaries#INVALID_CENTS} for a salary that is not a positive number,
+     * {@link Salaries#NO_CENTS} for one that has to stay a {@code BigDecimal}.
+     */
+    static long fixedPointCents(String salaryStr) {
+        return fixedPointCents(salaryStr, 0, salaryStr.length());
+    }
 
-        Employee employee = new Employee(id, name, salary, managerId);
-        Department tempDept = departments.computeIfAbsent(TEMP_DEPT_PREFIX + managerId, k -> new Department());
-        tempDept.getEmployees().add(employee);
-        employeeLines.put(employee, originalLine);
+    private static long fixedPointCents(String line, int from, int to) {
+        long salaryCents = Salaries.parseCents(line, from, to);
+        if (salaryCents != Salaries.NO_CENTS) {
+            return salaryCents > 0 ? salaryCents : Salaries.INVALID_CENTS;
+        }
+        BigDecimal salary = parseSalary(line.substring(from, to));
+        return salary == null ? Salaries.INVALID_CENTS : Salaries.toCents(salary);
     }
 
-    private BigDecimal parseSalary(String salaryStr, Set<String> errors, String originalLine) {
+    static BigDecimal parseSalary(String salaryStr) {
         try {
             BigDecimal salary = new BigDecimal(salaryStr);
             if (salary.compareTo(BigDecimal.ZERO) <= 0) {
-                errors.add(originalLine);
                 return null;
             }
             return salary;
         } catch (NumberFormatException e) {
-            errors.add(originalLine);
             return null;
         }
     }
+
+    /**
+     * Bounds of the trimmed fields of one line, reused from line to line.
+     */
+    private static final class LineFields {
+        private final int[] start = new int[EXPECTED_PARTS_COUNT];
+        private final int[] end = new int[EXPECTED_PARTS_COUNT];
+
+        /**
+         * Mirrors {@code line.split(",")}: exactly five fields once trailing empty ones are dropped.
+         */
+        boolean split(String line) {
+            char delimiter = CSV_DELIMITER.charAt(0);
+            int field = 0;
+            int from = 0;
+            int to = line.length();
+            for (int i = 0; i < to; i++) {
+                if (line.charAt(i) == delimiter) {
+                    if (field == EXPECTED_PARTS_COUNT - 1) {
+                        for (int j = i; j < to; j++) {
+                            if (line.charAt(j) != delimiter) {
+                                return false;
+                            }
+                        }
+                        to = i;
+                        break;
+                    }
+                    set(line, field++, from, i);
+                    from = i + 1;
+                }
+            }
+            if (field != EXPECTED_PARTS_COUNT - 1 || from == to) {
+                return false;
+            }
+            set(line, field, from, to);
+            return true;
+        }
+
+        boolean equals(String line, int field, String expected) {
+            return end[field] - start[field] == expected.length()
+                    && line.regionMatches(start[field], expected, 0, expected.length());
+        }
+
+        int parseInt(String line, int field) {
+            return Integer.parseInt(line, start[field], end[field], 10);
+        }
+
+        String intern(String line, int field, StringDictionary dictionary) {
+            return dictionary.get(line, start[field], end[field]);
+        }
+
+        String get(String line, int field) {
+            return line.substring(start[field], end[field]);
+        }
+
+        private void set(String line, int field, int from, int to) {
+            while (from < to && line.charAt(from) <= ' ') {
+                from++;
+            }
+            while (to > from && line.charAt(to - 1) <= ' ') {
+                to--;
+            }
+            start[field] = from;
+            end[field] = to;
+        }
+    }
 }
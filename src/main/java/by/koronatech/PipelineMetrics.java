@@ -0,0 +1,322 @@
+package by.koronatech;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Timings and counters of one batch, emitted as JFR events and optionally written as JSON. CPU time
+ * is that of the batch's own thread plus the tasks a stage hands to other threads through
+ * {@code onWorker}, so batches sharing a JVM do not count each other's work. It is
+ * {@link #NO_CPU_TIME} where thread CPU time cannot be read, as on a virtual thread.
+ */
+@Getter
+public class PipelineMetrics {
+
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_SNAPSHOT_LOAD = "snapshotLoad";
+    public static final String STAGE_RESOLVE = "resolve";
+    public static final String STAGE_SNAPSHOT_WRITE = "snapshotWrite";
+    public static final String STAGE_ERRORS = "writeErrors";
+    public static final String STAGE_SORT = "sort";
+    public static final String STAGE_DEPARTMENTS = "writeDepartments";
+    public static final String STAGE_STATISTICS = "statistics";
+    public static final String STAGE_PUBLISH = "publish";
+    public static final long NO_CPU_TIME = -1;
+    public static final double NANOS_PER_MILLI = 1_000_000.0;
+    public static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    /**
+     * The stage whose CPU time the current thread is already counting.
+     */
+    private static final ThreadLocal<Stage> MEASURED_STAGE = new ThreadLocal<>();
+
+    private final List<StageTiming> stages = new ArrayList<>();
+    private final Map<ErrorCategory, Long> errorCounts = new EnumMap<>(ErrorCategory.class);
+    private final long startNanos = System.nanoTime();
+    private final Thread thread = Thread.currentThread();
+    private final long startCpuNanos = threadCpuNanos();
+    private final WorkerTime workerTime = new WorkerTime();
+    private long wallNanos;
+    private long cpuNanos;
+    private long records;
+    @Setter
+    private long inputBytes;
+    private long outputBytes;
+    private long errorLogLines;
+    private long dictionaryLookups;
+    private long dictionaryHits;
+
+    @Getter
+    @AllArgsConstructor
+    public static class StageTiming {
+        private String name;
+        private long wallNanos;
+        private long cpuNanos;
+    }
+
+    @FunctionalInterface
+    public interface StageAction {
+        void run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface StageCall<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface WorkerTask<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Records the timing also when the stage fails.
+     */
+    public void stage(String name, StageAction action) throws IOException {
+        Stage stage = new Stage(name);
+        try {
+            action.run();
+        } finally {
+            stage.end();
+        }
+    }
+
+    public <T> T stage(String name, StageCall<T> call) throws IOException {
+        Stage stage = new Stage(name);
+        try {
+            return call.call();
+        } finally {
+            stage.end();
+        }
+    }
+
+    public static <T> Supplier<T> onWorker(Supplier<T> task) {
+        Stage stage = MEASURED_STAGE.get();
+        return stage == null ? task : () -> stage.onWorker(task::get);
+    }
+
+    public static <T> Callable<T> onWorker(Callable<T> task) {
+        Stage stage = MEASURED_STAGE.get();
+        return stage == null ? task : () -> stage.onWorker(task::call);
+    }
+
+    /**
+     * For parallel streams, whose elements run on the stage's own thread as well as on the pool.
+     */
+    public static <T> Consumer<T> eachOnWorker(Consumer<T> action) {
+        Stage stage = MEASURED_STAGE.get();
+        return stage == null ? action : element -> stage.onWorker(() -> {
+            action.accept(element);
+            return null;
+        });
+    }
+
+    public static <T, R> Function<T, R> mapOnWorker(Function<T, R> function) {
+        Stage stage = MEASURED_STAGE.get();
+        return stage == null ? function : element -> stage.onWorker(() -> function.apply(element));
+    }
+
+    /**
+     * Called on the thread that created these metrics.
+     */
+    public void finish(ParseState state, long outputBytes) {
+        wallNanos = System.nanoTime() - startNanos;
+        cpuNanos = Thread.currentThread() == thread ? workerTime.plus(cpuSince(startCpuNanos)) : NO_CPU_TIME;
+        records = state.getRecordCount();
+        errorCounts.putAll(state.getErrorCounts());
+        errorLogLines = state.getErrors().size();
+        this.outputBytes = outputBytes;
+
+        BatchEvent event = new BatchEvent();
+        if (event.shouldCommit()) {
+            event.cpuTime = cpuNanos;
+            event.records = records;
+            event.inputBytes = inputBytes;
+            event.outputBytes = outputBytes;
+            event.errorLogLines = errorLogLines;
+            event.dictionaryLookups = dictionaryLookups;
+            event.dictionaryHits = dictionaryHits;
+            event.malformedLine = errorCount(ErrorCategory.MALFORMED_LINE);
+            event.badId = errorCount(ErrorCategory.BAD_ID);
+            event.unknownType = errorCount(ErrorCategory.UNKNOWN_TYPE);
+            event.badSalary = errorCount(ErrorCategory.BAD_SALARY);
+            event.badManagerId = errorCount(ErrorCategory.BAD_MANAGER_ID);
+            event.duplicateId = errorCount(ErrorCategory.DUPLICATE_ID);
+            event.duplicateManager = errorCount(ErrorCategory.DUPLICATE_MANAGER);
+            event.missingManager = errorCount(ErrorCategory.MISSING_MANAGER);
+            event.readError = errorCount(ErrorCategory.READ_ERROR);
+            event.commit();
+        }
+    }
+
+    public void setDictionaryCounters(long lookups, long hits) {
+        dictionaryLookups = lookups;
+        dictionaryHits = hits;
+    }
+
+    public double dictionaryHitRate() {
+        return dictionaryLookups > 0 ? (double) dictionaryHits / dictionaryLookups : 0;
+    }
+
+    public long errorCount(ErrorCategory category) {
+        return errorCounts.getOrDefault(category, 0L);
+    }
+
+    /**
+     * Of the parse stage, or of the whole batch when nothing was parsed.
+     */
+    public double recordsPerSecond() {
+        long nanos = stages.stream()
+                .filter(stage -> STAGE_PARSE.equals(stage.getName()))
+                .mapToLong(StageTiming::getWallNanos)
+                .findFirst()
+                .orElse(wallNanos);
+        return nanos > 0 ? records * NANOS_PER_SECOND / nanos : 0;
+    }
+
+    public void writeJson(Path file) throws IOException {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"wallMillis\": ").append(millis(wallNanos)).append(",\n");
+        json.append("  \"cpuMillis\": ").append(millis(cpuNanos)).append(",\n");
+        json.append("  \"records\": ").append(records).append(",\n");
+        json.append("  \"recordsPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", recordsPerSecond()))
+                .append(",\n");
+        json.append("  \"inputBytes\": ").append(inputBytes).append(",\n");
+        json.append("  \"outputBytes\": ").append(outputBytes).append(",\n");
+        json.append("  \"errorLogLines\": ").append(errorLogLines).append(",\n");
+        json.append("  \"dictionaryLookups\": ").append(dictionaryLookups).append(",\n");
+        json.append("  \"dictionaryHits\": ").append(dictionaryHits).append(",\n");
+        json.append("  \"dictionaryHitRate\": ").append(String.format(Locale.ROOT, "%.4f", dictionaryHitRate()))
+                .append(",\n");
+        json.append("  \"errors\": {");
+        ErrorCategory[] categories = ErrorCategory.values();
+        for (int i = 0; i < categories.length; i++) {
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    \"").append(categories[i].getKey()).append("\": ").append(errorCount(categories[i]));
+        }
+        json.append("\n  },\n");
+        json.append("  \"stages\": [");
+        for (int i = 0; i < stages.size(); i++) {
+            StageTiming stage = stages.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": \"").append(stage.getName())
+                    .append("\", \"wallMillis\": ").append(millis(stage.getWallNanos()))
+                    .append(", \"cpuMillis\": ").append(millis(stage.getCpuNanos())).append('}');
+        }
+        json.append(stages.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write(json.toString());
+        }
+    }
+
+    private static String millis(long nanos) {
+        return nanos == NO_CPU_TIME ? "null" : String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    private static long threadCpuNanos() {
+        try {
+            long nanos = THREADS.getCurrentThreadCpuTime();
+            return nanos >= 0 ? nanos : NO_CPU_TIME;
+        } catch (UnsupportedOperationException e) {
+            return NO_CPU_TIME;
+        }
+    }
+
+    private static long cpuSince(long startCpuNanos) {
+        long now = threadCpuNanos();
+        return now == NO_CPU_TIME || startCpuNanos == NO_CPU_TIME ? NO_CPU_TIME : now - startCpuNanos;
+    }
+
+    /**
+     * CPU time of tasks on other threads; {@link #NO_CPU_TIME} once any of them could not be measured.
+     */
+    private static class WorkerTime {
+        private final AtomicLong nanos = new AtomicLong();
+
+        void add(long taskNanos) {
+            nanos.accumulateAndGet(taskNanos,
+                    (sum, task) -> sum == NO_CPU_TIME || task == NO_CPU_TIME ? NO_CPU_TIME : sum + task);
+        }
+
+        long plus(long ownNanos) {
+            long workers = nanos.get();
+            return workers == NO_CPU_TIME || ownNanos == NO_CPU_TIME ? NO_CPU_TIME : workers + ownNanos;
+        }
+    }
+
+    private class Stage {
+        private final String name;
+        private final StageEvent event = new StageEvent();
+        private final long startNanos = System.nanoTime();
+        private final long startCpuNanos = threadCpuNanos();
+        private final WorkerTime workerTime = new WorkerTime();
+        private final Stage enclosing = MEASURED_STAGE.get();
+
+        private Stage(String name) {
+            this.name = name;
+            MEASURED_STAGE.set(this);
+            event.begin();
+        }
+
+        /**
+         * Runs inline when this thread already counts the stage, such as a parallel stream's caller
+         * or a pool thread helping with a task it waits for.
+         */
+        <T, E extends Exception> T onWorker(WorkerTask<T, E> task) throws E {
+            Stage measured = MEASURED_STAGE.get();
+            if (measured == this) {
+                return task.run();
+            }
+            MEASURED_STAGE.set(this);
+            long start = threadCpuNanos();
+            try {
+                return task.run();
+            } finally {
+                long taskNanos = cpuSince(start);
+                workerTime.add(taskNanos);
+                // A thread helping another stage of this batch already counts the task there.
+                if (measured == null || measured.batch() != PipelineMetrics.this) {
+                    PipelineMetrics.this.workerTime.add(taskNanos);
+                }
+                MEASURED_STAGE.set(measured);
+            }
+        }
+
+        private PipelineMetrics batch() {
+            return PipelineMetrics.this;
+        }
+
+        void end() {
+            MEASURED_STAGE.set(enclosing);
+            long stageCpuNanos = workerTime.plus(cpuSince(startCpuNanos));
+            stages.add(new StageTiming(name, System.nanoTime() - startNanos, stageCpuNanos));
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = name;
+                event.cpuTime = stageCpuNanos;
+                event.commit();
+            }
+        }
+    }
+}
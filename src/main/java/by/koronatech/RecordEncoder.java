@@ -0,0 +1,342 @@
+package by.koronatech;
+
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes department records into a reusable UTF-8 buffer and writes each file in as few writes as
+ * possible. Content hashes are taken over the uncompressed records. One instance per thread.
+ */
+public class RecordEncoder {
+
+    public static final int INITIAL_CAPACITY = 1 << 16;
+    public static final int FLUSH_THRESHOLD = 1 << 23;
+    public static final int CENTS_SCALE = 2;
+    public static final int MAX_FAST_SCALE = 18;
+    public static final char FIELD_SEPARATOR = ',';
+
+    private static final byte[] MANAGER_PREFIX = "Manager,".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPLOYEE_PREFIX = "Employee,".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final long[] POWERS_OF_TEN = new long[MAX_FAST_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final byte[] digits = new byte[20];
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int size;
+    private WritableByteChannel channel;
+    private MessageDigest contentDigest;
+    private boolean digesting;
+    private boolean spilled;
+    private long encodedBytes;
+    private long flushedBytes;
+    @Setter
+    private OutputIndex.Records indexRecords;
+
+    public void writeDepartment(Path file, Department department) throws IOException {
+        try (WritableByteChannel fileChannel = Compression.newChannel(file)) {
+            channel = fileChannel;
+            encode(department);
+            flush();
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Returns the new hash.
+     */
+    public byte[] writeDepartmentIfChanged(Path file, Department department, byte[] previousDigest)
+            throws IOException {
+        byte[] digest = digest(department);
+        if (Arrays.equals(digest, previousDigest) && Files.exists(file)) {
+            return digest;
+        }
+        writeDigested(file, department);
+        return digest;
+    }
+
+    /**
+     * Hard-links {@code file} to {@code published} when that already holds exactly these records;
+     * returns whether it did.
+     */
+    public boolean linkOrWriteDepartment(Path file, Department department, Path published) throws IOException {
+        if (!Files.isRegularFile(published)) {
+            writeDepartment(file, department);
+            return false;
+        }
+        byte[] digest = digest(department);
+        boolean sameSize = Compression.isCompressed(published) || Files.size(published) == encodedBytes;
+        if (sameSize && Arrays.equals(digest, uncompressedDigest(published))) {
+            try {
+                Files.createLink(file, published);
+                return true;
+            } catch (UnsupportedOperationException | IOException e) {
+                // No hard links on this file system; a copy is written below.
+            }
+        }
+        writeDigested(file, department);
+        return false;
+    }
+
+    /**
+     * A department too large for the buffer has to be encoded again to be written.
+     */
+    private byte[] digest(Department department) throws IOException {
+        if (contentDigest == null) {
+            contentDigest = RunManifest.newDigest();
+        }
+        try {
+            digesting = true;
+            spilled = false;
+            encodedBytes = 0;
+            contentDigest.reset();
+            encode(department);
+            contentDigest.update(buffer, 0, size);
+            encodedBytes += size;
+            return contentDigest.digest();
+        } finally {
+            digesting = false;
+        }
+    }
+
+    private void writeDigested(Path file, Department department) throws IOException {
+        if (spilled) {
+            writeDepartment(file, department);
+            return;
+        }
+        try (WritableByteChannel fileChannel = Compression.newChannel(file)) {
+            channel = fileChannel;
+            flush();
+        } finally {
+            channel = null;
+        }
+    }
+
+    private byte[] uncompressedDigest(Path file) throws IOException {
+        MessageDigest digest = RunManifest.newDigest();
+        byte[] chunk = new byte[RunManifest.HASH_BUFFER_SIZE];
+        try (InputStream in = Compression.newInputStream(file)) {
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                digest.update(chunk, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private void encode(Department department) throws IOException {
+        size = 0;
+        flushedBytes = 0;
+        if (indexRecords != null) {
+            indexRecords.clear();
+        }
+        encodeRecords(department);
+        if (indexRecords != null) {
+            indexRecords.setFileSize(flushedBytes + size);
+        }
+    }
+
+    private void encodeRecords(Department department) throws IOException {
+        appendManager(department.getManager());
+        if (!department.getSpilledRuns().isEmpty()) {
+            int[] remaining = {department.getOutputLimit()};
+            ExternalSorter.forEachSorted(department, employee -> {
+                if (remaining[0]-- == 0) {
+                    return false;
+                }
+                appendEmployee(employee);
+                if (size >= FLUSH_THRESHOLD) {
+                    flush();
+                }
+                return true;
+            });
+            return;
+        }
+        List<Employee> employees = department.getEmployees();
+        int[] order = department.getOutputOrder();
+        int count = order != null ? order.length : Math.min(employees.size(), department.getOutputLimit());
+        for (int i = 0; i < count; i++) {
+            appendEmployee(employees.get(order != null ? order[i] : i));
+            if (size >= FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+    }
+
+    private void appendManager(Manager manager) {
+        if (indexRecords != null) {
+            indexRecords.add(manager.getId(),
+                    OutputIndex.indexCents(manager.hasCents(), manager.getSalaryCents(), manager.getSalary()),
+                    flushedBytes + size);
+        }
+        append(MANAGER_PREFIX);
+        appendLong(manager.getId());
+        appendByte(FIELD_SEPARATOR);
+        appendText(manager.getName());
+        appendByte(FIELD_SEPARATOR);
+        if (manager.hasCents()) {
+            appendCents(manager.getSalaryCents());
+        } else {
+            appendSalary(manager.getSalary());
+        }
+        append(LINE_SEPARATOR);
+    }
+
+    private void appendEmployee(Employee employee) {
+        if (indexRecords != null) {
+            indexRecords.add(employee.getId(),
+                    OutputIndex.indexCents(employee.hasCents(), employee.getSalaryCents(), employee.getSalary()),
+                    flushedBytes + size);
+        }
+        append(EMPLOYEE_PREFIX);
+        appendLong(employee.getId());
+        appendByte(FIELD_SEPARATOR);
+        appendText(employee.getName());
+        appendByte(FIELD_SEPARATOR);
+        if (employee.hasCents()) {
+            appendCents(employee.getSalaryCents());
+        } else {
+            appendSalary(employee.getSalary());
+        }
+        appendByte(FIELD_SEPARATOR);
+        appendLong(employee.getManagerId());
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Whole amounts without a fraction, others rounded half-even to two decimals.
+     */
+    private void appendSalary(BigDecimal salary) {
+        int scale = salary.scale();
+        if (scale <= 0) {
+            appendAscii(salary.toBigInteger().toString());
+            return;
+        }
+        if (scale <= MAX_FAST_SCALE && salary.unscaledValue().bitLength() < Long.SIZE - 1) {
+            long unscaled = salary.unscaledValue().longValue();
+            long power = POWERS_OF_TEN[scale];
+            if (unscaled % power == 0) {
+                appendLong(unscaled / power);
+                return;
+            }
+            if (scale <= CENTS_SCALE && unscaled <= Long.MAX_VALUE / Salaries.CENTS_PER_UNIT) {
+                appendCents(unscaled * POWERS_OF_TEN[CENTS_SCALE - scale]);
+                return;
+            }
+        }
+        if (salary.stripTrailingZeros().scale() <= 0) {
+            appendAscii(salary.toBigInteger().toString());
+        } else {
+            appendAscii(salary.setScale(CENTS_SCALE, RoundingMode.HALF_EVEN).toPlainString());
+        }
+    }
+
+    private void appendCents(long cents) {
+        appendLong(cents / Salaries.CENTS_PER_UNIT);
+        int fraction = (int) (cents % Salaries.CENTS_PER_UNIT);
+        if (fraction != 0) {
+            appendByte(Salaries.DECIMAL_POINT);
+            appendByte((char) ('0' + fraction / 10));
+            appendByte((char) ('0' + fraction % 10));
+        }
+    }
+
+    private void appendLong(long value) {
+        if (value < 0) {
+            appendByte('-');
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        ensureCapacity(digits.length - position);
+        System.arraycopy(digits, position, buffer, size, digits.length - position);
+        size += digits.length - position;
+    }
+
+    private void appendText(String text) {
+        int length = text.length();
+        ensureCapacity(length * 3);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[size++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[size++] = (byte) (0xC0 | c >> 6);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[size++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                buffer[size++] = (byte) (0xE0 | c >> 12);
+                buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void appendAscii(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[size++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void appendByte(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, size + extra)];
+            System.arraycopy(buffer, 0, grown, 0, size);
+            buffer = grown;
+        }
+    }
+
+    private void flush() throws IOException {
+        flushedBytes += size;
+        if (digesting) {
+            contentDigest.update(buffer, 0, size);
+            encodedBytes += size;
+            spilled = true;
+            size = 0;
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, size);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        size = 0;
+    }
+}
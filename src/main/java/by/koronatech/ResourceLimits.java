@@ -0,0 +1,86 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Open-file and memory budgets shared by every batch in one JVM, as fair semaphores. Memory is
+ * reserved up front from an estimate; a batch asking for more than the whole budget gets all of it.
+ */
+public class ResourceLimits {
+
+    public static final int NO_LIMIT = 0;
+    public static final long BYTES_PER_MEMORY_PERMIT = 1 << 20;
+    public static final ResourceLimits UNLIMITED = new ResourceLimits(NO_LIMIT, NO_LIMIT);
+    public static final String INVALID_OPEN_FILES = "Недопустимое число одновременно открытых файлов: ";
+    public static final String INVALID_MEMORY_BUDGET = "Бюджет памяти должен быть не меньше 1 МБ: ";
+
+    private final Semaphore openFiles;
+    private final Semaphore memory;
+    private final int memoryPermits;
+
+    /**
+     * @param maxOpenFiles   files open at once, or {@link #NO_LIMIT}
+     * @param maxMemoryBytes heap for all batches in bytes, rounded down to whole megabytes, or
+     *                       {@link #NO_LIMIT}
+     * @throws IllegalArgumentException if a limit is negative or the memory budget is below one
+     *                                  megabyte
+     */
+    public ResourceLimits(int maxOpenFiles, long maxMemoryBytes) {
+        if (maxOpenFiles < 0) {
+            throw new IllegalArgumentException(INVALID_OPEN_FILES + maxOpenFiles);
+        }
+        if (maxMemoryBytes != NO_LIMIT && maxMemoryBytes < BYTES_PER_MEMORY_PERMIT) {
+            throw new IllegalArgumentException(INVALID_MEMORY_BUDGET + maxMemoryBytes);
+        }
+        this.openFiles = maxOpenFiles > 0 ? new Semaphore(maxOpenFiles, true) : null;
+        this.memoryPermits = (int) Math.min(Integer.MAX_VALUE, maxMemoryBytes / BYTES_PER_MEMORY_PERMIT);
+        this.memory = memoryPermits > 0 ? new Semaphore(memoryPermits, true) : null;
+    }
+
+    @FunctionalInterface
+    public interface LimitedAction {
+        void run() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface LimitedCall<T> {
+        T call() throws IOException;
+    }
+
+    public void withOpenFile(LimitedAction action) throws IOException {
+        acquire(openFiles, 1);
+        try {
+            action.run();
+        } finally {
+            release(openFiles, 1);
+        }
+    }
+
+    /**
+     * Rounded up to whole megabytes and capped at the whole budget.
+     */
+    public <T> T withMemory(long bytes, LimitedCall<T> call) throws IOException {
+        int permits = memory != null && bytes > 0
+                ? (int) Math.min(memoryPermits, (bytes + BYTES_PER_MEMORY_PERMIT - 1) / BYTES_PER_MEMORY_PERMIT)
+                : 0;
+        acquire(memory, permits);
+        try {
+            return call.call();
+        } finally {
+            release(memory, permits);
+        }
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) {
+        if (semaphore != null && permits > 0) {
+            semaphore.acquireUninterruptibly(permits);
+        }
+    }
+
+    private static void release(Semaphore semaphore, int permits) {
+        if (semaphore != null && permits > 0) {
+            semaphore.release(permits);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Group and company statistics, merged from the department accumulators so no salary is visited
+ * twice.
+ */
+public class Rollup {
+
+    public static final String LEVEL_DEPARTMENT = "department";
+    public static final String LEVEL_GROUP = "group";
+    public static final String LEVEL_COMPANY = "company";
+    public static final String GROUP_MAP_DELIMITER = ",";
+    public static final String INVALID_GROUP_MAP_LINE = "Недопустимая строка файла групп: ";
+
+    private final DistributionOptions options;
+    private final Function<String, String> grouping;
+    private final Map<String, SalaryAccumulator> groups = new TreeMap<>();
+    private final SalaryAccumulator company;
+
+    private Rollup(DistributionOptions options, Function<String, String> grouping, boolean company) {
+        this.options = options;
+        this.grouping = grouping;
+        this.company = company ? SalaryAccumulator.of(options) : null;
+    }
+
+    /**
+     * Returns {@code null} when no roll-up is requested.
+     */
+    public static Rollup of(Config config, DistributionOptions options) throws IOException {
+        if (!isRequested(config)) {
+            return null;
+        }
+        Function<String, String> grouping = null;
+        if (config.getGroupPattern() != null) {
+            grouping = patternGrouping(Pattern.compile(config.getGroupPattern()));
+        } else if (config.getGroupMap() != null) {
+            grouping = readGroupMap(Path.of(config.getGroupMap()))::get;
+        }
+        return new Rollup(options, grouping, config.isRollupCompany());
+    }
+
+    public static boolean isRequested(Config config) {
+        return config.isRollupCompany() || config.getGroupPattern() != null || config.getGroupMap() != null;
+    }
+
+    public void add(String department, SalaryAccumulator salaries) {
+        if (grouping != null) {
+            String group = grouping.apply(department);
+            if (group != null) {
+                groups.computeIfAbsent(group, k -> SalaryAccumulator.of(options)).merge(salaries);
+            }
+        }
+        if (company != null) {
+            company.merge(salaries);
+        }
+    }
+
+    public Map<String, SalaryAccumulator> getGroups() {
+        return groups;
+    }
+
+    public SalaryAccumulator getCompany() {
+        return company;
+    }
+
+    /**
+     * The first capturing group of the first match, or the whole match without groups.
+     */
+    private static Function<String, String> patternGrouping(Pattern pattern) {
+        return department -> {
+            Matcher matcher = pattern.matcher(department);
+            if (!matcher.find()) {
+                return null;
+            }
+            return matcher.groupCount() > 0 ? matcher.group(1) : matcher.group();
+        };
+    }
+
+    private static Map<String, String> readGroupMap(Path file) throws IOException {
+        Map<String, String> groupMap = new HashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] parts = line.split(GROUP_MAP_DELIMITER, 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException(INVALID_GROUP_MAP_LINE + line);
+            }
+            groupMap.put(parts[0].trim(), parts[1].trim());
+        }
+        return groupMap;
+    }
+}
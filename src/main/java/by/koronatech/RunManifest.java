@@ -0,0 +1,439 @@
+package by.koronatech;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * State of the previous incremental run: a summary of what each input file claims, and the
+ * statistics row of each department. No line text is kept; an error line is known by its
+ * fingerprint and read back from the previous error log. An unreadable manifest reads as empty,
+ * which makes a full run.
+ */
+@Getter
+public class RunManifest {
+
+    public static final int MAGIC = 0x53424D46;
+    public static final int FORMAT_VERSION = 4;
+    public static final String DIGEST_ALGORITHM = "SHA-256";
+    public static final int HASH_BUFFER_SIZE = 1 << 16;
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int NO_STRING = -1;
+    private static final int NO_ARRAY = -1;
+
+    @Setter
+    private int parserOptions;
+    /**
+     * The options that shape the output files and statistics; see {@link #outputOptions}.
+     */
+    @Setter
+    private String outputOptions = "";
+    private final Map<String, InputEntry> inputs = new HashMap<>();
+    private final Map<String, byte[]> outputs = new HashMap<>();
+    private final Map<String, Stats> statistics = new HashMap<>();
+
+    @Getter
+    @AllArgsConstructor
+    public static class InputEntry {
+        private long size;
+        private long modifiedNanos;
+        private byte[] contentHash;
+        private FileSummary summary;
+    }
+
+    /**
+     * What a file claims, enough to tell which other files its lines can interact with: every id it
+     * uses, the managers its employees report to and the departments its managers lead. Error
+     * fingerprints are in the order the lines were logged and are filled in after the merge.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class FileSummary {
+        private int[] ids;
+        private int[] managerIds;
+        private String[] departments;
+        @Setter
+        private long[] errorFingerprints;
+
+        public static FileSummary of(List<ParsedLine> lines) {
+            int[] ids = lines.stream()
+                    .filter(line -> line.getKind() == ParsedLine.Kind.REJECTED
+                            || line.getKind() == ParsedLine.Kind.MANAGER
+                            || line.getKind() == ParsedLine.Kind.EMPLOYEE)
+                    .mapToInt(ParsedLine::getId)
+                    .distinct()
+                    .toArray();
+            int[] managerIds = lines.stream()
+                    .filter(line -> line.getKind() == ParsedLine.Kind.EMPLOYEE)
+                    .mapToInt(ParsedLine::getManagerId)
+                    .distinct()
+                    .toArray();
+            String[] departments = lines.stream()
+                    .filter(line -> line.getKind() == ParsedLine.Kind.MANAGER)
+                    .map(ParsedLine::getDepartment)
+                    .distinct()
+                    .toArray(String[]::new);
+            return new FileSummary(ids, managerIds, departments, new long[0]);
+        }
+
+        public boolean touches(IntHashSet affectedIds, Collection<String> affectedDepartments) {
+            for (int id : ids) {
+                if (affectedIds.contains(id)) {
+                    return true;
+                }
+            }
+            for (int managerId : managerIds) {
+                if (affectedIds.contains(managerId)) {
+                    return true;
+                }
+            }
+            for (String department : departments) {
+                if (affectedDepartments.contains(department)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void addTo(IntHashSet affectedIds, Collection<String> affectedDepartments) {
+            for (int id : ids) {
+                affectedIds.add(id);
+            }
+            for (int managerId : managerIds) {
+                affectedIds.add(managerId);
+            }
+            affectedDepartments.addAll(Arrays.asList(departments));
+        }
+    }
+
+    /**
+     * Passes error lines on to an {@link ErrorSet} and notes, per file, the fingerprints of the
+     * lines that stay errors.
+     */
+    public static class ErrorRecorder implements ErrorSink {
+
+        private final ErrorSet target;
+        private final Map<FileSummary, List<Long>> logged = new LinkedHashMap<>();
+        private final LongHashSet withdrawn = new LongHashSet();
+        private List<Long> current = new ArrayList<>();
+
+        public ErrorRecorder(ErrorSet target) {
+            this.target = target;
+        }
+
+        public void startFile(FileSummary summary) {
+            current = logged.computeIfAbsent(summary, k -> new ArrayList<>());
+        }
+
+        /**
+         * The errors of a file that is not merged again, looked up by fingerprint.
+         */
+        public void replay(FileSummary summary, Map<Long, String> lines) {
+            for (long fingerprint : summary.errorFingerprints) {
+                target.add(lines.get(fingerprint));
+            }
+        }
+
+        @Override
+        public boolean add(String line) {
+            current.add(ParsedLine.fingerprint(line));
+            return target.add(line);
+        }
+
+        @Override
+        public int size() {
+            return target.size();
+        }
+
+        @Override
+        public void addWithdrawable(long fingerprint, String line) {
+            current.add(fingerprint);
+            target.addWithdrawable(fingerprint, line);
+        }
+
+        @Override
+        public void settleWithdrawable(Collection<Long> fingerprints, boolean withdraw) {
+            if (withdraw) {
+                fingerprints.forEach(withdrawn::add);
+            }
+            target.settleWithdrawable(fingerprints, withdraw);
+        }
+
+        @Override
+        public void writeTo(Writer writer) throws IOException {
+            target.writeTo(writer);
+        }
+
+        /**
+         * Stores the fingerprints in the summaries; call after the withdrawable lines are settled.
+         */
+        public void finish() {
+            for (Map.Entry<FileSummary, List<Long>> entry : logged.entrySet()) {
+                entry.getKey().setErrorFingerprints(entry.getValue().stream()
+                        .mapToLong(Long::longValue)
+                        .filter(fingerprint -> !withdrawn.contains(fingerprint))
+                        .toArray());
+            }
+        }
+    }
+
+    /**
+     * A change to any of these rewrites every output file, so the previous summaries are not
+     * reused.
+     */
+    public static String outputOptions(Config config) {
+        return Objects.toString(Arrays.asList(config.getSortType(), config.getOrder(), config.getTop(),
+                config.isGenerateStats(), config.isStreamingStats(), config.getStatMode(),
+                Arrays.toString(config.getSalaryBands()), config.getExactStatLimit(), config.isIncludeManagers(),
+                config.getCompression()));
+    }
+
+    public static RunManifest read(Path file) {
+        RunManifest manifest = new RunManifest();
+        if (!Files.isRegularFile(file)) {
+            return manifest;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return manifest;
+            }
+            manifest.parserOptions = in.readInt();
+            manifest.outputOptions = readString(in);
+            int inputCount = in.readInt();
+            for (int i = 0; i < inputCount; i++) {
+                String path = readString(in);
+                long size = in.readLong();
+                long modifiedNanos = in.readLong();
+                byte[] contentHash = readBytes(in);
+                FileSummary summary = new FileSummary(readInts(in), readInts(in), readStrings(in), readLongs(in));
+                manifest.inputs.put(path, new InputEntry(size, modifiedNanos, contentHash, summary));
+            }
+            int outputCount = in.readInt();
+            for (int i = 0; i < outputCount; i++) {
+                manifest.outputs.put(readString(in), readBytes(in));
+            }
+            int statisticsCount = in.readInt();
+            for (int i = 0; i < statisticsCount; i++) {
+                Stats stats = readStats(in);
+                manifest.statistics.put(stats.getDepartment(), stats);
+            }
+            return manifest;
+        } catch (IOException | RuntimeException e) {
+            return new RunManifest();
+        }
+    }
+
+    /**
+     * Written to a temporary file and moved into place.
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(parserOptions);
+            writeString(out, outputOptions);
+            out.writeInt(inputs.size());
+            for (Map.Entry<String, InputEntry> entry : inputs.entrySet()) {
+                InputEntry input = entry.getValue();
+                writeString(out, entry.getKey());
+                out.writeLong(input.size);
+                out.writeLong(input.modifiedNanos);
+                writeBytes(out, input.contentHash);
+                writeInts(out, input.summary.ids);
+                writeInts(out, input.summary.managerIds);
+                writeStrings(out, input.summary.departments);
+                writeLongs(out, input.summary.errorFingerprints);
+            }
+            out.writeInt(outputs.size());
+            for (Map.Entry<String, byte[]> entry : outputs.entrySet()) {
+                writeString(out, entry.getKey());
+                writeBytes(out, entry.getValue());
+            }
+            out.writeInt(statistics.size());
+            for (Stats stats : statistics.values()) {
+                writeStats(out, stats);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static byte[] contentHash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeStats(DataOutputStream out, Stats stats) throws IOException {
+        writeString(out, stats.getDepartment());
+        writeDecimal(out, stats.getMinSalary());
+        writeDecimal(out, stats.getMaxSalary());
+        writeDecimal(out, stats.getAverageSalary());
+        BigDecimal[] percentiles = stats.getPercentiles();
+        out.writeInt(percentiles != null ? percentiles.length : NO_ARRAY);
+        if (percentiles != null) {
+            for (BigDecimal percentile : percentiles) {
+                writeDecimal(out, percentile);
+            }
+        }
+        writeLongs(out, stats.getBandCounts());
+    }
+
+    private static Stats readStats(DataInputStream in) throws IOException {
+        Stats stats = new Stats(readString(in), readDecimal(in), readDecimal(in), readDecimal(in));
+        int percentileCount = in.readInt();
+        if (percentileCount != NO_ARRAY) {
+            BigDecimal[] percentiles = new BigDecimal[percentileCount];
+            for (int i = 0; i < percentileCount; i++) {
+                percentiles[i] = readDecimal(in);
+            }
+            stats.setPercentiles(percentiles);
+        }
+        stats.setBandCounts(readLongs(in));
+        return stats;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        writeBytes(out, value.unscaledValue().toByteArray());
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        return new BigDecimal(new BigInteger(readBytes(in)), in.readInt());
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[readLength(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * {@code null} is kept apart from an empty array.
+     */
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(NO_ARRAY);
+            return;
+        }
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readLongs(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NO_ARRAY) {
+            return null;
+        }
+        if (length < 0) {
+            throw new EOFException();
+        }
+        long[] values = new long[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] values = new String[readLength(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NO_STRING);
+            return;
+        }
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new EOFException();
+        }
+        return length;
+    }
+}
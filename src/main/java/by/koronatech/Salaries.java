@@ -0,0 +1,84 @@
+package by.koronatech;
+
+import java.math.BigDecimal;
+
+/**
+ * A salary is held as a positive {@code long} of cents whenever that is exact.
+ */
+public final class Salaries {
+
+    public static final long NO_CENTS = -1;
+    public static final long INVALID_CENTS = 0;
+    public static final int CENTS_SCALE = 2;
+    public static final long CENTS_PER_UNIT = 100;
+    public static final char DECIMAL_POINT = '.';
+
+    private Salaries() {
+    }
+
+    /**
+     * Parses plain {@code digits[.digits]} without allocating; anything else is {@link #NO_CENTS}.
+     */
+    public static long parseCents(String value) {
+        return parseCents(value, 0, value.length());
+    }
+
+    /**
+     * {@link #parseCents(String)} of {@code value.substring(from, to)}.
+     */
+    public static long parseCents(String value, int from, int to) {
+        long units = 0;
+        int i = from;
+        boolean digits = false;
+        for (; i < to && value.charAt(i) != DECIMAL_POINT; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || units > (Long.MAX_VALUE - digit) / 10) {
+                return NO_CENTS;
+            }
+            units = units * 10 + digit;
+            digits = true;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        for (i++; i < to; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NO_CENTS;
+            }
+            if (fractionDigits < CENTS_SCALE) {
+                fraction = fraction * 10 + digit;
+                fractionDigits++;
+            } else if (digit != 0) {
+                return NO_CENTS;
+            }
+            digits = true;
+        }
+        if (!digits) {
+            return NO_CENTS;
+        }
+        for (; fractionDigits < CENTS_SCALE; fractionDigits++) {
+            fraction *= 10;
+        }
+        return toCents(units, fraction);
+    }
+
+    public static long toCents(long units, long fraction) {
+        if (units > (Long.MAX_VALUE - fraction) / CENTS_PER_UNIT) {
+            return NO_CENTS;
+        }
+        return units * CENTS_PER_UNIT + fraction;
+    }
+
+    public static long toCents(BigDecimal salary) {
+        try {
+            return salary.setScale(CENTS_SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return NO_CENTS;
+        }
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, CENTS_SCALE);
+    }
+}
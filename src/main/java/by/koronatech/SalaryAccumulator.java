@@ -0,0 +1,165 @@
+package by.koronatech;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Mergeable count, min, max and sum of salaries, in {@code long} cents until a value does not fit.
+ */
+public class SalaryAccumulator {
+
+    @Getter
+    private long count;
+    private long minCents = Long.MAX_VALUE;
+    private long maxCents = Long.MIN_VALUE;
+    private long sumCents;
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal sum;
+    private final SalaryDistribution distribution;
+
+    public SalaryAccumulator() {
+        this(null);
+    }
+
+    public SalaryAccumulator(SalaryDistribution distribution) {
+        this.distribution = distribution;
+    }
+
+    public static SalaryAccumulator of(DistributionOptions options) {
+        return new SalaryAccumulator(options != null ? new SalaryDistribution(options) : null);
+    }
+
+    public void add(Employee employee) {
+        if (employee.hasCents()) {
+            add(employee.getSalaryCents());
+        } else {
+            add(employee.getSalary());
+        }
+    }
+
+    public void add(Manager manager) {
+        if (manager.hasCents()) {
+            add(manager.getSalaryCents());
+        } else {
+            add(manager.getSalary());
+        }
+    }
+
+    public void add(long cents) {
+        if (distribution != null) {
+            distribution.add(cents);
+        }
+        addCents(cents);
+    }
+
+    public void add(BigDecimal salary) {
+        if (distribution != null) {
+            distribution.add(salary);
+        }
+        addDecimal(salary);
+    }
+
+    private void addCents(long cents) {
+        if (sum == null) {
+            try {
+                sumCents = Math.addExact(sumCents, cents);
+                minCents = Math.min(minCents, cents);
+                maxCents = Math.max(maxCents, cents);
+                count++;
+                return;
+            } catch (ArithmeticException e) {
+                switchToDecimal();
+            }
+        }
+        addDecimal(Salaries.toBigDecimal(cents));
+    }
+
+    private void addDecimal(BigDecimal salary) {
+        if (sum == null) {
+            switchToDecimal();
+        }
+        min = min == null || salary.compareTo(min) < 0 ? salary : min;
+        max = max == null || salary.compareTo(max) > 0 ? salary : max;
+        sum = sum.add(salary);
+        count++;
+    }
+
+    public void merge(SalaryAccumulator other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (distribution != null && other.distribution != null) {
+            distribution.merge(other.distribution);
+        }
+        if (sum == null && other.sum == null) {
+            try {
+                sumCents = Math.addExact(sumCents, other.sumCents);
+                minCents = Math.min(minCents, other.minCents);
+                maxCents = Math.max(maxCents, other.maxCents);
+                count += other.count;
+                return;
+            } catch (ArithmeticException e) {
+                switchToDecimal();
+            }
+        }
+        if (sum == null) {
+            switchToDecimal();
+        }
+        BigDecimal otherMin = other.sum == null ? Salaries.toBigDecimal(other.minCents) : other.min;
+        BigDecimal otherMax = other.sum == null ? Salaries.toBigDecimal(other.maxCents) : other.max;
+        BigDecimal otherSum = other.sum == null ? Salaries.toBigDecimal(other.sumCents) : other.sum;
+        min = min == null || otherMin.compareTo(min) < 0 ? otherMin : min;
+        max = max == null || otherMax.compareTo(max) > 0 ? otherMax : max;
+        sum = sum.add(otherSum);
+        count += other.count;
+    }
+
+    public Stats toStats(String departmentName) {
+        Stats stats = toBasicStats(departmentName);
+        if (distribution != null) {
+            BigDecimal[] percentiles = distribution.percentiles(DistributionOptions.PERCENTILES);
+            for (int i = 0; i < percentiles.length; i++) {
+                percentiles[i] = clamp(percentiles[i], stats.getMinSalary(), stats.getMaxSalary());
+            }
+            stats.setPercentiles(percentiles);
+            if (distribution.hasBands()) {
+                stats.setBandCounts(distribution.getBandCounts());
+            }
+        }
+        return stats;
+    }
+
+    private Stats toBasicStats(String departmentName) {
+        if (count == 0) {
+            return new Stats(departmentName, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        if (sum == null) {
+            long avg = sumCents / count;
+            if ((sumCents % count) * 2 >= count) {
+                avg++;
+            }
+            return new Stats(departmentName, Salaries.toBigDecimal(minCents), Salaries.toBigDecimal(maxCents),
+                    Salaries.toBigDecimal(avg));
+        }
+        BigDecimal avg = sum.divide(BigDecimal.valueOf(count), Department.SCALE_AVERAGE, RoundingMode.HALF_UP);
+        return new Stats(departmentName, min, max, avg);
+    }
+
+    private static BigDecimal clamp(BigDecimal value, BigDecimal min, BigDecimal max) {
+        if (value.compareTo(min) < 0) {
+            return min;
+        }
+        return value.compareTo(max) > 0 ? max : value;
+    }
+
+    private void switchToDecimal() {
+        if (count > 0) {
+            min = Salaries.toBigDecimal(minCents);
+            max = Salaries.toBigDecimal(maxCents);
+        }
+        sum = Salaries.toBigDecimal(sumCents);
+    }
+}
@@ -0,0 +1,204 @@
+package by.koronatech;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mergeable salary distribution: a log-bucket quantile sketch within {@link #RELATIVE_ACCURACY},
+ * optional band counts and, for small sets, the exact values. Merging gives the same result however
+ * the salaries were split.
+ */
+public class SalaryDistribution {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+    public static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    public static final int INITIAL_BUCKETS = 64;
+    public static final int PERCENT = 100;
+
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int MIN_BUCKET = (int) Math.ceil(Math.log(Double.MIN_VALUE) / LOG_GAMMA);
+    private static final int MAX_BUCKET = (int) Math.floor(Math.log(Double.MAX_VALUE) / LOG_GAMMA);
+
+    private final DistributionOptions options;
+    private final long[] bandCounts;
+    private long[] buckets = new long[0];
+    private int firstBucket;
+    private long count;
+    private long[] exactCents;
+    private int exactCentsSize;
+    private List<BigDecimal> exactDecimals;
+
+    public SalaryDistribution(DistributionOptions options) {
+        this.options = options;
+        this.bandCounts = options.hasBands() ? new long[options.getBandBounds().length + 1] : null;
+        if (options.getExactLimit() > 0) {
+            exactCents = new long[Math.min(options.getExactLimit(), INITIAL_BUCKETS)];
+            exactDecimals = new ArrayList<>();
+        }
+    }
+
+    public void add(long cents) {
+        count++;
+        addToBucket(bucketIndex(cents / (double) Salaries.CENTS_PER_UNIT), 1);
+        if (bandCounts != null) {
+            bandCounts[band(cents)]++;
+        }
+        if (keepsExactValues()) {
+            if (exactCentsSize == exactCents.length) {
+                exactCents = Arrays.copyOf(exactCents, Math.min(options.getExactLimit(), exactCentsSize * 2));
+            }
+            exactCents[exactCentsSize++] = cents;
+        }
+    }
+
+    public void add(BigDecimal salary) {
+        count++;
+        addToBucket(bucketIndex(salary.doubleValue()), 1);
+        if (bandCounts != null) {
+            bandCounts[band(salary)]++;
+        }
+        if (keepsExactValues()) {
+            exactDecimals.add(salary);
+        }
+    }
+
+    public void merge(SalaryDistribution other) {
+        count += other.count;
+        for (int i = 0; i < other.buckets.length; i++) {
+            if (other.buckets[i] != 0) {
+                addToBucket(other.firstBucket + i, other.buckets[i]);
+            }
+        }
+        if (bandCounts != null && other.bandCounts != null) {
+            for (int i = 0; i < bandCounts.length; i++) {
+                bandCounts[i] += other.bandCounts[i];
+            }
+        }
+        if (keepsExactValues() && other.exactCents != null) {
+            for (int i = 0; i < other.exactCentsSize; i++) {
+                if (exactCentsSize == exactCents.length) {
+                    exactCents = Arrays.copyOf(exactCents, options.getExactLimit());
+                }
+                exactCents[exactCentsSize++] = other.exactCents[i];
+            }
+            exactDecimals.addAll(other.exactDecimals);
+        } else {
+            dropExactValues();
+        }
+    }
+
+    /**
+     * Nearest-rank percentiles. Sketch estimates are not clamped to min and max; the caller does
+     * that.
+     */
+    public BigDecimal[] percentiles(int[] percents) {
+        BigDecimal[] result = new BigDecimal[percents.length];
+        if (count == 0) {
+            Arrays.fill(result, BigDecimal.ZERO);
+            return result;
+        }
+        if (exactCents != null) {
+            List<BigDecimal> sorted = sortedExactValues();
+            for (int i = 0; i < percents.length; i++) {
+                result[i] = sorted.get((int) rank(percents[i]) - 1);
+            }
+            return result;
+        }
+        for (int i = 0; i < percents.length; i++) {
+            result[i] = BigDecimal.valueOf(estimate(rank(percents[i])));
+        }
+        return result;
+    }
+
+    public boolean hasBands() {
+        return bandCounts != null;
+    }
+
+    public long[] getBandCounts() {
+        return bandCounts.clone();
+    }
+
+    private boolean keepsExactValues() {
+        if (exactCents != null && count > options.getExactLimit()) {
+            dropExactValues();
+        }
+        return exactCents != null;
+    }
+
+    private void dropExactValues() {
+        exactCents = null;
+        exactDecimals = null;
+    }
+
+    private long rank(int percent) {
+        return Math.max(1, (percent * count + PERCENT - 1) / PERCENT);
+    }
+
+    private List<BigDecimal> sortedExactValues() {
+        List<BigDecimal> values = new ArrayList<>(exactCentsSize + exactDecimals.size());
+        if (exactDecimals.isEmpty()) {
+            long[] sorted = Arrays.copyOf(exactCents, exactCentsSize);
+            Arrays.sort(sorted);
+            for (long cents : sorted) {
+                values.add(Salaries.toBigDecimal(cents));
+            }
+            return values;
+        }
+        for (int i = 0; i < exactCentsSize; i++) {
+            values.add(Salaries.toBigDecimal(exactCents[i]));
+        }
+        values.addAll(exactDecimals);
+        values.sort(null);
+        return values;
+    }
+
+    private double estimate(long rank) {
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(Double.MAX_VALUE, 2 * Math.pow(GAMMA, firstBucket + i) / (GAMMA + 1));
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static int bucketIndex(double value) {
+        double index = Math.ceil(Math.log(value) / LOG_GAMMA);
+        return (int) Math.max(MIN_BUCKET, Math.min(MAX_BUCKET, index));
+    }
+
+    private void addToBucket(int index, long n) {
+        if (buckets.length == 0) {
+            buckets = new long[INITIAL_BUCKETS];
+            firstBucket = index - INITIAL_BUCKETS / 2;
+        } else if (index < firstBucket || index >= firstBucket + buckets.length) {
+            int first = Math.min(firstBucket, index);
+            int last = Math.max(firstBucket + buckets.length - 1, index);
+            int padding = buckets.length / 2;
+            int grownFirst = index < firstBucket ? first - padding : first;
+            long[] grown = new long[last - first + 1 + padding];
+            System.arraycopy(buckets, 0, grown, firstBucket - grownFirst, buckets.length);
+            buckets = grown;
+            firstBucket = grownFirst;
+        }
+        buckets[index - firstBucket] += n;
+    }
+
+    private int band(long cents) {
+        long[] bounds = options.getBandBounds();
+        int band = Arrays.binarySearch(bounds, cents);
+        return band >= 0 ? band + 1 : -band - 1;
+    }
+
+    private int band(BigDecimal salary) {
+        long[] bounds = options.getBandBounds();
+        int band = 0;
+        while (band < bounds.length && salary.compareTo(Salaries.toBigDecimal(bounds[band])) >= 0) {
+            band++;
+        }
+        return band;
+    }
+}
@@ -0,0 +1,263 @@
+package by.koronatech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary snapshot of the resolved departments and the error set, in big-endian columns. A
+ * salary is stored as unscaled value and scale, so it comes back exactly as parsed.
+ */
+public final class Snapshot {
+
+    public static final int MAGIC = 0x5342534E;
+    public static final int FORMAT_VERSION = 2;
+    public static final byte SCALE_CENTS = Byte.MIN_VALUE;
+    public static final byte SCALE_TABLE = Byte.MIN_VALUE + 1;
+    public static final String UNSUPPORTED_SNAPSHOT = "Неподдерживаемый формат снимка: ";
+    public static final String TOO_MANY_EMPLOYEES = "Слишком много сотрудников для снимка: ";
+
+    private Snapshot() {
+    }
+
+    public static void write(Path file, ParseState state, ErrorSet errors) throws IOException {
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> dictionaryIndex = new HashMap<>();
+        List<BigDecimal> decimals = new ArrayList<>();
+        List<Map.Entry<String, Department>> departments = new ArrayList<>(state.getDepartments().entrySet());
+
+        long employeeCount = 0;
+        for (Map.Entry<String, Department> entry : departments) {
+            intern(entry.getKey(), dictionary, dictionaryIndex);
+            Manager manager = entry.getValue().getManager();
+            if (manager != null) {
+                intern(manager.getName(), dictionary, dictionaryIndex);
+            }
+            for (Employee employee : entry.getValue().getEmployees()) {
+                intern(employee.getName(), dictionary, dictionaryIndex);
+            }
+            employeeCount += entry.getValue().getEmployees().size();
+        }
+        if (employeeCount > Integer.MAX_VALUE) {
+            throw new IOException(TOO_MANY_EMPLOYEES + employeeCount);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dictionary.size());
+            out.writeInt(departments.size());
+            out.writeInt((int) employeeCount);
+
+            for (String value : dictionary) {
+                writeString(out, value);
+            }
+
+            for (Map.Entry<String, Department> entry : departments) {
+                out.writeInt(dictionaryIndex.get(entry.getKey()));
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                Manager manager = entry.getValue().getManager();
+                out.writeInt(manager != null ? manager.getId() : 0);
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                Manager manager = entry.getValue().getManager();
+                out.writeInt(manager != null ? dictionaryIndex.get(manager.getName()) : -1);
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                Manager manager = entry.getValue().getManager();
+                out.writeLong(manager == null ? 0
+                        : salaryColumn(manager.hasCents(), manager.getSalaryCents(), manager.getSalary(), decimals));
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                Manager manager = entry.getValue().getManager();
+                out.writeByte(manager == null ? 0 : scaleColumn(manager.hasCents(), manager.getSalary()));
+            }
+            int firstEmployee = 0;
+            for (Map.Entry<String, Department> entry : departments) {
+                out.writeInt(firstEmployee);
+                firstEmployee += entry.getValue().getEmployees().size();
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                out.writeInt(entry.getValue().getEmployees().size());
+            }
+
+            for (Map.Entry<String, Department> entry : departments) {
+                for (Employee employee : entry.getValue().getEmployees()) {
+                    out.writeInt(employee.getId());
+                }
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                for (Employee employee : entry.getValue().getEmployees()) {
+                    out.writeInt(dictionaryIndex.get(employee.getName()));
+                }
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                for (Employee employee : entry.getValue().getEmployees()) {
+                    out.writeInt(employee.getManagerId());
+                }
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                for (Employee employee : entry.getValue().getEmployees()) {
+                    out.writeLong(salaryColumn(employee.hasCents(), employee.getSalaryCents(),
+                            employee.getSalary(), decimals));
+                }
+            }
+            for (Map.Entry<String, Department> entry : departments) {
+                for (Employee employee : entry.getValue().getEmployees()) {
+                    out.writeByte(scaleColumn(employee.hasCents(), employee.getSalary()));
+                }
+            }
+
+            out.writeInt(decimals.size());
+            for (BigDecimal decimal : decimals) {
+                out.writeInt(decimal.scale());
+                byte[] unscaled = decimal.unscaledValue().toByteArray();
+                out.writeInt(unscaled.length);
+                out.write(unscaled);
+            }
+
+            out.writeInt(errors.size());
+            for (String error : errors) {
+                writeString(out, error);
+            }
+        }
+    }
+
+    /**
+     * The error lines are added to {@code errors} in their original order. Employees are read from
+     * the mapped columns as they are used, and stay valid after the file is closed.
+     */
+    public static ParseState read(Path file, ErrorSet errors) throws IOException {
+        // Mappings stay valid once the channel is closed.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION) {
+                throw new IOException(UNSUPPORTED_SNAPSHOT + file);
+            }
+            int dictionarySize = header.readInt();
+            int departmentCount = header.readInt();
+            int employeeCount = header.readInt();
+            // Magic, version and the three counts.
+            long position = 5L * Integer.BYTES;
+
+            String[] dictionary = new String[dictionarySize];
+            for (int i = 0; i < dictionarySize; i++) {
+                byte[] bytes = new byte[header.readInt()];
+                header.readFully(bytes);
+                position += Integer.BYTES + bytes.length;
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            MappedColumns columns = new MappedColumns(channel, position);
+            MappedColumns.IntColumn deptNames = columns.ints(departmentCount);
+            MappedColumns.IntColumn managerIds = columns.ints(departmentCount);
+            MappedColumns.IntColumn managerNames = columns.ints(departmentCount);
+            MappedColumns.LongColumn managerSalaries = columns.longs(departmentCount);
+            MappedColumns.ByteColumn managerScales = columns.bytes(departmentCount);
+            MappedColumns.IntColumn firstEmployees = columns.ints(departmentCount);
+            MappedColumns.IntColumn employeeCounts = columns.ints(departmentCount);
+
+            MappedColumns.IntColumn employeeIds = columns.ints(employeeCount);
+            MappedColumns.IntColumn employeeNames = columns.ints(employeeCount);
+            MappedColumns.IntColumn employeeManagerIds = columns.ints(employeeCount);
+            MappedColumns.LongColumn employeeSalaries = columns.longs(employeeCount);
+            MappedColumns.ByteColumn employeeScales = columns.bytes(employeeCount);
+
+            channel.position(columns.position());
+            DataInputStream tables = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            BigDecimal[] decimals = new BigDecimal[tables.readInt()];
+            for (int i = 0; i < decimals.length; i++) {
+                int scale = tables.readInt();
+                byte[] unscaled = new byte[tables.readInt()];
+                tables.readFully(unscaled);
+                decimals[i] = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+
+            int errorCount = tables.readInt();
+            for (int i = 0; i < errorCount; i++) {
+                byte[] bytes = new byte[tables.readInt()];
+                tables.readFully(bytes);
+                errors.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            SnapshotEmployees.Columns employeeColumns = new SnapshotEmployees.Columns(employeeIds, employeeNames,
+                    employeeManagerIds, employeeSalaries, employeeScales, dictionary, decimals);
+            ParseState state = new ParseState(errors);
+            for (int d = 0; d < departmentCount; d++) {
+                Department department = new Department();
+                String departmentName = dictionary[deptNames.get(d)];
+                int managerName = managerNames.get(d);
+                if (managerName >= 0) {
+                    long salary = managerSalaries.get(d);
+                    byte scale = managerScales.get(d);
+                    department.setManager(scale == SCALE_CENTS
+                            ? new Manager(managerIds.get(d), dictionary[managerName], null, salary, departmentName)
+                            : new Manager(managerIds.get(d), dictionary[managerName],
+                            decimal(salary, scale, decimals), departmentName));
+                }
+                department.setEmployees(new SnapshotEmployees(employeeColumns, firstEmployees.get(d),
+                        employeeCounts.get(d)));
+                state.getDepartments().put(departmentName, department);
+            }
+            return state;
+        }
+    }
+
+    private static void intern(String value, List<String> dictionary, Map<String, Integer> dictionaryIndex) {
+        if (!dictionaryIndex.containsKey(value)) {
+            dictionaryIndex.put(value, dictionary.size());
+            dictionary.add(value);
+        }
+    }
+
+    /**
+     * {@link #scaleColumn} tells which of cents, unscaled value or table index this is.
+     */
+    private static long salaryColumn(boolean hasCents, long cents, BigDecimal salary, List<BigDecimal> decimals) {
+        if (hasCents) {
+            return cents;
+        }
+        if (fitsColumns(salary)) {
+            return salary.unscaledValue().longValue();
+        }
+        decimals.add(salary);
+        return decimals.size() - 1;
+    }
+
+    private static byte scaleColumn(boolean hasCents, BigDecimal salary) {
+        if (hasCents) {
+            return SCALE_CENTS;
+        }
+        return fitsColumns(salary) ? (byte) salary.scale() : SCALE_TABLE;
+    }
+
+    private static boolean fitsColumns(BigDecimal salary) {
+        return salary.unscaledValue().bitLength() < Long.SIZE
+                && salary.scale() > SCALE_TABLE && salary.scale() <= Byte.MAX_VALUE;
+    }
+
+    static BigDecimal decimal(long salary, byte scale, BigDecimal[] decimals) {
+        return scale == SCALE_TABLE ? decimals[(int) salary] : BigDecimal.valueOf(salary, scale);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,147 @@
+package by.koronatech;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * One department's employees in the mapped columns of a {@link Snapshot}. An employee is built only
+ * when it is read; sorting reorders row numbers.
+ */
+final class SnapshotEmployees extends AbstractList<Employee> implements RandomAccess, EmployeeColumns {
+
+    public static final String FOREIGN_ROW = "В сотрудников снимка можно записать только их собственную строку";
+
+    private final Columns columns;
+    private final int first;
+    private final int size;
+    /**
+     * Snapshot rows in list order; {@code null} while the order is that of the file.
+     */
+    private int[] rows;
+
+    SnapshotEmployees(Columns columns, int first, int size) {
+        this.columns = columns;
+        this.first = first;
+        this.size = size;
+    }
+
+    /**
+     * Employee columns of the whole snapshot, shared by its departments.
+     */
+    record Columns(MappedColumns.IntColumn ids, MappedColumns.IntColumn names, MappedColumns.IntColumn managerIds,
+                   MappedColumns.LongColumn salaries, MappedColumns.ByteColumn scales, String[] dictionary,
+                   BigDecimal[] decimals) {
+    }
+
+    @Override
+    public Employee get(int index) {
+        int row = row(index);
+        long salary = columns.salaries().get(row);
+        byte scale = columns.scales().get(row);
+        return new Row(row, columns.ids().get(row), columns.dictionary()[columns.names().get(row)],
+                scale == Snapshot.SCALE_CENTS ? null : Snapshot.decimal(salary, scale, columns.decimals()),
+                scale == Snapshot.SCALE_CENTS ? salary : Salaries.NO_CENTS, columns.managerIds().get(row));
+    }
+
+    /**
+     * Only takes employees read from this list.
+     */
+    @Override
+    public Employee set(int index, Employee employee) {
+        if (!(employee instanceof Row stored && stored.owner() == this)) {
+            throw new UnsupportedOperationException(FOREIGN_ROW);
+        }
+        Employee previous = get(index);
+        orderedRows()[index] = stored.row;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long salaryCents(int index) {
+        int row = row(index);
+        return columns.scales().get(row) == Snapshot.SCALE_CENTS ? columns.salaries().get(row) : Salaries.NO_CENTS;
+    }
+
+    @Override
+    public int compareSalaries(int a, int b) {
+        int rowA = row(a);
+        int rowB = row(b);
+        byte scaleA = columns.scales().get(rowA);
+        byte scaleB = columns.scales().get(rowB);
+        if (scaleA == Snapshot.SCALE_CENTS && scaleB == Snapshot.SCALE_CENTS) {
+            return Long.compare(columns.salaries().get(rowA), columns.salaries().get(rowB));
+        }
+        return salary(rowA, scaleA).compareTo(salary(rowB, scaleB));
+    }
+
+    @Override
+    public int compareNames(int a, int b) {
+        String[] dictionary = columns.dictionary();
+        return dictionary[columns.names().get(row(a))].compareTo(dictionary[columns.names().get(row(b))]);
+    }
+
+    @Override
+    public void permute(int[] order) {
+        int[] current = orderedRows().clone();
+        for (int i = 0; i < size; i++) {
+            rows[i] = current[order[i]];
+        }
+    }
+
+    @Override
+    public void addSalariesTo(SalaryAccumulator accumulator) {
+        for (int i = 0; i < size; i++) {
+            int row = row(i);
+            long salary = columns.salaries().get(row);
+            byte scale = columns.scales().get(row);
+            if (scale == Snapshot.SCALE_CENTS) {
+                accumulator.add(salary);
+            } else {
+                accumulator.add(Snapshot.decimal(salary, scale, columns.decimals()));
+            }
+        }
+    }
+
+    private int row(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return rows != null ? rows[index] : first + index;
+    }
+
+    private int[] orderedRows() {
+        if (rows == null) {
+            rows = new int[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = first + i;
+            }
+        }
+        return rows;
+    }
+
+    private BigDecimal salary(int row, byte scale) {
+        long salary = columns.salaries().get(row);
+        return scale == Snapshot.SCALE_CENTS
+                ? Salaries.toBigDecimal(salary)
+                : Snapshot.decimal(salary, scale, columns.decimals());
+    }
+
+    private final class Row extends Employee {
+        private final int row;
+
+        private Row(int row, int id, String name, BigDecimal salary, long salaryCents, int managerId) {
+            super(id, name, salary, salaryCents, managerId);
+            this.row = row;
+        }
+
+        private SnapshotEmployees owner() {
+            return SnapshotEmployees.this;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package by.koronatech;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one stage of a batch; the event duration is the stage's wall time.
+ */
+@Name("by.koronatech.Stage")
+@Label("Pipeline Stage")
+@Category("Employee Processor")
+@Description("One stage of processing a batch of input files")
+class StageEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("CPU Time")
+    @Timespan
+    long cpuTime;
+}
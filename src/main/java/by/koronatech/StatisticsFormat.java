@@ -0,0 +1,90 @@
+package by.koronatech;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+public final class StatisticsFormat {
+
+    public static final String STAT_COLUMNS = "department,min,max,mid";
+    public static final String STAT_ROW_FORMAT = "%s,%s,%s,%s";
+    public static final String PERCENTILE_COLUMN_PREFIX = ",p";
+    public static final String BAND_COLUMN_PREFIX = ",band_";
+    public static final String LEVEL_COLUMN = "level,";
+    public static final String DECIMAL_PATTERN = "0.00";
+    public static final char DECIMAL_SEPARATOR = '.';
+
+    // DecimalFormat is not thread-safe, and rows are formatted by concurrent batches.
+    private static final ThreadLocal<DecimalFormat> SALARY_FORMAT =
+            ThreadLocal.withInitial(StatisticsFormat::createDecimalFormat);
+
+    private StatisticsFormat() {
+    }
+
+    public static String header(DistributionOptions options, boolean withLevel) {
+        StringBuilder header = new StringBuilder();
+        if (withLevel) {
+            header.append(LEVEL_COLUMN);
+        }
+        header.append(STAT_COLUMNS);
+        if (options != null) {
+            appendDistributionColumns(header, options);
+        }
+        return header.append('\n').toString();
+    }
+
+    /**
+     * {@code level} is {@code null} for a table without roll-ups.
+     */
+    public static String row(String level, Stats stat) {
+        StringBuilder row = new StringBuilder();
+        appendRow(row, level, stat);
+        return row.toString();
+    }
+
+    static void appendRow(StringBuilder output, String level, Stats stat) {
+        DecimalFormat salaryFormat = SALARY_FORMAT.get();
+        if (level != null) {
+            output.append(level).append(',');
+        }
+        output.append(String.format(STAT_ROW_FORMAT,
+                stat.getDepartment(),
+                salaryFormat.format(stat.getMinSalary()),
+                salaryFormat.format(stat.getMaxSalary()),
+                salaryFormat.format(stat.getAverageSalary())));
+        if (stat.getPercentiles() != null) {
+            appendDistribution(output, stat, salaryFormat);
+        }
+        output.append('\n');
+    }
+
+    private static DecimalFormat createDecimalFormat() {
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols();
+        symbols.setDecimalSeparator(DECIMAL_SEPARATOR);
+        return new DecimalFormat(DECIMAL_PATTERN, symbols);
+    }
+
+    private static void appendDistributionColumns(StringBuilder header, DistributionOptions options) {
+        for (int percent : DistributionOptions.PERCENTILES) {
+            header.append(PERCENTILE_COLUMN_PREFIX).append(percent);
+        }
+        if (options.hasBands()) {
+            header.append(BAND_COLUMN_PREFIX).append(0);
+            for (long bound : options.getBandBounds()) {
+                header.append(BAND_COLUMN_PREFIX)
+                        .append(Salaries.toBigDecimal(bound).stripTrailingZeros().toPlainString());
+            }
+        }
+    }
+
+    private static void appendDistribution(StringBuilder row, Stats stat, DecimalFormat salaryFormat) {
+        for (BigDecimal percentile : stat.getPercentiles()) {
+            row.append(',').append(salaryFormat.format(percentile));
+        }
+        if (stat.getBandCounts() != null) {
+            for (long bandCount : stat.getBandCounts()) {
+                row.append(',').append(bandCount);
+            }
+        }
+    }
+}
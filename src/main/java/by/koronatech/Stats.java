@@ -1,15 +1,26 @@
 package by.koronatech;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 import java.math.BigDecimal;
 
 @Getter
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class Stats {
-    private String department;
-    private BigDecimal minSalary;
-    private BigDecimal maxSalary;
-    private BigDecimal averageSalary;
+    private final String department;
+    private final BigDecimal minSalary;
+    private final BigDecimal maxSalary;
+    private final BigDecimal averageSalary;
+    /**
+     * {@link DistributionOptions#PERCENTILES} in the same order; {@code null} in the basic mode.
+     */
+    @Setter
+    private BigDecimal[] percentiles;
+    /**
+     * Salaries per band; {@code null} unless the histogram mode is on.
+     */
+    @Setter
+    private long[] bandCounts;
 }
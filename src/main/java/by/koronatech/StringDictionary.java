@@ -0,0 +1,160 @@
+package by.koronatech;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One canonical {@code String} per distinct name or department id. Known values are matched on
+ * their raw ASCII bytes or on a range of a line without allocating; the table stops growing at
+ * {@link #MAX_ENTRIES}. Not thread-safe.
+ */
+public class StringDictionary {
+
+    public static final int INITIAL_CAPACITY = 1 << 10;
+    public static final int MAX_ENTRIES = 1 << 16;
+
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    /**
+     * {@code null} for values first seen as strings.
+     */
+    private byte[][] keys = new byte[INITIAL_CAPACITY][];
+    private int mask = INITIAL_CAPACITY - 1;
+    private int size;
+    private byte[] scratch = new byte[256];
+    private long lookups;
+    private long hits;
+
+    public String get(ByteBuffer buffer, int from, int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        int hash = 0;
+        int highBits = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = scratch[i];
+            highBits |= b;
+            hash = 31 * hash + b;
+        }
+        if (highBits < 0) {
+            return get(new String(scratch, 0, length, StandardCharsets.UTF_8));
+        }
+        lookups++;
+        int slot = IntHashSet.slot(hash, mask);
+        for (String value; (value = values[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && matches(slot, value, length)) {
+                hits++;
+                return value;
+            }
+        }
+        String value = new String(scratch, 0, length, StandardCharsets.US_ASCII);
+        if (insert(slot, hash, value)) {
+            keys[slot] = Arrays.copyOf(scratch, length);
+        }
+        return value;
+    }
+
+    public String get(String value) {
+        lookups++;
+        int hash = value.hashCode();
+        int slot = IntHashSet.slot(hash, mask);
+        for (String known; (known = values[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && known.equals(value)) {
+                hits++;
+                return known;
+            }
+        }
+        insert(slot, hash, value);
+        return value;
+    }
+
+    /**
+     * {@link #get(String)} of {@code text.substring(from, to)}, which is only allocated when the
+     * value is new.
+     */
+    public String get(String text, int from, int to) {
+        lookups++;
+        int length = to - from;
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int slot = IntHashSet.slot(hash, mask);
+        for (String known; (known = values[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && known.length() == length && text.regionMatches(from, known, 0, length)) {
+                hits++;
+                return known;
+            }
+        }
+        String value = text.substring(from, to);
+        insert(slot, hash, value);
+        return value;
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void resetCounters() {
+        lookups = 0;
+        hits = 0;
+    }
+
+    /**
+     * A full table stops growing while it is half empty, so probing always ends.
+     */
+    private boolean insert(int slot, int hash, String value) {
+        if (size == MAX_ENTRIES) {
+            return false;
+        }
+        values[slot] = value;
+        hashes[slot] = hash;
+        if (++size * 2 > values.length) {
+            grow();
+        }
+        return true;
+    }
+
+    private boolean matches(int slot, String value, int length) {
+        byte[] key = keys[slot];
+        if (key != null) {
+            return Arrays.equals(key, 0, key.length, scratch, 0, length);
+        }
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != scratch[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        byte[][] oldKeys = keys;
+        values = new String[oldValues.length * 2];
+        hashes = new int[values.length];
+        keys = new byte[values.length][];
+        mask = values.length - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = IntHashSet.slot(oldHashes[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                values[slot] = oldValues[i];
+                hashes[slot] = oldHashes[i];
+                keys[slot] = oldKeys[i];
+            }
+        }
+    }
+}
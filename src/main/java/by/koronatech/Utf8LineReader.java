@@ -0,0 +1,77 @@
+package by.koronatech;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a UTF-8 stream, split on {@code \n} or {@code \r} like
+ * {@link MappedFileScanner}. Malformed input fails at the line that holds it, after every line
+ * before it.
+ */
+final class Utf8LineReader implements Closeable {
+
+    private final InputStream in;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private byte[] buffer = new byte[Compression.BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+
+    Utf8LineReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Returns {@code null} at the end of the stream.
+     */
+    String readLine() throws IOException {
+        int start = position;
+        int scanned = position;
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == MappedFileScanner.LINE_FEED || b == MappedFileScanner.CARRIAGE_RETURN) {
+                    position = i + 1;
+                    return decode(start, i);
+                }
+            }
+            if (endOfStream) {
+                position = limit;
+                return start < limit ? decode(start, limit) : null;
+            }
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                start = 0;
+            } else if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            scanned = limit;
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String decode(int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] < 0) {
+                return decoder.decode(ByteBuffer.wrap(buffer, from, to - from)).toString();
+            }
+        }
+        return new String(buffer, from, to - from, StandardCharsets.US_ASCII);
+    }
+}
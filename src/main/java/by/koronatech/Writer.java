@@ -1,59 +1,140 @@
 package by.koronatech;
 
+import lombok.Getter;
+import lombok.Setter;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
-public class Writer {
+/**
+ * Department files are written on a pool owned by the writer, so each pool thread keeps its
+ * {@link RecordEncoder} between calls; idle threads time out, and {@link #close} ends the pool.
+ */
+public class Writer implements AutoCloseable {
 
-    public static final String MANAGER_FORMAT = "Manager,%d,%s,%s";
-    public static final String EMPLOYEE_FORMAT = "Employee,%d,%s,%s,%d";
-    public static final String STAT_HEADER = "department,min,max,mid\n";
-    public static final String STAT_FORMAT = "%s,%s,%s,%s\n";
+    public static final String COMPANY_ROW_NAME = "";
     public static final String MISSING_MANAGER_ERROR = "Не найден менеджер для департамента: ";
     public static final String FILE_OUTPUT_TYPE = "file";
-    public static final String DECIMAL_PATTERN = "0.00";
-    public static final char DECIMAL_SEPARATOR = '.';
-    public static final int ZERO_SCALE = 0;
+    public static final int DEFAULT_MAX_OPEN_FILES = Runtime.getRuntime().availableProcessors();
+    public static final long IDLE_THREAD_SECONDS = 60;
+    public static final String THREAD_NAME_PREFIX = "writer ";
+    public static final List<String> GENERATION_SUFFIXES = List.of(".0", ".1");
+    public static final String LINK_SUFFIX = ".link";
+    public static final String RETIRED_SUFFIX = ".old";
+    public static final String HIDDEN_PREFIX = ".";
 
-    private final Path outputDir;
+    /**
+     * The output directory, or its staging directory while a staged run is open.
+     */
+    @Getter
+    private Path outputDir;
+    /**
+     * A staged run publishes by pointing this at one of {@link #generationDirs}.
+     */
+    private final Path publishedDir;
+    private final List<Path> generationDirs;
+    private final Path linkFile;
+    private final Path retiredDir;
+    private Path stagingDir;
     private final String errorLogFile;
     private final String inputExtension;
-    private final DecimalFormat salaryFormat;
+    private final ThreadLocal<RecordEncoder> encoders = ThreadLocal.withInitial(RecordEncoder::new);
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    /**
+     * Created on first use; guarded by {@code this}.
+     */
+    private ThreadPoolExecutor executor;
+    @Setter
+    private boolean compressOutput;
+    /**
+     * Stage the output and swap it in with {@link #publish}.
+     */
+    @Setter
+    private boolean atomicOutput;
+    @Setter
+    private ResourceLimits limits = ResourceLimits.UNLIMITED;
+    @Setter
+    private boolean indexOutput;
 
     public Writer(Path outputDir, String errorLogFile, String inputExtension) {
         this.outputDir = outputDir;
+        this.publishedDir = outputDir;
+        this.generationDirs = GENERATION_SUFFIXES.stream().map(suffix -> siblingDirectory(outputDir, suffix)).toList();
+        this.linkFile = siblingDirectory(outputDir, LINK_SUFFIX);
+        this.retiredDir = siblingDirectory(outputDir, RETIRED_SUFFIX);
         this.errorLogFile = errorLogFile;
         this.inputExtension = inputExtension;
-        this.salaryFormat = createDecimalFormat();
     }
 
-    private DecimalFormat createDecimalFormat() {
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols();
-        symbols.setDecimalSeparator(DECIMAL_SEPARATOR);
-        return new DecimalFormat(DECIMAL_PATTERN, symbols);
+    /**
+     * A new limit takes effect with a new pool.
+     */
+    public synchronized void setMaxOpenFiles(int maxOpenFiles) {
+        if (maxOpenFiles != this.maxOpenFiles) {
+            close();
+            this.maxOpenFiles = maxOpenFiles;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
     }
 
-    private String formatSalary(BigDecimal salary) {
-        if (salary.scale() <= ZERO_SCALE || salary.stripTrailingZeros().scale() <= ZERO_SCALE) {
-            return salary.toBigInteger().toString();
+    private synchronized ExecutorService writeExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(maxOpenFiles, maxOpenFiles, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + publishedDir.getFileName());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
         }
-        return salaryFormat.format(salary);
+        return executor;
     }
 
+    /**
+     * With {@link #atomicOutput}, opens a staging directory instead of clearing the output
+     * directory.
+     */
     public void prepareOutputDirectory() throws IOException {
+        if (atomicOutput && !isStaging()) {
+            openStaging();
+            return;
+        }
         if (Files.exists(outputDir)) {
             try (DirectoryStream<Path> stream = Files.newDirectoryStream(outputDir)) {
                 for (Path file : stream) {
-                    Files.delete(file);
+                    if (!isSpillDirectory(file)) {
+                        Files.delete(file);
+                    }
                 }
             }
         } else {
@@ -61,65 +142,304 @@ public class Writer {
         }
     }
 
-    public void writeErrors(Set<String> errors) throws IOException {
+    /**
+     * Points the output directory, a symbolic link, at the staging directory with one rename, so
+     * readers see either the complete old output or the complete new one. Only a plain output
+     * directory left by an unstaged run has to be moved aside first, and is briefly missing.
+     */
+    public void publish() throws IOException {
+        if (!isStaging()) {
+            return;
+        }
+        Path replaced = liveGeneration();
+        Files.deleteIfExists(linkFile);
+        Files.createSymbolicLink(linkFile, stagingDir.getFileName());
+        if (Files.exists(publishedDir, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(publishedDir)) {
+            Files.move(publishedDir, retiredDir, StandardCopyOption.ATOMIC_MOVE);
+            replaced = retiredDir;
+        }
+        Files.move(linkFile, publishedDir, StandardCopyOption.ATOMIC_MOVE);
+        outputDir = publishedDir;
+        if (replaced != null) {
+            deleteRecursively(replaced);
+        }
+    }
+
+    public void discardStaging() throws IOException {
+        if (isStaging()) {
+            outputDir = publishedDir;
+            deleteRecursively(stagingDir);
+        }
+    }
+
+    private boolean isStaging() {
+        return outputDir.equals(stagingDir);
+    }
+
+    /**
+     * Undoes what a run that stopped inside {@link #publish} left behind, whatever the next run
+     * is: a retired directory without an output directory is the last published output, and a
+     * generation the output does not point at is an unfinished staging directory.
+     */
+    public void recoverOutput() throws IOException {
+        Files.deleteIfExists(linkFile);
+        if (Files.exists(retiredDir)) {
+            if (Files.exists(publishedDir, LinkOption.NOFOLLOW_LINKS)) {
+                deleteRecursively(retiredDir);
+            } else {
+                Files.move(retiredDir, publishedDir, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        Path live = liveGeneration();
+        for (Path generation : generationDirs) {
+            if (!generation.equals(live)) {
+                deleteRecursively(generation);
+            }
+        }
+    }
+
+    private void openStaging() throws IOException {
+        recoverOutput();
+        Path live = liveGeneration();
+        stagingDir = generationDirs.stream().filter(generation -> !generation.equals(live)).findFirst().orElseThrow();
+        Files.createDirectories(stagingDir);
+        outputDir = stagingDir;
+    }
+
+    /**
+     * The generation the output directory points at, or {@code null} while it is a plain
+     * directory or missing.
+     */
+    private Path liveGeneration() throws IOException {
+        if (!Files.isSymbolicLink(publishedDir)) {
+            return null;
+        }
+        return publishedDir.toAbsolutePath().resolveSibling(Files.readSymbolicLink(publishedDir)).normalize();
+    }
+
+    /**
+     * Directories an input scan must skip.
+     */
+    public List<Path> ownedDirectories() {
+        List<Path> owned = new ArrayList<>(generationDirs);
+        owned.add(publishedDir);
+        owned.add(retiredDir);
+        return owned;
+    }
+
+    private static Path siblingDirectory(Path dir, String suffix) {
+        Path absolute = dir.toAbsolutePath().normalize();
+        return absolute.resolveSibling(HIDDEN_PREFIX + absolute.getFileName() + suffix);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public void writeErrors(ErrorSet errors) throws IOException {
         if (!errors.isEmpty()) {
-            Path errorLogPath = outputDir.resolve(errorLogFile);
-            try (BufferedWriter writer = Files.newBufferedWriter(errorLogPath)) {
-                for (String error : errors) {
-                    writer.write(error);
-                    writer.newLine();
+            Path errorLogPath = outputDir.resolve(errorLogName());
+            limits.withOpenFile(() -> {
+                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                        Compression.newOutputStream(errorLogPath), StandardCharsets.UTF_8))) {
+                    for (String error : errors) {
+                        writer.write(error);
+                        writer.newLine();
+                    }
                 }
-            }
+            });
         }
     }
 
-    public void writeDepartmentFiles(Map<String, Department> departments, Set<String> errors) throws IOException {
-        for (Map.Entry<String, Department> entry : departments.entrySet()) {
-            String deptName = entry.getKey();
-            Department dept = entry.getValue();
+    /**
+     * At most {@link #maxOpenFiles} files are written at a time.
+     */
+    public void writeDepartmentFiles(Map<String, Department> departments, ErrorSink errors) throws IOException {
+        writeDepartmentFiles(departments, errors, (file, dept) -> {
+            writeDepartment(file, dept);
+            return null;
+        });
+    }
 
-            if (dept.getManager() == null) {
-                errors.add(MISSING_MANAGER_ERROR + deptName);
-                continue;
+    /**
+     * In a staged run, an unchanged file is hard-linked from the published output.
+     */
+    private void writeDepartment(Path file, Department dept) throws IOException {
+        limits.withOpenFile(() -> {
+            if (isStaging()) {
+                encoders.get().linkOrWriteDepartment(file, dept, publishedDir.resolve(file.getFileName()));
+            } else {
+                encoders.get().writeDepartment(file, dept);
             }
+        });
+    }
 
-            Path deptFile = outputDir.resolve(deptName + inputExtension);
-            try (BufferedWriter writer = Files.newBufferedWriter(deptFile)) {
-                Manager manager = dept.getManager();
-                writer.write(String.format(MANAGER_FORMAT,
-                        manager.getId(), manager.getName(), formatSalary(manager.getSalary())));
-                writer.newLine();
-                for (Employee emp : dept.getEmployees()) {
-                    writer.write(String.format(EMPLOYEE_FORMAT,
-                            emp.getId(), emp.getName(), formatSalary(emp.getSalary()), emp.getManagerId()));
-                    writer.newLine();
+    /**
+     * Rewrites only the files whose content hash changed; returns the hashes of all files by name.
+     */
+    public Map<String, byte[]> writeChangedDepartmentFiles(Map<String, Department> departments,
+                                                           ErrorSink errors,
+                                                           Map<String, byte[]> previousDigests) throws IOException {
+        Map<String, byte[]> digests = new ConcurrentHashMap<>();
+        writeDepartmentFiles(departments, errors, (file, dept) -> {
+            String fileName = file.getFileName().toString();
+            limits.withOpenFile(() -> digests.put(fileName,
+                    encoders.get().writeDepartmentIfChanged(file, dept, previousDigests.get(fileName))));
+            return null;
+        });
+        return digests;
+    }
+
+    public void writeDepartmentFile(String deptName, Department dept) throws IOException {
+        writeDepartment(outputDir.resolve(departmentFileName(deptName)), dept);
+    }
+
+    public String departmentFileName(String deptName) {
+        return deptName + inputExtension + outputSuffix();
+    }
+
+    private void writeDepartmentFiles(Map<String, Department> departments,
+                                      ErrorSink errors,
+                                      DepartmentWrite departmentWrite) throws IOException {
+        List<Future<?>> writes = new ArrayList<>();
+        Map<String, OutputIndex.Records> indexRecords = new ConcurrentHashMap<>();
+        ExecutorService executor = writeExecutor();
+        try {
+            for (Map.Entry<String, Department> entry : departments.entrySet()) {
+                String deptName = entry.getKey();
+                Department dept = entry.getValue();
+
+                if (dept.getManager() == null) {
+                    errors.add(MISSING_MANAGER_ERROR + deptName);
+                    continue;
                 }
+
+                Path deptFile = outputDir.resolve(departmentFileName(deptName));
+                Callable<Void> write = () -> {
+                    if (!indexOutput) {
+                        departmentWrite.write(deptFile, dept);
+                        return null;
+                    }
+                    OutputIndex.Records records = new OutputIndex.Records();
+                    encoders.get().setIndexRecords(records);
+                    try {
+                        departmentWrite.write(deptFile, dept);
+                    } finally {
+                        encoders.get().setIndexRecords(null);
+                    }
+                    indexRecords.put(deptName, records);
+                    return null;
+                };
+                writes.add(executor.submit(PipelineMetrics.onWorker(write)));
+            }
+            for (Future<?> write : writes) {
+                awaitWrite(write);
+            }
+        } finally {
+            // A failed write leaves the rest of the batch to be cancelled, not the pool.
+            writes.forEach(write -> write.cancel(true));
+        }
+        if (indexOutput) {
+            limits.withOpenFile(() -> OutputIndex.write(outputDir.resolve(OutputIndex.FILE_NAME), indexRecords));
+        }
+    }
+
+    private void awaitWrite(Future<?> write) throws IOException {
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
             }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the new hash, or {@code null} when there are no errors.
+     */
+    public byte[] writeErrorsIfChanged(ErrorSet errors, byte[] previousDigest) throws IOException {
+        if (errors.isEmpty()) {
+            return null;
+        }
+        MessageDigest digest = RunManifest.newDigest();
+        byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        for (String error : errors) {
+            digest.update(error.getBytes(StandardCharsets.UTF_8));
+            digest.update(lineSeparator);
+        }
+        byte[] errorsDigest = digest.digest();
+        if (!Arrays.equals(errorsDigest, previousDigest) || !Files.exists(outputDir.resolve(errorLogName()))) {
+            writeErrors(errors);
         }
+        return errorsDigest;
+    }
+
+    public String errorLogName() {
+        return errorLogFile + outputSuffix();
     }
 
-    public void writeStatistics(Map<String, Department> departments, Config config) throws IOException {
-        List<Stats> stats = departments.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(entry -> entry.getValue().calculateStats(entry.getKey()))
-                .toList();
+    private String outputSuffix() {
+        return compressOutput ? Compression.GZIP_SUFFIX : "";
+    }
+
+    public void ensureOutputDirectory() throws IOException {
+        Files.createDirectories(outputDir);
+    }
+
+    public void removeStaleFiles(Set<Path> keep) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(outputDir)) {
+            for (Path file : stream) {
+                if (!keep.contains(file.normalize()) && !isSpillDirectory(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
 
-        StringBuilder statsOutput = new StringBuilder(STAT_HEADER);
-        for (Stats stat : stats) {
-            statsOutput.append(String.format(STAT_FORMAT,
-                    stat.getDepartment(),
-                    salaryFormat.format(stat.getMinSalary()),
-                    salaryFormat.format(stat.getMaxSalary()),
-                    salaryFormat.format(stat.getAverageSalary())));
+    public long outputBytes() throws IOException {
+        long size = 0;
+        if (Files.isDirectory(outputDir)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(outputDir)) {
+                for (Path file : stream) {
+                    if (!isSpillDirectory(file)) {
+                        size += Files.size(file);
+                    }
+                }
+            }
         }
+        return size;
+    }
 
+    public void writeStatistics(CharSequence statistics, Config config) throws IOException {
         if (FILE_OUTPUT_TYPE.equals(config.getOutputType())) {
             Path outputPath = outputDir.resolve(config.getOutputPath());
-            try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-                writer.write(statsOutput.toString());
-            }
+            limits.withOpenFile(() -> {
+                try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
+                    writer.append(statistics);
+                }
+            });
         } else {
-            System.out.print(statsOutput);
+            System.out.print(statistics);
         }
     }
+
+    private boolean isSpillDirectory(Path file) {
+        return ExternalSorter.SPILL_DIRECTORY.equals(file.getFileName().toString());
+    }
+
+    @FunctionalInterface
+    private interface DepartmentWrite {
+        Void write(Path file, Department department) throws IOException;
+    }
 }
@@ -0,0 +1,19 @@
+package by.koronatech.api;
+
+import by.koronatech.Config;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * One batch for {@link BatchExecutor}; the output directory takes the place of {@code output/}.
+ */
+@Getter
+@AllArgsConstructor
+public class BatchJob {
+
+    private Path inputDirectory;
+    private Path outputDirectory;
+    private Config config;
+}
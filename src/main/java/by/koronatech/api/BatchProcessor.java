@@ -0,0 +1,118 @@
+package by.koronatech.api;
+
+import by.koronatech.App;
+import by.koronatech.Config;
+import by.koronatech.DistributionOptions;
+import by.koronatech.ErrorLog;
+import by.koronatech.ErrorSet;
+import by.koronatech.ExternalSorter;
+import by.koronatech.ParseState;
+import by.koronatech.ParseWindow;
+import by.koronatech.Parser;
+import by.koronatech.PipelineMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Runs batches inside a host application, writing through the same {@link OutputStage} as the
+ * command line. Holds no state between batches, so batches may run concurrently on one processor.
+ */
+public class BatchProcessor {
+
+    public static final String UNSUPPORTED_OPTION = "Параметр не поддерживается в библиотечном режиме: ";
+    public static final String STREAM_ERRORS_WITHOUT_FILES =
+            "Параметр stream-errors требует приёмника, который пишет файлы";
+    public static final String SPILL_PREFIX = "spill-";
+
+    private final Config config;
+    private final DistributionOptions distributionOptions;
+
+    /**
+     * @throws IllegalArgumentException if {@code config} uses an unsupported option
+     */
+    public BatchProcessor(Config config) {
+        App.postValidate(config);
+        rejectUnsupported(config);
+        this.config = config;
+        this.distributionOptions = DistributionOptions.of(config);
+    }
+
+    /**
+     * Parses {@code sources} as input files in that order.
+     *
+     * @throws IllegalArgumentException with {@code --stream-errors} if {@code sink} writes no files
+     */
+    public ParseState process(List<InputSource> sources, OutputSink sink) throws IOException {
+        Parser parser = newParser();
+        PipelineMetrics metrics = new PipelineMetrics();
+        // Spilled runs need a directory of their own; the sink may not have one.
+        Path spillDirectory = config.getSpillThreshold() != null ? Files.createTempDirectory(SPILL_PREFIX) : null;
+        try (ExternalSorter externalSorter = spillDirectory != null
+                ? new ExternalSorter(spillDirectory, config.getSpillThreshold(), config.getSortType(),
+                config.getOrder())
+                : null;
+             ErrorLog errorLog = config.isStreamErrors() ? openErrorLog(sink) : null) {
+            ParseState state = new ParseState(errorLog != null ? errorLog : new ErrorSet());
+            parser.setExternalSorter(externalSorter);
+            if (config.isParallel()) {
+                ParseWindow window = new ParseWindow(parser, state);
+                for (InputSource source : sources) {
+                    window.submit(source, () -> source.read(parser));
+                }
+                window.finish();
+            } else {
+                for (InputSource source : sources) {
+                    source.parse(parser, state);
+                }
+            }
+            state.resolvePendingEmployees();
+            OutputStage.run(config, state, sink, metrics);
+            return state;
+        } finally {
+            if (spillDirectory != null) {
+                Files.deleteIfExists(spillDirectory);
+            }
+        }
+    }
+
+    private ErrorLog openErrorLog(OutputSink sink) throws IOException {
+        ErrorLog errorLog = sink.openErrorLog(config);
+        if (errorLog == null) {
+            throw new IllegalArgumentException(STREAM_ERRORS_WITHOUT_FILES);
+        }
+        return errorLog;
+    }
+
+    private Parser newParser() {
+        Parser parser = new Parser();
+        parser.setMemoryMapped(config.isMemoryMapped());
+        parser.setFixedPoint(config.isFixedPoint());
+        parser.setStreamingStats(config.isStreamingStats());
+        parser.setColumnar(config.getEmployeeStore() != null);
+        parser.setOffHeap(App.STORE_OFF_HEAP.equals(config.getEmployeeStore()));
+        parser.setDistributionOptions(distributionOptions);
+        return parser;
+    }
+
+    private static void rejectUnsupported(Config config) {
+        rejectIf(config.isWatch(), App.WATCH_FLAG);
+        rejectIf(config.isIncremental(), App.INCREMENTAL_FLAG);
+        rejectIf(config.getSnapshotIn() != null, App.SNAPSHOT_IN_FLAG);
+        rejectIf(config.getSnapshotOut() != null, App.SNAPSHOT_OUT_FLAG);
+        rejectIf(config.getOutputType() != null, App.OUTPUT_FLAG_LONG);
+        rejectIf(config.getMetricsPath() != null, App.METRICS_FLAG);
+        rejectIf(config.getChunkSize() != null, App.CHUNK_SIZE_FLAG);
+        rejectIf(config.getInputRoots() != null, App.INPUT_FLAG);
+        rejectIf(config.isRecursive(), App.RECURSIVE_FLAG);
+        rejectIf(config.isAtomicOutput(), App.ATOMIC_OUTPUT_FLAG);
+    }
+
+    private static void rejectIf(boolean unsupported, String flag) {
+        if (unsupported) {
+            throw new IllegalArgumentException(UNSUPPORTED_OPTION + flag);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package by.koronatech.api;
+
+import by.koronatech.App;
+import by.koronatech.Compression;
+import by.koronatech.Config;
+import by.koronatech.Department;
+import by.koronatech.ErrorLog;
+import by.koronatech.ErrorSink;
+import by.koronatech.Writer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Writes the error log and the department files into a directory, as the command line does. The
+ * directory is emptied before the first file is written.
+ */
+public class DirectorySink implements OutputSink {
+
+    private final Writer writer;
+    private final boolean ownsWriter;
+    private ErrorSink errors;
+    private boolean prepared;
+
+    public DirectorySink(Path outputDir) {
+        this(outputDir, false);
+    }
+
+    public DirectorySink(Path outputDir, boolean compressOutput) {
+        this(new Writer(outputDir, App.ERROR_LOG, App.INPUT_EXTENSION), true);
+        writer.setCompressOutput(compressOutput);
+    }
+
+    /**
+     * Takes {@code --compress}, {@code --index} and {@code --max-open-files} from {@code config}.
+     */
+    public DirectorySink(Path outputDir, Config config) {
+        this(outputDir, Compression.GZIP.equals(config.getCompression()));
+        writer.setIndexOutput(config.isIndex());
+        if (config.getMaxOpenFiles() != null) {
+            writer.setMaxOpenFiles(config.getMaxOpenFiles());
+        }
+    }
+
+    /**
+     * {@code writer} is left open.
+     */
+    public DirectorySink(Writer writer) {
+        this(writer, false);
+    }
+
+    private DirectorySink(Writer writer, boolean ownsWriter) {
+        this.writer = writer;
+        this.ownsWriter = ownsWriter;
+    }
+
+    @Override
+    public ErrorLog openErrorLog(Config config) throws IOException {
+        prepare();
+        return new ErrorLog(writer.getOutputDir().resolve(writer.errorLogName()),
+                config.getMaxErrors() != null ? config.getMaxErrors() : ErrorLog.UNLIMITED,
+                config.getErrorSample() != null ? config.getErrorSample() : ErrorLog.NO_SAMPLING);
+    }
+
+    @Override
+    public void errors(ErrorSink errors) throws IOException {
+        prepare();
+        errors.writeTo(writer);
+        this.errors = errors;
+    }
+
+    @Override
+    public void departments(Map<String, Department> departments) throws IOException {
+        writer.writeDepartmentFiles(departments, errors);
+    }
+
+    @Override
+    public void department(String name, Department department) throws IOException {
+        writer.writeDepartmentFile(name, department);
+    }
+
+    @Override
+    public void finish() {
+        if (ownsWriter) {
+            writer.close();
+        }
+    }
+
+    private void prepare() throws IOException {
+        if (!prepared) {
+            writer.prepareOutputDirectory();
+            prepared = true;
+        }
+    }
+}
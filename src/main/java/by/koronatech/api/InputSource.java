@@ -0,0 +1,42 @@
+package by.koronatech.api;
+
+import by.koronatech.ParseState;
+import by.koronatech.ParsedLine;
+import by.koronatech.Parser;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * One input of a batch: a file or a stream of {@code .sb} lines. A stream source can be used only
+ * once.
+ */
+public interface InputSource {
+
+    String getName();
+
+    void parse(Parser parser, ParseState state);
+
+    /**
+     * Touches no state, so sources can be read concurrently and merged in order.
+     */
+    List<ParsedLine> read(Parser parser);
+
+    /**
+     * Memory-mapped if the batch asks for it, decompressed if the name ends in {@code .gz}.
+     */
+    static InputSource of(Path file) {
+        return new PathSource(file);
+    }
+
+    static InputSource of(String name, InputStream in) {
+        return new StreamSource(name, in);
+    }
+
+    static InputSource of(String name, ReadableByteChannel channel) {
+        return new StreamSource(name, Channels.newInputStream(channel));
+    }
+}
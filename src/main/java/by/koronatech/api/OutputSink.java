@@ -0,0 +1,103 @@
+package by.koronatech.api;
+
+import by.koronatech.Config;
+import by.koronatech.Department;
+import by.koronatech.ErrorLog;
+import by.koronatech.ErrorSink;
+import by.koronatech.Rollup;
+import by.koronatech.Stats;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Receives the results of a batch from {@link OutputStage}, on the batch thread: the errors, then
+ * the departments, then the statistics rows. Every method does nothing by default.
+ */
+public interface OutputSink {
+
+    /**
+     * With {@code --stream-errors}; {@code null} if the sink writes no files.
+     */
+    default ErrorLog openErrorLog(Config config) throws IOException {
+        return null;
+    }
+
+    default void errors(ErrorSink errors) throws IOException {
+    }
+
+    /**
+     * Not called with {@code --stat-only}.
+     */
+    default void departments(Map<String, Department> departments) throws IOException {
+        for (Map.Entry<String, Department> entry : new TreeMap<>(departments).entrySet()) {
+            if (entry.getValue().getManager() != null) {
+                department(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    default void department(String name, Department department) throws IOException {
+    }
+
+    /**
+     * {@code level} is one of the {@code Rollup.LEVEL_*} values.
+     */
+    default void statistics(String level, Stats stats) throws IOException {
+    }
+
+    /**
+     * Not called when the batch failed.
+     */
+    default void finish() throws IOException {
+    }
+
+    /**
+     * The error log is opened by the first of {@code sinks} that writes files.
+     */
+    static OutputSink of(OutputSink... sinks) {
+        List<OutputSink> targets = List.of(sinks);
+        return new OutputSink() {
+            @Override
+            public ErrorLog openErrorLog(Config config) throws IOException {
+                for (OutputSink sink : targets) {
+                    ErrorLog errorLog = sink.openErrorLog(config);
+                    if (errorLog != null) {
+                        return errorLog;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void errors(ErrorSink errors) throws IOException {
+                for (OutputSink sink : targets) {
+                    sink.errors(errors);
+                }
+            }
+
+            @Override
+            public void departments(Map<String, Department> departments) throws IOException {
+                for (OutputSink sink : targets) {
+                    sink.departments(departments);
+                }
+            }
+
+            @Override
+            public void statistics(String level, Stats stats) throws IOException {
+                for (OutputSink sink : targets) {
+                    sink.statistics(level, stats);
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                for (OutputSink sink : targets) {
+                    sink.finish();
+                }
+            }
+        };
+    }
+}
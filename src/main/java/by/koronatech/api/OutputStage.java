@@ -0,0 +1,69 @@
+package by.koronatech.api;
+
+import by.koronatech.Config;
+import by.koronatech.Department;
+import by.koronatech.DistributionOptions;
+import by.koronatech.ParseState;
+import by.koronatech.PipelineMetrics;
+import by.koronatech.Rollup;
+import by.koronatech.SalaryAccumulator;
+import by.koronatech.Writer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything after parsing, shared by the command line and {@link BatchProcessor}.
+ */
+public final class OutputStage {
+
+    private OutputStage() {
+    }
+
+    public static void run(Config config, ParseState state, OutputSink sink, PipelineMetrics metrics)
+            throws IOException {
+        Map<String, Department> departments = state.getDepartments();
+        metrics.stage(PipelineMetrics.STAGE_ERRORS, () -> sink.errors(state.getErrors()));
+        metrics.stage(PipelineMetrics.STAGE_SORT, () -> arrangeDepartments(config, departments));
+        if (!config.isStreamingStats()) {
+            metrics.stage(PipelineMetrics.STAGE_DEPARTMENTS, () -> sink.departments(departments));
+        }
+        if (config.isGenerateStats()) {
+            metrics.stage(PipelineMetrics.STAGE_STATISTICS, () -> emitStatistics(config, departments, sink));
+        }
+        sink.finish();
+    }
+
+    private static void arrangeDepartments(Config config, Map<String, Department> departments) {
+        if (config.getSortType() != null) {
+            departments.values().parallelStream()
+                    .forEach(PipelineMetrics.eachOnWorker(dept -> dept.arrangeEmployees(config)));
+        }
+    }
+
+    private static void emitStatistics(Config config, Map<String, Department> departments, OutputSink sink)
+            throws IOException {
+        DistributionOptions options = DistributionOptions.of(config);
+        Rollup rollup = Rollup.of(config, options);
+        List<Map.Entry<String, SalaryAccumulator>> summaries = departments.entrySet().parallelStream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(PipelineMetrics.mapOnWorker(entry -> Map.entry(entry.getKey(),
+                        entry.getValue().summarizeSalaries(options, config.isIncludeManagers()))))
+                .toList();
+        for (Map.Entry<String, SalaryAccumulator> summary : summaries) {
+            if (rollup != null) {
+                rollup.add(summary.getKey(), summary.getValue());
+            }
+            sink.statistics(Rollup.LEVEL_DEPARTMENT, summary.getValue().toStats(summary.getKey()));
+        }
+        if (rollup != null) {
+            for (Map.Entry<String, SalaryAccumulator> group : rollup.getGroups().entrySet()) {
+                sink.statistics(Rollup.LEVEL_GROUP, group.getValue().toStats(group.getKey()));
+            }
+            if (rollup.getCompany() != null) {
+                sink.statistics(Rollup.LEVEL_COMPANY, rollup.getCompany().toStats(Writer.COMPANY_ROW_NAME));
+            }
+        }
+    }
+}
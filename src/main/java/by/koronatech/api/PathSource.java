@@ -0,0 +1,30 @@
+package by.koronatech.api;
+
+import by.koronatech.ParseState;
+import by.koronatech.ParsedLine;
+import by.koronatech.Parser;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+@RequiredArgsConstructor
+class PathSource implements InputSource {
+
+    private final Path file;
+
+    @Override
+    public String getName() {
+        return file.toString();
+    }
+
+    @Override
+    public void parse(Parser parser, ParseState state) {
+        parser.parseFile(file, state);
+    }
+
+    @Override
+    public List<ParsedLine> read(Parser parser) {
+        return parser.readFile(file);
+    }
+}
@@ -0,0 +1,47 @@
+package by.koronatech.api;
+
+import by.koronatech.Config;
+import by.koronatech.DistributionOptions;
+import by.koronatech.Rollup;
+import by.koronatech.StatisticsFormat;
+import by.koronatech.Stats;
+
+import java.io.IOException;
+
+/**
+ * Appends the {@code --stat} table to {@code out}, which is not closed.
+ */
+public class StatisticsCsvSink implements OutputSink {
+
+    private final Appendable out;
+    private final DistributionOptions options;
+    private final boolean withLevel;
+    private boolean headerWritten;
+
+    public StatisticsCsvSink(Appendable out, Config config) {
+        this.out = out;
+        this.options = DistributionOptions.of(config);
+        this.withLevel = Rollup.isRequested(config);
+    }
+
+    @Override
+    public void statistics(String level, Stats stats) throws IOException {
+        writeHeader();
+        out.append(StatisticsFormat.row(withLevel ? level : null, stats));
+    }
+
+    /**
+     * A batch without departments still gets the header.
+     */
+    @Override
+    public void finish() throws IOException {
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            out.append(StatisticsFormat.header(options, withLevel));
+            headerWritten = true;
+        }
+    }
+}
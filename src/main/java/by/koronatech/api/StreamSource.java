@@ -0,0 +1,31 @@
+package by.koronatech.api;
+
+import by.koronatech.ParseState;
+import by.koronatech.ParsedLine;
+import by.koronatech.Parser;
+import lombok.RequiredArgsConstructor;
+
+import java.io.InputStream;
+import java.util.List;
+
+@RequiredArgsConstructor
+class StreamSource implements InputSource {
+
+    private final String name;
+    private final InputStream in;
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void parse(Parser parser, ParseState state) {
+        parser.parseStream(name, in, state);
+    }
+
+    @Override
+    public List<ParsedLine> read(Parser parser) {
+        return parser.readStream(name, in);
+    }
+}
@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class AtomicOutputValidator implements ArgumentValidator {
+
+    public static final String ATOMIC_OUTPUT_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать атомарную публикацию результатов не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isAtomicOutput()) {
+            throw new IllegalArgumentException(ATOMIC_OUTPUT_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setAtomicOutput(true);
+    }
+}
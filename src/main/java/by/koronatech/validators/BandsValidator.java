@@ -0,0 +1,45 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+import by.koronatech.Salaries;
+
+public class BandsValidator implements ArgumentValidator {
+
+    public static final String BANDS_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать границы зарплатных диапазонов не более одного раза";
+    public static final String INVALID_BANDS = "Недопустимые границы зарплатных диапазонов: ";
+    public static final String BANDS_DELIMITER = ",";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getSalaryBands() != null) {
+            throw new IllegalArgumentException(BANDS_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || parseBands(value) == null) {
+            throw new IllegalArgumentException(INVALID_BANDS + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setSalaryBands(parseBands(value));
+    }
+
+    /**
+     * Returns the bounds in cents, or {@code null} unless they are positive, exact in cents and
+     * strictly ascending.
+     */
+    private long[] parseBands(String value) {
+        String[] parts = value.split(BANDS_DELIMITER, -1);
+        long[] bounds = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            long cents = Salaries.parseCents(parts[i].trim());
+            if (cents == Salaries.NO_CENTS || cents <= 0 || i > 0 && cents <= bounds[i - 1]) {
+                return null;
+            }
+            bounds[i] = cents;
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,30 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class ChunkSizeValidator implements ArgumentValidator {
+
+    public static final String CHUNK_SIZE_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать размер части файла не более одного раза";
+    public static final String INVALID_CHUNK_SIZE = "Недопустимый размер части файла: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getChunkSize() != null) {
+            throw new IllegalArgumentException(CHUNK_SIZE_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || Long.parseLong(value) <= 0) {
+                throw new IllegalArgumentException(INVALID_CHUNK_SIZE + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_CHUNK_SIZE + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setChunkSize(Long.parseLong(value));
+    }
+}
@@ -0,0 +1,29 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+import java.util.Arrays;
+
+public class CompressValidator implements ArgumentValidator {
+
+    public static final String COMPRESS_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать сжатие не более одного раза";
+    public static final String[] VALID_COMPRESSIONS = {"gzip"};
+    public static final String INVALID_COMPRESSION = "Недопустимый формат сжатия: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getCompression() != null) {
+            throw new IllegalArgumentException(COMPRESS_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (!Arrays.asList(VALID_COMPRESSIONS).contains(value)) {
+            throw new IllegalArgumentException(INVALID_COMPRESSION + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setCompression(value);
+    }
+}
@@ -0,0 +1,29 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+import java.util.Arrays;
+
+public class EmployeeStoreValidator implements ArgumentValidator {
+
+    public static final String EMPLOYEE_STORE_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать хранилище сотрудников не более одного раза";
+    public static final String[] VALID_EMPLOYEE_STORES = {"columnar", "off-heap"};
+    public static final String INVALID_EMPLOYEE_STORE = "Недопустимое хранилище сотрудников: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getEmployeeStore() != null) {
+            throw new IllegalArgumentException(EMPLOYEE_STORE_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (!Arrays.asList(VALID_EMPLOYEE_STORES).contains(value)) {
+            throw new IllegalArgumentException(INVALID_EMPLOYEE_STORE + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setEmployeeStore(value);
+    }
+}
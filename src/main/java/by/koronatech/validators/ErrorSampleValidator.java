@@ -0,0 +1,30 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class ErrorSampleValidator implements ArgumentValidator {
+
+    public static final String ERROR_SAMPLE_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать частоту выборки ошибок не более одного раза";
+    public static final String INVALID_ERROR_SAMPLE = "Недопустимая частота выборки ошибок: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getErrorSample() != null) {
+            throw new IllegalArgumentException(ERROR_SAMPLE_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || Integer.parseInt(value) <= 0) {
+                throw new IllegalArgumentException(INVALID_ERROR_SAMPLE + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_ERROR_SAMPLE + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setErrorSample(Integer.parseInt(value));
+    }
+}
@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class FixedPointValidator implements ArgumentValidator {
+
+    public static final String FIXED_POINT_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать хранение зарплат в копейках не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isFixedPoint()) {
+            throw new IllegalArgumentException(FIXED_POINT_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setFixedPoint(true);
+    }
+}
@@ -0,0 +1,34 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public class GroupByValidator implements ArgumentValidator {
+
+    public static final String GROUP_BY_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать шаблон группировки не более одного раза";
+    public static final String INVALID_GROUP_PATTERN = "Недопустимый шаблон группировки: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getGroupPattern() != null) {
+            throw new IllegalArgumentException(GROUP_BY_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(INVALID_GROUP_PATTERN + value);
+        }
+        try {
+            Pattern.compile(value);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException(INVALID_GROUP_PATTERN + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setGroupPattern(value);
+    }
+}
@@ -0,0 +1,26 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class GroupMapValidator implements ArgumentValidator {
+
+    public static final String GROUP_MAP_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать файл групп департаментов не более одного раза";
+    public static final String GROUP_MAP_REQUIRED = "Не указан файл групп департаментов";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getGroupMap() != null) {
+            throw new IllegalArgumentException(GROUP_MAP_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(GROUP_MAP_REQUIRED);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setGroupMap(value);
+    }
+}
@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class IncludeManagersValidator implements ArgumentValidator {
+
+    public static final String INCLUDE_MANAGERS_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать учёт зарплат менеджеров не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isIncludeManagers()) {
+            throw new IllegalArgumentException(INCLUDE_MANAGERS_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setIncludeManagers(true);
+    }
+}
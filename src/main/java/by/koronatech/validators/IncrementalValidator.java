@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class IncrementalValidator implements ArgumentValidator {
+
+    public static final String INCREMENTAL_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать инкрементальный режим не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isIncremental()) {
+            throw new IllegalArgumentException(INCREMENTAL_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setIncremental(true);
+    }
+}
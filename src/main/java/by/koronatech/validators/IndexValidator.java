@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class IndexValidator implements ArgumentValidator {
+
+    public static final String INDEX_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать построение индекса не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isIndex()) {
+            throw new IllegalArgumentException(INDEX_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setIndex(true);
+    }
+}
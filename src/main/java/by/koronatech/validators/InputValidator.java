@@ -0,0 +1,34 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class InputValidator implements ArgumentValidator {
+
+    public static final String INPUT_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать папки с входными файлами не более одного раза";
+    public static final String INVALID_INPUT = "Недопустимый список папок с входными файлами: ";
+    public static final String INPUT_DELIMITER = ",";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getInputRoots() != null) {
+            throw new IllegalArgumentException(INPUT_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || parseRoots(value).stream().anyMatch(String::isBlank)) {
+            throw new IllegalArgumentException(INVALID_INPUT + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setInputRoots(parseRoots(value));
+    }
+
+    private List<String> parseRoots(String value) {
+        return Arrays.stream(value.split(INPUT_DELIMITER, -1)).map(String::trim).toList();
+    }
+}
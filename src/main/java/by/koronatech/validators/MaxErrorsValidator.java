@@ -0,0 +1,30 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class MaxErrorsValidator implements ArgumentValidator {
+
+    public static final String MAX_ERRORS_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать предельное число строк ошибок не более одного раза";
+    public static final String INVALID_MAX_ERRORS = "Недопустимое предельное число строк ошибок: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getMaxErrors() != null) {
+            throw new IllegalArgumentException(MAX_ERRORS_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || Long.parseLong(value) <= 0) {
+                throw new IllegalArgumentException(INVALID_MAX_ERRORS + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_MAX_ERRORS + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setMaxErrors(Long.parseLong(value));
+    }
+}
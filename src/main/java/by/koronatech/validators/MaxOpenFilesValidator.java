@@ -0,0 +1,30 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class MaxOpenFilesValidator implements ArgumentValidator {
+
+    public static final String MAX_OPEN_FILES_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать максимальное число открытых файлов не более одного раза";
+    public static final String INVALID_MAX_OPEN_FILES = "Недопустимое максимальное число открытых файлов: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getMaxOpenFiles() != null) {
+            throw new IllegalArgumentException(MAX_OPEN_FILES_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || Integer.parseInt(value) <= 0) {
+                throw new IllegalArgumentException(INVALID_MAX_OPEN_FILES + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_MAX_OPEN_FILES + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setMaxOpenFiles(Integer.parseInt(value));
+    }
+}
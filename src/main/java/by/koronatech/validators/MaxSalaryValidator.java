@@ -0,0 +1,32 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+import java.math.BigDecimal;
+
+public class MaxSalaryValidator implements ArgumentValidator {
+
+    public static final String MAX_SALARY_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать верхнюю границу зарплаты не более одного раза";
+    public static final String INVALID_MAX_SALARY = "Недопустимая верхняя граница зарплаты: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getMaxSalary() != null) {
+            throw new IllegalArgumentException(MAX_SALARY_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || new BigDecimal(value).signum() < 0) {
+                throw new IllegalArgumentException(INVALID_MAX_SALARY + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_MAX_SALARY + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setMaxSalary(new BigDecimal(value));
+    }
+}
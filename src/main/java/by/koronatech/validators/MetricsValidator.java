@@ -0,0 +1,26 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class MetricsValidator implements ArgumentValidator {
+
+    public static final String METRICS_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать файл отчёта о метриках не более одного раза";
+    public static final String METRICS_REQUIRED = "Не указан файл отчёта о метриках";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getMetricsPath() != null) {
+            throw new IllegalArgumentException(METRICS_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(METRICS_REQUIRED);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setMetricsPath(value);
+    }
+}
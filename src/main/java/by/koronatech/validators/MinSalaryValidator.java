@@ -0,0 +1,32 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+import java.math.BigDecimal;
+
+public class MinSalaryValidator implements ArgumentValidator {
+
+    public static final String MIN_SALARY_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать нижнюю границу зарплаты не более одного раза";
+    public static final String INVALID_MIN_SALARY = "Недопустимая нижняя граница зарплаты: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getMinSalary() != null) {
+            throw new IllegalArgumentException(MIN_SALARY_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || new BigDecimal(value).signum() < 0) {
+                throw new IllegalArgumentException(INVALID_MIN_SALARY + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_MIN_SALARY + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setMinSalary(new BigDecimal(value));
+    }
+}
@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class MmapValidator implements ArgumentValidator {
+
+    public static final String MMAP_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать чтение через отображение в память не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isMemoryMapped()) {
+            throw new IllegalArgumentException(MMAP_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setMemoryMapped(true);
+    }
+}
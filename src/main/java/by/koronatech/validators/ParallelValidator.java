@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class ParallelValidator implements ArgumentValidator {
+
+    public static final String PARALLEL_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать параллельную обработку не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isParallel()) {
+            throw new IllegalArgumentException(PARALLEL_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setParallel(true);
+    }
+}
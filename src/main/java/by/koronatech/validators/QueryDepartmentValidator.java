@@ -0,0 +1,26 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class QueryDepartmentValidator implements ArgumentValidator {
+
+    public static final String QUERY_DEPARTMENT_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать департамент для запроса не более одного раза";
+    public static final String QUERY_DEPARTMENT_REQUIRED = "Не указан департамент для запроса";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getQueryDepartment() != null) {
+            throw new IllegalArgumentException(QUERY_DEPARTMENT_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(QUERY_DEPARTMENT_REQUIRED);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setQueryDepartment(value);
+    }
+}
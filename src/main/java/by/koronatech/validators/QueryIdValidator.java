@@ -0,0 +1,28 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class QueryIdValidator implements ArgumentValidator {
+
+    public static final String QUERY_ID_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать идентификатор сотрудника для запроса не более одного раза";
+    public static final String INVALID_QUERY_ID = "Недопустимый идентификатор сотрудника: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getQueryId() != null) {
+            throw new IllegalArgumentException(QUERY_ID_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_QUERY_ID + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setQueryId(Integer.parseInt(value));
+    }
+}
@@ -0,0 +1,28 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class QueryManagerValidator implements ArgumentValidator {
+
+    public static final String QUERY_MANAGER_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать идентификатор менеджера для запроса не более одного раза";
+    public static final String INVALID_QUERY_MANAGER = "Недопустимый идентификатор менеджера: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getQueryManagerId() != null) {
+            throw new IllegalArgumentException(QUERY_MANAGER_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_QUERY_MANAGER + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setQueryManagerId(Integer.parseInt(value));
+    }
+}
@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class RecursiveValidator implements ArgumentValidator {
+
+    public static final String RECURSIVE_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать рекурсивный поиск входных файлов не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isRecursive()) {
+            throw new IllegalArgumentException(RECURSIVE_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setRecursive(true);
+    }
+}
@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class RollupCompanyValidator implements ArgumentValidator {
+
+    public static final String ROLLUP_COMPANY_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать итог по компании не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isRollupCompany()) {
+            throw new IllegalArgumentException(ROLLUP_COMPANY_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setRollupCompany(true);
+    }
+}
@@ -0,0 +1,26 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class SnapshotInValidator implements ArgumentValidator {
+
+    public static final String SNAPSHOT_IN_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать файл снимка для загрузки не более одного раза";
+    public static final String SNAPSHOT_IN_REQUIRED = "Не указан файл снимка для загрузки";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getSnapshotIn() != null) {
+            throw new IllegalArgumentException(SNAPSHOT_IN_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(SNAPSHOT_IN_REQUIRED);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setSnapshotIn(value);
+    }
+}
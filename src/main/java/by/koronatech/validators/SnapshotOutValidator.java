@@ -0,0 +1,26 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class SnapshotOutValidator implements ArgumentValidator {
+
+    public static final String SNAPSHOT_OUT_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать файл для записи снимка не более одного раза";
+    public static final String SNAPSHOT_OUT_REQUIRED = "Не указан файл для записи снимка";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getSnapshotOut() != null) {
+            throw new IllegalArgumentException(SNAPSHOT_OUT_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(SNAPSHOT_OUT_REQUIRED);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setSnapshotOut(value);
+    }
+}
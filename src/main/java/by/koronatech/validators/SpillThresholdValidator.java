@@ -0,0 +1,30 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class SpillThresholdValidator implements ArgumentValidator {
+
+    public static final String SPILL_THRESHOLD_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать порог сброса на диск не более одного раза";
+    public static final String INVALID_SPILL_THRESHOLD = "Недопустимый порог сброса на диск: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getSpillThreshold() != null) {
+            throw new IllegalArgumentException(SPILL_THRESHOLD_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || Integer.parseInt(value) <= 0) {
+                throw new IllegalArgumentException(INVALID_SPILL_THRESHOLD + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_SPILL_THRESHOLD + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setSpillThreshold(Integer.parseInt(value));
+    }
+}
@@ -0,0 +1,30 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class StatExactValidator implements ArgumentValidator {
+
+    public static final String STAT_EXACT_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать предел точной статистики не более одного раза";
+    public static final String INVALID_STAT_EXACT = "Недопустимый предел точной статистики: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getExactStatLimit() != null) {
+            throw new IllegalArgumentException(STAT_EXACT_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || Integer.parseInt(value) <= 0) {
+                throw new IllegalArgumentException(INVALID_STAT_EXACT + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_STAT_EXACT + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setExactStatLimit(Integer.parseInt(value));
+    }
+}
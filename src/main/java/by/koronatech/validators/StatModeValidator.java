@@ -0,0 +1,28 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+import java.util.Arrays;
+
+public class StatModeValidator implements ArgumentValidator {
+
+    public static final String[] VALID_STAT_MODES = {"basic", "percentiles", "histogram"};
+    public static final String INVALID_STAT_MODE = "Недопустимый режим статистики: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isGenerateStats()) {
+            throw new IllegalArgumentException(StatValidator.STATS_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        if (!Arrays.asList(VALID_STAT_MODES).contains(value)) {
+            throw new IllegalArgumentException(INVALID_STAT_MODE + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setGenerateStats(true);
+        config.setStatMode(value);
+    }
+}
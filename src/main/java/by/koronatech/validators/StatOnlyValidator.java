@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class StatOnlyValidator implements ArgumentValidator {
+
+    public static final String STAT_ONLY_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать режим stat-only не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isStreamingStats()) {
+            throw new IllegalArgumentException(STAT_ONLY_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setStreamingStats(true);
+    }
+}
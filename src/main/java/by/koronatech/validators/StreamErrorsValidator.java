@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class StreamErrorsValidator implements ArgumentValidator {
+
+    public static final String STREAM_ERRORS_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать потоковую запись ошибок не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isStreamErrors()) {
+            throw new IllegalArgumentException(STREAM_ERRORS_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setStreamErrors(true);
+    }
+}
@@ -0,0 +1,30 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class TopValidator implements ArgumentValidator {
+
+    public static final String TOP_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать количество сотрудников для top не более одного раза";
+    public static final String INVALID_TOP = "Недопустимое количество сотрудников для top: ";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.getTop() != null) {
+            throw new IllegalArgumentException(TOP_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+        try {
+            if (value == null || Integer.parseInt(value) <= 0) {
+                throw new IllegalArgumentException(INVALID_TOP + value);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_TOP + value);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setTop(Integer.parseInt(value));
+    }
+}
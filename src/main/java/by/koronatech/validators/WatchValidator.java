@@ -0,0 +1,22 @@
+package by.koronatech.validators;
+
+import by.koronatech.ArgumentValidator;
+import by.koronatech.Config;
+
+public class WatchValidator implements ArgumentValidator {
+
+    public static final String WATCH_DUPLICATE_EXCEPTION_MESSAGE =
+            "Допускается указывать режим наблюдения не более одного раза";
+
+    @Override
+    public void preValidate(Config config, String value) {
+        if (config.isWatch()) {
+            throw new IllegalArgumentException(WATCH_DUPLICATE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    @Override
+    public void apply(Config config, String value) {
+        config.setWatch(true);
+    }
+}
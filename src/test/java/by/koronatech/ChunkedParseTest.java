@@ -0,0 +1,79 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedParseTest {
+
+    /**
+     * Id 50 repeats with a different salary and id 51 repeats verbatim, each on the far side of
+     * some chunk boundary; the second manager of Sales comes after its employees.
+     */
+    private static final String INPUT = """
+            Manager,1,Anna,5000,Sales
+            Employee,50,Ivan,1000,1
+            Employee,50,Ivan,1100,1
+            Employee,51,Olga,1200,1\r
+            Employee,51,Olga,1200,1
+            Manager,2,Boris,6000,Sales
+            Employee,50,Pavel,1300,2
+            Employee,52,Rita,1400,2
+            """;
+
+    @TempDir
+    Path temp;
+
+    /**
+     * From one line per chunk to one chunk for the file, boundaries fall on and just past line breaks.
+     */
+    @ParameterizedTest(name = "chunk size {0}")
+    @ValueSource(longs = {1, 23, 24, 25, 48, 100, 1 << 20})
+    void chunksSplittingDuplicateIdsMatchOneScan(long chunkSize) throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        Path file = Files.writeString(input.resolve("input1.sb"), INPUT);
+
+        List<FileChunk> chunks = mappedParser().splitFile(file, chunkSize);
+        long position = 0;
+        for (FileChunk chunk : chunks) {
+            assertEquals(position, chunk.getFrom());
+            assertTrue(position == 0 || "\r\n".indexOf(INPUT.charAt((int) position - 1)) >= 0);
+            position = chunk.getTo();
+        }
+        assertEquals(Files.size(file), position);
+
+        Map<String, String> expected = run(input, config -> { });
+        assertTrue(expected.get("Sales.sb").contains("Employee,50,Ivan,1000"));
+        assertEquals(expected, run(input, config -> {
+            config.setParallel(true);
+            config.setMemoryMapped(true);
+            config.setChunkSize(chunkSize);
+        }));
+    }
+
+    private static Parser mappedParser() {
+        Parser parser = new Parser();
+        parser.setMemoryMapped(true);
+        return parser;
+    }
+
+    private Map<String, String> run(Path input, Consumer<Config> options) throws IOException {
+        Path output = Files.createTempDirectory(temp, "output");
+        Config config = new Config();
+        options.accept(config);
+        App.postValidate(config);
+        new App(input, Map.of(), new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION), new Parser())
+                .processFiles(config);
+        return TestInput.readFiles(output);
+    }
+}
@@ -0,0 +1,120 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorLogTest {
+
+    private static final int LINES = 100;
+
+    @TempDir
+    Path temp;
+
+    /**
+     * Below, at and above the number of distinct lines; repeats never count against the cap.
+     */
+    @ParameterizedTest(name = "cap {0}")
+    @ValueSource(longs = {0, 1, LINES - 1, LINES, LINES + 1, ErrorLog.UNLIMITED})
+    void capKeepsTheFirstLinesAndCountsTheRest(long maxLines) throws IOException {
+        List<String> lines = lines();
+        List<String> log = write(maxLines, ErrorLog.NO_SAMPLING, lines, true);
+
+        int kept = (int) Math.min(maxLines, LINES);
+        assertEquals(lines.subList(0, kept), log.subList(0, kept));
+        if (kept < LINES) {
+            assertEquals(List.of(ErrorLog.SKIPPED_LINES + (LINES - kept)), log.subList(kept, log.size()));
+        } else {
+            assertEquals(kept, log.size());
+        }
+    }
+
+    @ParameterizedTest(name = "rate {0}")
+    @ValueSource(ints = {ErrorLog.NO_SAMPLING, 2, 3, 7, LINES, Integer.MAX_VALUE})
+    void samplingKeepsLinesWhoseFingerprintIsDivisibleByTheRate(int sampleRate) throws IOException {
+        List<String> lines = lines();
+        List<String> sampled = lines.stream()
+                .filter(line -> Long.remainderUnsigned(ParsedLine.fingerprint(line), sampleRate) == 0)
+                .toList();
+
+        List<String> log = write(ErrorLog.UNLIMITED, sampleRate, lines, false);
+        List<String> expected = new ArrayList<>(sampled);
+        if (sampled.size() < LINES) {
+            expected.add(ErrorLog.SKIPPED_LINES + (LINES - sampled.size()));
+        }
+        assertEquals(expected, log);
+        assertEquals(log, write(ErrorLog.UNLIMITED, sampleRate, lines, false));
+    }
+
+    /**
+     * The cap applies to the sampled lines, so it is reached later than without sampling.
+     */
+    @Test
+    void capCountsOnlySampledLines() throws IOException {
+        int sampleRate = 3;
+        List<String> lines = lines();
+        List<String> sampled = lines.stream()
+                .filter(line -> Long.remainderUnsigned(ParsedLine.fingerprint(line), sampleRate) == 0)
+                .toList();
+        assertTrue(sampled.size() > 5);
+
+        List<String> log = write(5, sampleRate, lines, false);
+        assertEquals(sampled.subList(0, 5), log.subList(0, 5));
+        assertEquals(List.of(ErrorLog.SKIPPED_LINES + (LINES - 5)), log.subList(5, log.size()));
+    }
+
+    /**
+     * A withdrawn line takes no place under the cap; a kept one takes its place when it is settled.
+     */
+    @Test
+    void settledLinesCountAgainstTheCap() throws IOException {
+        Path file = temp.resolve("error.log");
+        try (ErrorLog log = new ErrorLog(file, 2, ErrorLog.NO_SAMPLING)) {
+            log.addWithdrawable(ParsedLine.fingerprint("withdrawn"), "withdrawn");
+            log.addWithdrawable(ParsedLine.fingerprint("kept"), "kept");
+            log.add("first");
+            log.settleWithdrawable(List.of(ParsedLine.fingerprint("withdrawn")), true);
+            log.settleWithdrawable(List.of(ParsedLine.fingerprint("kept")), false);
+            log.add("third");
+        }
+        assertEquals(List.of("first", "kept", ErrorLog.SKIPPED_LINES + 1), Files.readAllLines(file));
+    }
+
+    @Test
+    void nothingIsWrittenWithoutErrors() throws IOException {
+        Path file = temp.resolve("error.log");
+        ErrorLog log = new ErrorLog(file, ErrorLog.UNLIMITED, ErrorLog.NO_SAMPLING);
+        log.close();
+        assertFalse(log.add("late"));
+        assertFalse(Files.exists(file));
+    }
+
+    private static List<String> lines() {
+        return IntStream.range(0, LINES).mapToObj(i -> "Employee," + i + ",Name " + i + ",x,1").toList();
+    }
+
+    private List<String> write(long maxLines, int sampleRate, List<String> lines, boolean repeated)
+            throws IOException {
+        Path file = Files.createTempFile(temp, "error", ".log");
+        Files.delete(file);
+        try (ErrorLog log = new ErrorLog(file, maxLines, sampleRate)) {
+            lines.forEach(log::add);
+            if (repeated) {
+                lines.forEach(log::add);
+            }
+        }
+        return Files.exists(file) ? Files.readAllLines(file) : List.of();
+    }
+}
@@ -0,0 +1,149 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalRunTest {
+
+    private static final String STATISTICS_FILE = "stat.csv";
+
+    @TempDir
+    Path temp;
+
+    /**
+     * Each file leads its own departments, so a change to one file leaves the others alone.
+     */
+    @Test
+    void onlyTheChangedFileIsMergedAgain() throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        write(input, "a", "Manager,1,Anna,5000,Sales", "Employee,11,Ivan,1000,1", "broken line");
+        write(input, "b", "Manager,2,Boris,6000,Support", "Employee,21,Olga,1100,2");
+        write(input, "c", "Manager,3,Clara,7000,Legal", "Employee,31,Pavel,1200,3", "Employee,32,Rita,x,3");
+        Path output = temp.resolve("output");
+
+        assertEquals(8, run(input, output).getRecords());
+        assertEquals(0, run(input, output).getRecords());
+        Files.writeString(input.resolve("b" + App.INPUT_EXTENSION), "Employee,22,Sergei,1300,2\n",
+                StandardOpenOption.APPEND);
+        assertEquals(3, run(input, output).getRecords());
+        assertEquals(runFully(input), withoutManifest(output));
+    }
+
+    /**
+     * A reused id ties the files together, whichever of them changes.
+     */
+    @Test
+    void filesSharingAnIdAreMergedTogether() throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        write(input, "a", "Manager,1,Anna,5000,Sales", "Employee,50,Ivan,1000,1");
+        write(input, "b", "Manager,2,Boris,6000,Support", "Employee,21,Olga,1100,2");
+        write(input, "c", "Manager,3,Clara,7000,Legal", "Employee,50,Pavel,1200,3");
+        Path output = temp.resolve("output");
+        run(input, output);
+
+        write(input, "c", "Manager,3,Clara,7000,Legal", "Employee,50,Pavel,1250,3");
+        assertEquals(4, run(input, output).getRecords());
+        assertEquals(runFully(input), withoutManifest(output));
+
+        write(input, "a", "Manager,1,Anna,5000,Sales");
+        assertEquals(3, run(input, output).getRecords());
+        assertEquals(runFully(input), withoutManifest(output));
+        assertFalse(Files.exists(output.resolve(App.ERROR_LOG)));
+    }
+
+    /**
+     * Employees in one file and their manager in another, with a department led from two files.
+     */
+    @Test
+    void managersAndDepartmentsTieFilesTogether() throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        write(input, "a", "Manager,1,Anna,5000,Sales", "Manager,4,Dora,5500,Sales");
+        write(input, "b", "Employee,21,Olga,1100,4", "Employee,21,Olga,1100,4");
+        write(input, "c", "Manager,3,Clara,7000,Legal", "Employee,31,Pavel,1200,3");
+        write(input, "d", "Manager,5,Egor,6500,Sales");
+        Path output = temp.resolve("output");
+        run(input, output);
+
+        write(input, "d", "Manager,5,Egor,6600,Sales");
+        assertEquals(5, run(input, output).getRecords());
+        assertEquals(runFully(input), withoutManifest(output));
+
+        write(input, "a", "Manager,4,Dora,5500,Support");
+        assertEquals(4, run(input, output).getRecords());
+        assertEquals(runFully(input), withoutManifest(output));
+    }
+
+    /**
+     * Without the previous error log the files whose error lines it held are merged again.
+     */
+    @Test
+    void lostErrorLogIsRebuilt() throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        write(input, "a", "Manager,1,Anna,5000,Sales", "broken line");
+        write(input, "b", "Manager,2,Boris,6000,Support", "Employee,21,Olga,1100,2");
+        Path output = temp.resolve("output");
+        run(input, output);
+
+        Files.delete(output.resolve(App.ERROR_LOG));
+        write(input, "b", "Manager,2,Boris,6000,Support", "Employee,21,Olga,1150,2");
+        assertEquals(4, run(input, output).getRecords());
+        assertEquals(runFully(input), withoutManifest(output));
+    }
+
+    @Test
+    void manifestHoldsNoLineText() throws IOException {
+        Path input = TestInput.generate(temp.resolve("input"));
+        Path output = temp.resolve("output");
+        run(input, output);
+
+        String manifest = new String(Files.readAllBytes(output.resolve(App.MANIFEST_FILE)), StandardCharsets.UTF_8);
+        assertFalse(manifest.contains("Employee,"));
+        assertTrue(Files.size(output.resolve(App.MANIFEST_FILE)) < Files.size(input.resolve("input1.sb")));
+    }
+
+    private static void write(Path input, String name, String... lines) throws IOException {
+        Files.writeString(input.resolve(name + App.INPUT_EXTENSION), String.join("\n", lines) + "\n");
+    }
+
+    private static PipelineMetrics run(Path input, Path output) throws IOException {
+        Config config = config();
+        config.setIncremental(true);
+        return new App(input, Map.of(), new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION), new Parser())
+                .processFiles(config);
+    }
+
+    private Map<String, String> runFully(Path input) throws IOException {
+        Path output = Files.createTempDirectory(temp, "full");
+        new App(input, Map.of(), new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION), new Parser())
+                .processFiles(config());
+        return TestInput.readFiles(output);
+    }
+
+    private static Map<String, String> withoutManifest(Path output) throws IOException {
+        Map<String, String> files = new TreeMap<>(TestInput.readFiles(output));
+        files.remove(App.MANIFEST_FILE);
+        return files;
+    }
+
+    private static Config config() {
+        Config config = new Config();
+        config.setGenerateStats(true);
+        config.setOutputType(App.FILE_OUTPUT);
+        config.setOutputPath(STATISTICS_FILE);
+        config.setSortType(Department.SORT_SALARY);
+        config.setOrder("asc");
+        return config;
+    }
+}
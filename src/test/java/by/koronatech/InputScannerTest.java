@@ -0,0 +1,61 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InputScannerTest {
+
+    @TempDir
+    Path input;
+
+    /**
+     * Directories matching the pattern and dangling links are not input files; links to files are.
+     */
+    @ParameterizedTest(name = "recursive {0}")
+    @ValueSource(booleans = {false, true})
+    void findsRegularFilesInNameOrder(boolean recursive) throws IOException {
+        Files.writeString(input.resolve("input2.sb"), "Manager,2,Boris,5000,Sales\n");
+        Files.writeString(input.resolve("input1.sb"), "Manager,1,Anna,5000,Sales\n");
+        Files.writeString(input.resolve("notes.txt"), "not an input file\n");
+        Files.createDirectory(input.resolve("folder.sb"));
+        Files.createSymbolicLink(input.resolve("dangling.sb"), input.resolve("missing.sb"));
+        Files.createSymbolicLink(input.resolve("link.sb"), input.resolve("input1.sb"));
+
+        List<InputFile> files = scanner(recursive).scanAll();
+
+        assertEquals(List.of(input.resolve("input1.sb"), input.resolve("input2.sb"), input.resolve("link.sb")),
+                files.stream().map(InputFile::getPath).toList());
+        assertEquals(Files.size(input.resolve("input1.sb")), files.get(2).size());
+    }
+
+    /**
+     * A flat scan reads a file's attributes only when handing it over, so a file removed meanwhile
+     * is skipped rather than failing later.
+     */
+    @Test
+    void flatScanReadsAttributesAsFilesAreHandedOver() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            Files.writeString(input.resolve("input" + i + ".sb"), "Manager," + i + ",Anna,5000,Sales\n");
+        }
+        List<Path> handedOver = new ArrayList<>();
+        scanner(false).scan(file -> {
+            handedOver.add(file.getPath());
+            Files.deleteIfExists(input.resolve("input2.sb"));
+        });
+        assertEquals(List.of(input.resolve("input1.sb"), input.resolve("input3.sb")), handedOver);
+    }
+
+    private InputScanner scanner(boolean recursive) {
+        return new InputScanner(List.of(input), App.INPUT_FILE_PATTERN, recursive, true);
+    }
+}
@@ -0,0 +1,89 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Timeout(60)
+class InputWatcherTest {
+
+    private static final long DEBOUNCE_MILLIS = 500;
+    private static final int BURST_WRITES = 5;
+    private static final long BURST_GAP_MILLIS = 50;
+
+    @TempDir
+    Path input;
+
+    /**
+     * Start times of the batches, in nanoseconds.
+     */
+    private final BlockingQueue<Long> runs = new LinkedBlockingQueue<>();
+    private Thread watcher;
+
+    @AfterEach
+    void stopWatching() throws InterruptedException {
+        watcher.interrupt();
+        watcher.join();
+    }
+
+    /**
+     * Writes closer together than the debounce interval make one batch, which starts only once the
+     * directory has been quiet for the whole interval.
+     */
+    @Test
+    void burstOfChangesRunsOneBatchAfterTheQuietPeriod() throws Exception {
+        startWatching();
+
+        long lastWrite = 0;
+        for (int i = 0; i < BURST_WRITES; i++) {
+            Files.writeString(input.resolve("input" + i + App.INPUT_EXTENSION), "Manager,1,Anna,5000,Sales\n");
+            lastWrite = System.nanoTime();
+            Thread.sleep(BURST_GAP_MILLIS);
+        }
+
+        Long run = runs.poll(10, TimeUnit.SECONDS);
+        assertNotNull(run);
+        assertTrue(run - lastWrite >= TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MILLIS));
+        assertNull(runs.poll(4 * DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void changesToOtherFilesAreIgnored() throws Exception {
+        startWatching();
+
+        Files.writeString(input.resolve("notes.txt"), "not an input file\n");
+        Files.createDirectory(input.resolve("nested" + App.INPUT_EXTENSION + ".d"));
+        assertNull(runs.poll(4 * DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS));
+
+        Files.writeString(input.resolve("input1" + App.INPUT_EXTENSION), "Manager,1,Anna,5000,Sales\n");
+        assertNotNull(runs.poll(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Returns after the first batch, which runs before any change.
+     */
+    private void startWatching() throws InterruptedException {
+        InputWatcher inputWatcher = new InputWatcher(input, App.INPUT_FILE_PATTERN, DEBOUNCE_MILLIS);
+        watcher = new Thread(() -> {
+            try {
+                inputWatcher.watch(() -> runs.add(System.nanoTime()));
+            } catch (IOException | InterruptedException e) {
+                // Stopped by the test.
+            }
+        });
+        watcher.start();
+        assertNotNull(runs.poll(10, TimeUnit.SECONDS));
+    }
+}
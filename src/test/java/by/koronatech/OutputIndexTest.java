@@ -0,0 +1,96 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OutputIndexTest {
+
+    /**
+     * Department files show a manager without the department name.
+     */
+    private static final String MANAGER = "Manager,-7,Anna,5000";
+    private static final String OTHER_MANAGER = "Manager,-3,Boris,900";
+    private static final String MIN_ID = "Employee,-2147483648,Ivan,1000,-7";
+    private static final String NEGATIVE_ID = "Employee,-1,Olga,2500.50,-7";
+    private static final String ZERO_ID = "Employee,0,Pavel,1000,-7";
+    private static final String MAX_ID = "Employee,2147483647,Rita,7000,-7";
+    private static final String HUGE_SALARY = "Employee,15,Sergei,123456789012345678901234.50,-7";
+
+    @TempDir
+    Path temp;
+
+    private Path output;
+    private OutputIndex index;
+
+    @BeforeEach
+    void writeIndex() throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        Files.writeString(input.resolve("input1.sb"), String.join("\n",
+                MANAGER + ",Sales", MIN_ID, NEGATIVE_ID, ZERO_ID, MAX_ID, HUGE_SALARY,
+                OTHER_MANAGER + ",Support") + "\n");
+        output = temp.resolve("output");
+        Config config = new Config();
+        config.setIndex(true);
+        App.postValidate(config);
+        new App(input, Map.of(), new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION), new Parser())
+                .processFiles(config);
+        index = OutputIndex.read(output, App.INPUT_EXTENSION);
+    }
+
+    @Test
+    void negativeAndExtremeIdsAreFound() throws IOException {
+        assertEquals(MANAGER, index.findById(-7));
+        assertEquals(MIN_ID, index.findById(Integer.MIN_VALUE));
+        assertEquals(NEGATIVE_ID, index.findById(-1));
+        assertEquals(ZERO_ID, index.findById(0));
+        assertEquals(MAX_ID, index.findById(Integer.MAX_VALUE));
+        assertEquals(OTHER_MANAGER, index.findById(-3));
+
+        for (int missing : new int[]{Integer.MIN_VALUE + 1, -8, -2, 1, 16, Integer.MAX_VALUE - 1}) {
+            assertNull(index.findById(missing), String.valueOf(missing));
+        }
+    }
+
+    @Test
+    void reportsOfANegativeManagerId() throws IOException {
+        assertEquals(List.of(MIN_ID, NEGATIVE_ID, ZERO_ID, MAX_ID, HUGE_SALARY), index.reportsOf(-7));
+        assertEquals(List.of(), index.reportsOf(-3));
+        assertEquals(List.of(), index.reportsOf(-1));
+    }
+
+    /**
+     * Both bounds are inclusive, and equal salaries keep their file order.
+     */
+    @Test
+    void salaryRangesIncludeTheirBounds() throws IOException {
+        assertEquals(List.of(MIN_ID, ZERO_ID), index.salaryRange("Sales", 100_000, 100_000));
+        assertEquals(List.of(MIN_ID, ZERO_ID, NEGATIVE_ID, MANAGER), index.salaryRange("Sales", 100_000, 500_000));
+        assertEquals(List.of(NEGATIVE_ID), index.salaryRange("Sales", 100_001, 250_050));
+        assertEquals(List.of(), index.salaryRange("Sales", 250_051, 499_999));
+        assertEquals(List.of(MAX_ID, HUGE_SALARY), index.salaryRange("Sales", 500_001, Long.MAX_VALUE));
+        assertEquals(List.of(), index.salaryRange("Sales", 0, 99_999));
+        assertEquals(List.of(), index.salaryRange("Sales", 500_000, 100_000));
+        assertEquals(List.of(OTHER_MANAGER), index.salaryRange("Support", 0, Long.MAX_VALUE));
+        assertEquals(List.of(), index.salaryRange("Legal", 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void changedDepartmentFileFailsTheQuery() throws IOException {
+        Files.writeString(output.resolve("Sales" + App.INPUT_EXTENSION), "Employee,16,Tanya,1.00,-7\n",
+                StandardOpenOption.APPEND);
+        assertThrows(IllegalArgumentException.class, () -> index.findById(-1));
+        assertEquals(OTHER_MANAGER, index.findById(-3));
+    }
+}
@@ -0,0 +1,502 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every processing mode has to leave the output directory exactly as the default mode does;
+ * only its own bookkeeping files ({@code .manifest}, {@code .index}) may be added, and
+ * {@code --stat-only} leaves out the department files. {@code --watch} only reruns these
+ * batches and is not covered here.
+ */
+class OutputModesTest {
+
+    private static final String STATISTICS_FILE = "stat.csv";
+
+    @TempDir
+    Path temp;
+
+    static Stream<Arguments> baseOptions() {
+        return Stream.of(
+                Arguments.of("unsorted", (Consumer<Config>) config -> {
+                }),
+                Arguments.of("name asc", (Consumer<Config>) config -> sort(config, "name", "asc")),
+                Arguments.of("salary desc", (Consumer<Config>) config -> sort(config, "salary", "desc")));
+    }
+
+    static Stream<Arguments> sortOrders() {
+        return Stream.of(
+                Arguments.of(Department.SORT_NAME, "asc"),
+                Arguments.of(Department.SORT_NAME, "desc"),
+                Arguments.of(Department.SORT_SALARY, "asc"),
+                Arguments.of(Department.SORT_SALARY, "desc"));
+    }
+
+    static Stream<Arguments> statisticsOptions() {
+        return Stream.of(
+                Arguments.of("basic", (Consumer<Config>) config -> {
+                }),
+                Arguments.of("histogram, exact up to 50", (Consumer<Config>) config -> {
+                    config.setStatMode(DistributionOptions.MODE_HISTOGRAM);
+                    config.setExactStatLimit(50);
+                }),
+                Arguments.of("roll-ups", (Consumer<Config>) config -> {
+                    config.setRollupCompany(true);
+                    config.setGroupPattern("Dept(\\d)");
+                }));
+    }
+
+    @Test
+    void defaultModeMatchesReferenceOutput() throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        Files.writeString(input.resolve("input1.sb"), """
+                Employee,101,John Doe,3000,1
+                Employee,102,Alice Smith,4500.50,2
+                Manager,1,Jane Smith,5000,HR
+                Manager,2,Mark White,6000,Sales
+                Employee,103,Bad Salary,notanumber,1
+                """);
+        Files.writeString(input.resolve("input2.sb"), """
+                Manager,3,Jane Smith,5500,IT
+                Employee,104,Bob Brown,0,3
+                Employee,105,Claire Green,2900.75,3
+                Employee,106,Orphaned Person,3200,99
+                Employee,107,Spacey User , 3900 , 2
+                """);
+
+        Map<String, String> output = run(input, config -> sort(config, "salary", "desc"));
+
+        assertEquals(Map.of(
+                "HR.sb", lines("Manager,1,Jane Smith,5000", "Employee,101,John Doe,3000,1"),
+                "IT.sb", lines("Manager,3,Jane Smith,5500", "Employee,105,Claire Green,2900.75,3"),
+                "Sales.sb", lines("Manager,2,Mark White,6000", "Employee,102,Alice Smith,4500.50,2",
+                        "Employee,107,Spacey User,3900,2"),
+                "error.log", lines("Employee,103,Bad Salary,notanumber,1", "Employee,104,Bob Brown,0,3"),
+                STATISTICS_FILE, "department,min,max,mid\nHR,3000.00,3000.00,3000.00\n"
+                        + "IT,2900.75,2900.75,2900.75\nSales,3900.00,4500.50,4200.25\n"), output);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void parallelMatchesDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        assertEquals(run(input, base), run(input, base.andThen(config -> config.setParallel(true))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void fixedPointMatchesDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        assertEquals(run(input, base), run(input, base.andThen(config -> config.setFixedPoint(true))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("statisticsOptions")
+    void statOnlyMatchesDefaultStatistics(String name, Consumer<Config> statistics) throws IOException {
+        Path input = generateInput();
+        Map<String, String> expected = new TreeMap<>(run(input, statistics));
+        expected.keySet().removeIf(file -> file.endsWith(App.INPUT_EXTENSION));
+        Consumer<Config> statOnly = statistics.andThen(config -> config.setStreamingStats(true));
+
+        assertEquals(expected, run(input, statOnly));
+        assertEquals(expected, run(input, statOnly.andThen(config -> {
+            config.setParallel(true);
+            config.setMemoryMapped(true);
+        })));
+    }
+
+    /**
+     * A name costs one lookup and a manager's department one more, on either reader.
+     */
+    @ParameterizedTest(name = "mmap {0}")
+    @ValueSource(booleans = {false, true})
+    void dictionaryCountsLookupsAndHits(boolean memoryMapped) throws IOException {
+        Path input = Files.createDirectories(temp.resolve("input"));
+        Files.writeString(input.resolve("input1.sb"), """
+                Manager,1,Jane,5000,HR
+                Employee,101,John,3000,1
+                Employee,102,John,3100,1
+                Employee,103,Jane,3200,1
+                Manager,2,Mark,6000,HR
+                Employee,104,Mark,100,2
+                """);
+
+        PipelineMetrics metrics = process(input, temp.resolve("output"),
+                config -> config.setMemoryMapped(memoryMapped));
+        assertEquals(8, metrics.getDictionaryLookups());
+        assertEquals(4, metrics.getDictionaryHits());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void memoryMappedMatchesDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        // Malformed UTF-8 in the middle of a file several chunks long: the lines before it are
+        // kept and the rest of the file becomes a read error.
+        StringBuilder valid = new StringBuilder("Manager,990999,Начальник,5000,Broken\n");
+        for (int i = 0; i < 200; i++) {
+            valid.append("Employee,").append(990_000 + i).append(",Сотрудник ").append(i).append(",1000,990999\n");
+        }
+        byte[] before = valid.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] malformed = "Employee,991000,Bad \u00FF Name,1000,990999\n".getBytes(StandardCharsets.ISO_8859_1);
+        try (OutputStream out = Files.newOutputStream(input.resolve("input4.sb"))) {
+            out.write(before);
+            out.write(malformed);
+            out.write(before);
+        }
+        Map<String, String> expected = run(input, base);
+        assertTrue(expected.get(App.ERROR_LOG).contains(Parser.FILE_READ_ERROR));
+        assertEquals(201, expected.get("Broken.sb").lines().count());
+        assertEquals(expected, run(input, base.andThen(config -> config.setMemoryMapped(true))));
+        assertEquals(expected, run(input, base.andThen(config -> {
+            config.setParallel(true);
+            config.setMemoryMapped(true);
+            config.setChunkSize(4096L);
+        })));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void compressedMatchesDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        Map<String, String> expected = run(input, base);
+        Path compressedInput = Files.createDirectories(temp.resolve("compressed-input"));
+        try (Stream<Path> files = Files.list(input)) {
+            for (Path file : files.toList()) {
+                try (OutputStream out = Compression.newOutputStream(
+                        compressedInput.resolve(file.getFileName() + Compression.GZIP_SUFFIX))) {
+                    Files.copy(file, out);
+                }
+            }
+        }
+
+        Consumer<Config> compressed = base.andThen(config -> config.setCompression(Compression.GZIP));
+        assertEquals(expected, runDecompressed(compressedInput, compressed));
+        assertEquals(expected, runDecompressed(compressedInput,
+                compressed.andThen(config -> config.setParallel(true))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void employeeStoresMatchDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        // Names that order differently by UTF-8 bytes and by UTF-16, and a salary beyond a long.
+        Files.writeString(input.resolve("input1.sb"), """
+                Manager,999990,Boss,5000,Unicode
+                Employee,999991,Name \uD83D\uDE00,1000,999990
+                Employee,999992,Name \uFF21,1000.50,999990
+                Employee,999993,Name \uFF21,123456789012345678901234.5,999990
+                """, StandardOpenOption.APPEND);
+        Map<String, String> expected = run(input, base);
+
+        for (String store : new String[]{App.STORE_COLUMNAR, App.STORE_OFF_HEAP}) {
+            assertEquals(expected, run(input, base.andThen(config -> config.setEmployeeStore(store))));
+            assertEquals(expected, run(input, base.andThen(config -> {
+                config.setEmployeeStore(store);
+                config.setParallel(true);
+            })));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"asc", "desc"})
+    void topKeepsLeadingLinesOfSalarySort(String order) throws IOException {
+        Path input = generateInput();
+        int top = 5;
+        Map<String, String> sorted = run(input, config -> sort(config, Department.SORT_SALARY, order));
+
+        for (String store : new String[]{null, App.STORE_COLUMNAR}) {
+            Map<String, String> selected = run(input, config -> {
+                sort(config, Department.SORT_SALARY, order);
+                config.setTop(top);
+                config.setEmployeeStore(store);
+            });
+            assertEquals(sorted.keySet(), selected.keySet());
+            for (Map.Entry<String, String> file : sorted.entrySet()) {
+                String expected = file.getValue();
+                if (file.getKey().endsWith(App.INPUT_EXTENSION)) {
+                    // The manager line and then the first employees.
+                    expected = expected.lines().limit(top + 1)
+                            .map(line -> line + System.lineSeparator())
+                            .collect(Collectors.joining());
+                }
+                assertEquals(expected, selected.get(file.getKey()), file.getKey());
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0} {1}")
+    @MethodSource("sortOrders")
+    void spilledRunsMatchDefault(String sortType, String order) throws IOException {
+        Path input = generateInput();
+        Consumer<Config> sorted = config -> sort(config, sortType, order);
+        Map<String, String> expected = run(input, sorted);
+
+        // Many runs per department, merged back with ties in input order.
+        Consumer<Config> spilled = sorted.andThen(config -> config.setSpillThreshold(8));
+        assertEquals(expected, run(input, spilled));
+        assertEquals(expected, run(input, spilled.andThen(config -> config.setParallel(true))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void incrementalMatchesDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        Path output = temp.resolve("incremental");
+        Consumer<Config> incremental = base.andThen(config -> config.setIncremental(true));
+
+        assertEquals(run(input, base), withoutBookkeeping(run(input, output, incremental)));
+        assertEquals(run(input, base), withoutBookkeeping(run(input, output, incremental)));
+
+        Files.writeString(input.resolve("input1.sb"), "Employee,999999,Late Arrival,1234.56,1\n",
+                StandardOpenOption.APPEND);
+        Files.delete(input.resolve("input2.sb"));
+        assertEquals(run(input, base), withoutBookkeeping(run(input, output, incremental)));
+
+        // Lines parsed under other options are not reused.
+        Consumer<Config> otherOptions = incremental.andThen(config -> {
+            config.setFixedPoint(true);
+            config.setMemoryMapped(true);
+        });
+        assertEquals(run(input, base), withoutBookkeeping(run(input, output, otherOptions)));
+        assertEquals(Parser.LINE_OPTION_MEMORY_MAPPED | Parser.LINE_OPTION_FIXED_POINT,
+                RunManifest.read(output.resolve(App.MANIFEST_FILE)).getParserOptions());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void streamedErrorsMatchDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        Map<String, String> expected = run(input, base);
+        Set<String> expectedErrors = Set.copyOf(expected.get(App.ERROR_LOG).lines().toList());
+        Consumer<Config> streamed = base.andThen(config -> config.setStreamErrors(true));
+
+        // Written in the order the lines are found rather than in hash order.
+        Map<String, String> unlimited = run(input, streamed);
+        assertEquals(expectedErrors, Set.copyOf(unlimited.get(App.ERROR_LOG).lines().toList()));
+        assertEquals(withoutErrorLog(expected), withoutErrorLog(unlimited));
+
+        // Capped and sampled logs keep a subset of the same lines; ErrorLogTest covers which ones.
+        Map<String, String> capped = run(input, streamed.andThen(config -> {
+            config.setMaxErrors(10L);
+            config.setErrorSample(3);
+        }));
+        List<String> cappedLog = capped.get(App.ERROR_LOG).lines().toList();
+        assertTrue(cappedLog.get(cappedLog.size() - 1).startsWith(ErrorLog.SKIPPED_LINES));
+        assertTrue(expectedErrors.containsAll(cappedLog.subList(0, cappedLog.size() - 1)));
+        assertEquals(withoutErrorLog(expected), withoutErrorLog(capped));
+    }
+
+    /**
+     * Sorting and selecting on the mapped columns, with salaries in cents, as decimals and in the
+     * side table.
+     */
+    @ParameterizedTest(name = "{0} {1}")
+    @MethodSource("sortOrders")
+    void snapshotSortsWithoutReparsing(String sortType, String order) throws IOException {
+        Path input = generateInput();
+        Files.writeString(input.resolve("input1.sb"), "Employee,999999,Large,123456789012345678901234.5,1\n",
+                StandardOpenOption.APPEND);
+        Path snapshot = temp.resolve("snapshot");
+        run(input, config -> config.setSnapshotOut(snapshot.toString()));
+
+        ErrorSet errors = ErrorSet.inInsertionOrder();
+        for (Department department : Snapshot.read(snapshot, errors).getDepartments().values()) {
+            assertInstanceOf(SnapshotEmployees.class, department.getEmployees());
+        }
+        Path empty = Files.createDirectories(temp.resolve("empty"));
+        Integer[] tops = Department.SORT_SALARY.equals(sortType) ? new Integer[]{null, 5} : new Integer[]{null};
+        for (Integer top : tops) {
+            Consumer<Config> options = config -> {
+                sort(config, sortType, order);
+                config.setTop(top);
+            };
+            assertEquals(run(input, options),
+                    run(empty, options.andThen(config -> config.setSnapshotIn(snapshot.toString()))));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void snapshotRoundTripMatchesDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        // Too large for a long, so it goes into the side table.
+        Files.writeString(input.resolve("input1.sb"), "Employee,999999,Large,123456789012345678901234.5,1\n",
+                StandardOpenOption.APPEND);
+        Map<String, String> expected = run(input, base);
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            Path snapshot = temp.resolve("snapshot-" + fixedPoint);
+            Consumer<Config> parsed = base.andThen(config -> config.setFixedPoint(fixedPoint));
+            assertEquals(expected, run(input, parsed.andThen(config -> config.setSnapshotOut(snapshot.toString()))));
+            assertEquals(expected, run(Files.createDirectories(temp.resolve("empty")),
+                    parsed.andThen(config -> config.setSnapshotIn(snapshot.toString()))));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void atomicOutputMatchesDefault(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        Path output = temp.resolve("atomic");
+        Consumer<Config> atomic = base.andThen(config -> config.setAtomicOutput(true));
+
+        Map<String, String> expected = run(input, base);
+        assertEquals(expected, run(input, output, atomic));
+        assertEquals(expected, run(input, output, atomic));
+        assertTrue(Files.isSymbolicLink(output));
+        assertFalse(Files.exists(temp.resolve(".atomic" + Writer.RETIRED_SUFFIX)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void indexMatchesDefaultAndAnswersQueries(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        Path output = temp.resolve("indexed");
+        Map<String, String> indexed = run(input, output, base.andThen(config -> config.setIndex(true)));
+
+        assertTrue(indexed.containsKey(OutputIndex.FILE_NAME));
+        assertEquals(run(input, base), withoutBookkeeping(indexed));
+
+        OutputIndex index = OutputIndex.read(output, App.INPUT_EXTENSION);
+        for (Map.Entry<String, String> file : indexed.entrySet()) {
+            if (!file.getKey().endsWith(App.INPUT_EXTENSION)) {
+                continue;
+            }
+            String department = file.getKey().substring(0, file.getKey().length() - App.INPUT_EXTENSION.length());
+            List<String> lines = file.getValue().lines().toList();
+            for (String line : lines) {
+                assertEquals(line, index.findById(Integer.parseInt(line.split(",")[1])));
+            }
+            assertEquals(lines.subList(1, lines.size()), index.reportsOf(Integer.parseInt(lines.get(0).split(",")[1])));
+
+            long min = 200_000;
+            long max = 700_000;
+            List<String> inRange = new ArrayList<>();
+            for (String line : lines) {
+                long cents = new BigDecimal(line.split(",")[3]).movePointRight(2).longValueExact();
+                if (cents >= min && cents <= max) {
+                    inRange.add(line);
+                }
+            }
+            List<String> found = index.salaryRange(department, min, max);
+            assertEquals(inRange.size(), found.size());
+            assertTrue(inRange.containsAll(found));
+        }
+        assertNull(index.findById(-1));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("baseOptions")
+    void recursiveScanSkipsOutputAndRepeatedRoots(String name, Consumer<Config> base) throws IOException {
+        Path input = generateInput();
+        Files.move(input.resolve("input3.sb"), Files.createDirectories(input.resolve("nested")).resolve("input3.sb"));
+        Consumer<Config> recursive = base.andThen(config -> config.setRecursive(true));
+        Map<String, String> expected = run(input, recursive);
+
+        assertEquals(expected, run(input, recursive.andThen(config -> config.setInputRoots(
+                List.of(input.toString(), input.resolve("nested").toString(), input.resolve(".").toString())))));
+
+        // The output directory lies under the input root, so the second run would see the first one's files.
+        Path output = input.resolve("output");
+        assertEquals(expected, run(input, output, recursive.andThen(config -> config.setAtomicOutput(true))));
+        assertEquals(expected, run(input, output, recursive));
+        assertEquals(expected, run(input, output, recursive));
+    }
+
+    private Map<String, String> run(Path input, Consumer<Config> options) throws IOException {
+        return run(input, Files.createTempDirectory(temp, "output"), options);
+    }
+
+    private Map<String, String> run(Path input, Path output, Consumer<Config> options) throws IOException {
+        process(input, output, options);
+        return TestInput.readFiles(output);
+    }
+
+    private static PipelineMetrics process(Path input, Path output, Consumer<Config> options) throws IOException {
+        Config config = new Config();
+        config.setGenerateStats(true);
+        config.setOutputType(App.FILE_OUTPUT);
+        config.setOutputPath(STATISTICS_FILE);
+        options.accept(config);
+        App.postValidate(config);
+
+        return new App(input, Map.of(), new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION), new Parser())
+                .processFiles(config);
+    }
+
+    /**
+     * The output files by their name without {@link Compression#GZIP_SUFFIX}, decompressed.
+     */
+    private Map<String, String> runDecompressed(Path input, Consumer<Config> options) throws IOException {
+        Path output = Files.createTempDirectory(temp, "output");
+        run(input, output, options);
+        assertTrue(Files.exists(output.resolve(App.ERROR_LOG + Compression.GZIP_SUFFIX)));
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(output)) {
+            for (Path file : paths.toList()) {
+                String name = file.getFileName().toString();
+                try (InputStream in = Compression.newInputStream(file)) {
+                    files.put(Compression.isCompressed(file)
+                                    ? name.substring(0, name.length() - Compression.GZIP_SUFFIX.length())
+                                    : name,
+                            new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return files;
+    }
+
+    private Path generateInput() throws IOException {
+        return TestInput.generate(temp.resolve("input"));
+    }
+
+    private static Map<String, String> withoutBookkeeping(Map<String, String> files) {
+        Map<String, String> result = new TreeMap<>(files);
+        result.remove(App.MANIFEST_FILE);
+        result.remove(OutputIndex.FILE_NAME);
+        return result;
+    }
+
+    private static Map<String, String> withoutErrorLog(Map<String, String> files) {
+        Map<String, String> result = new TreeMap<>(files);
+        result.remove(App.ERROR_LOG);
+        return result;
+    }
+
+    private static void sort(Config config, String sortType, String order) {
+        config.setSortType(sortType);
+        config.setOrder(order);
+    }
+
+    private static String lines(String... lines) {
+        return String.join(System.lineSeparator(), lines) + System.lineSeparator();
+    }
+}
@@ -0,0 +1,92 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ParserTest {
+
+    /**
+     * Trailing empty fields, blanks around fields, empty and blank fields and Unicode digits.
+     */
+    private static final List<String> LINES = List.of(
+            "Manager,1,Anna,5000,Sales",
+            "Employee,2,Anna,1000,1,,",
+            "Employee,3,Anna,1000,1,,x",
+            " Employee , 4 , Олег , 1000.5 , 1 ",
+            "Employee,5,Ivan,1000,",
+            "Employee,6,Ivan,1000, ,",
+            ",,,,",
+            "Employee,,Ivan,1000,1",
+            "Employee,+7,Ivan,1000,-1",
+            "Employee,٨,Ivan,1000,1",
+            "Manager,9,Boris,0,Sales",
+            "Manager,10,Boris,12a,Sales ",
+            "Clerk,11,Rita,1000,1",
+            "Employee,12,,1000,1",
+            "Manager,13,Clara,1000,");
+
+    @TempDir
+    Path temp;
+
+    @ParameterizedTest(name = "fixed point {0}")
+    @ValueSource(booleans = {false, true})
+    void fieldsMatchTheMappedReader(boolean fixedPoint) throws IOException {
+        Path file = Files.writeString(temp.resolve("input.sb"), String.join("\n", LINES) + "\n");
+
+        List<ParsedLine> streamed = parser(false, fixedPoint).readFile(file);
+        List<ParsedLine> mapped = parser(true, fixedPoint).readFile(file);
+
+        assertEquals(mapped.size(), streamed.size());
+        for (int i = 0; i < mapped.size(); i++) {
+            ParsedLine expected = mapped.get(i);
+            ParsedLine actual = streamed.get(i);
+            String line = expected.getLine();
+            assertEquals(line, actual.getLine());
+            assertEquals(expected.getKind(), actual.getKind(), line);
+            assertEquals(expected.getErrorCategory(), actual.getErrorCategory(), line);
+            assertEquals(expected.getId(), actual.getId(), line);
+            assertEquals(expected.getName(), actual.getName(), line);
+            assertEquals(expected.getSalary(), actual.getSalary(), line);
+            assertEquals(expected.getSalaryCents(), actual.getSalaryCents(), line);
+            assertEquals(expected.getDepartment(), actual.getDepartment(), line);
+            assertEquals(expected.getManagerId(), actual.getManagerId(), line);
+        }
+    }
+
+    @Test
+    void repeatedNamesAndDepartmentsAreOneInstance() throws IOException {
+        Path file = Files.writeString(temp.resolve("input.sb"), """
+                Manager,1,Anna,5000,Sales
+                Employee,2,Anna,1000,1
+                Manager,3, Anna ,5000,Sales
+                Employee,4,Олег,1000,1
+                Employee,5,Олег,1000,1
+                """);
+        Parser parser = parser(false, false);
+        List<ParsedLine> lines = parser.readFile(file);
+
+        assertSame(lines.get(0).getName(), lines.get(1).getName());
+        assertSame(lines.get(0).getName(), lines.get(2).getName());
+        assertSame(lines.get(0).getDepartment(), lines.get(2).getDepartment());
+        assertSame(lines.get(3).getName(), lines.get(4).getName());
+        assertEquals(7, parser.getDictionaryLookups());
+        assertEquals(4, parser.getDictionaryHits());
+    }
+
+    private static Parser parser(boolean memoryMapped, boolean fixedPoint) {
+        Parser parser = new Parser();
+        parser.setMemoryMapped(memoryMapped);
+        parser.setFixedPoint(fixedPoint);
+        return parser;
+    }
+}
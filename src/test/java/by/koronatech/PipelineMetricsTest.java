@@ -0,0 +1,66 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipelineMetricsTest {
+
+    private static final long BUSY_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+
+    /**
+     * Work handed to another thread counts; work of a concurrent batch does not.
+     */
+    @Test
+    void stageCountsItsWorkersButNotOtherThreads() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.stage(PipelineMetrics.STAGE_PARSE, () -> {
+            Supplier<Long> worker = PipelineMetricsTest::spin;
+            CompletableFuture<Long> counted = CompletableFuture.supplyAsync(PipelineMetrics.onWorker(worker));
+            Thread other = new Thread(PipelineMetricsTest::spin);
+            other.start();
+            counted.join();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        metrics.finish(new ParseState(), 0);
+
+        long stageCpuNanos = metrics.getStages().get(0).getCpuNanos();
+        if (stageCpuNanos == PipelineMetrics.NO_CPU_TIME) {
+            return;
+        }
+        assertTrue(stageCpuNanos >= BUSY_NANOS, String.valueOf(stageCpuNanos));
+        assertTrue(stageCpuNanos < 2 * BUSY_NANOS, String.valueOf(stageCpuNanos));
+        assertTrue(metrics.getCpuNanos() >= stageCpuNanos);
+    }
+
+    @Test
+    void tasksOutsideAStageRunUnwrapped() {
+        Supplier<Long> task = () -> 1L;
+        assertEquals(task, PipelineMetrics.onWorker(task));
+    }
+
+    /**
+     * Busy for about {@link #BUSY_NANOS} of this thread's CPU time.
+     */
+    private static long spin() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long end = threads.getCurrentThreadCpuTime() + BUSY_NANOS;
+        long sum = 0;
+        while (threads.getCurrentThreadCpuTime() < end) {
+            sum++;
+        }
+        return sum;
+    }
+}
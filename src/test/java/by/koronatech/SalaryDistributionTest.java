@@ -0,0 +1,131 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SalaryDistributionTest {
+
+    private static final BigDecimal HUGE = new BigDecimal("1E400");
+    private static final BigDecimal TINY = new BigDecimal("1E-400");
+    private static final DistributionOptions SKETCH_ONLY =
+            new DistributionOptions(DistributionOptions.NO_EXACT_LIMIT, null);
+    private static final int[] ALL_PERCENTS = {1, 5, 10, 25, 50, 75, 90, 95, 99, 100};
+    private static final int SALARIES = 100_000;
+
+    /**
+     * Every estimate lies within {@link SalaryDistribution#RELATIVE_ACCURACY} of the exact
+     * nearest-rank value, over salaries spanning several orders of magnitude.
+     */
+    @Test
+    void sketchPercentilesStayWithinRelativeAccuracy() {
+        long[] cents = salaries(new Random(7));
+        SalaryDistribution sketch = new SalaryDistribution(SKETCH_ONLY);
+        for (long salary : cents) {
+            sketch.add(salary);
+        }
+        long[] sorted = cents.clone();
+        Arrays.sort(sorted);
+
+        BigDecimal[] estimates = sketch.percentiles(ALL_PERCENTS);
+        for (int i = 0; i < ALL_PERCENTS.length; i++) {
+            long rank = Math.max(1, ((long) ALL_PERCENTS[i] * SALARIES + 99) / 100);
+            double exact = sorted[(int) rank - 1] / 100.0;
+            assertEquals(exact, estimates[i].doubleValue(), exact * SalaryDistribution.RELATIVE_ACCURACY,
+                    ALL_PERCENTS[i] + "th percentile");
+        }
+    }
+
+    @Test
+    void mergedPartsEstimateLikeOneDistribution() {
+        long[] cents = salaries(new Random(11));
+        SalaryDistribution whole = new SalaryDistribution(SKETCH_ONLY);
+        SalaryDistribution[] parts = new SalaryDistribution[7];
+        Arrays.setAll(parts, i -> new SalaryDistribution(SKETCH_ONLY));
+        Random split = new Random(13);
+        for (long salary : cents) {
+            whole.add(salary);
+            parts[split.nextInt(parts.length)].add(salary);
+        }
+        for (int i = 1; i < parts.length; i++) {
+            parts[0].merge(parts[i]);
+        }
+
+        assertArrayEquals(whole.percentiles(ALL_PERCENTS), parts[0].percentiles(ALL_PERCENTS));
+    }
+
+    /**
+     * Up to the limit the percentiles are exact; one salary more and the sketch answers.
+     */
+    @Test
+    void exactValuesUpToTheLimit() {
+        int limit = 1000;
+        DistributionOptions options = new DistributionOptions(limit, null);
+        SalaryDistribution distribution = new SalaryDistribution(options);
+        for (int i = limit; i >= 1; i--) {
+            distribution.add(i * 100L + 1);
+        }
+
+        BigDecimal[] exact = distribution.percentiles(DistributionOptions.PERCENTILES);
+        for (int i = 0; i < exact.length; i++) {
+            int rank = DistributionOptions.PERCENTILES[i] * limit / 100;
+            assertEquals(Salaries.toBigDecimal(rank * 100L + 1), exact[i]);
+        }
+        distribution.add(100_000L + 1);
+        BigDecimal median = distribution.percentiles(new int[]{50})[0];
+        assertTrue(median.compareTo(Salaries.toBigDecimal(501 * 100L + 1)) != 0);
+        assertEquals(501.01, median.doubleValue(), 501.01 * SalaryDistribution.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    void salariesBeyondDoubleRangeDoNotDisturbOrdinaryOnes() {
+        SalaryAccumulator salaries = SalaryAccumulator.of(SKETCH_ONLY);
+        salaries.add(150_000);
+        salaries.add(HUGE);
+        salaries.add(150_000);
+        salaries.add(TINY);
+        salaries.add(150_000);
+
+        BigDecimal[] percentiles = salaries.toStats("Dept").getPercentiles();
+
+        assertEquals(1500, percentiles[0].doubleValue(), 1500 * SalaryDistribution.RELATIVE_ACCURACY);
+        assertTrue(percentiles[1].compareTo(BigDecimal.valueOf(Double.MAX_VALUE / 2)) > 0);
+        assertTrue(percentiles[2].compareTo(HUGE) <= 0);
+    }
+
+    @Test
+    void extremesSurviveMerging() {
+        SalaryDistribution low = new SalaryDistribution(SKETCH_ONLY);
+        low.add(TINY);
+        low.add(TINY);
+        low.add(TINY);
+        low.add(BigDecimal.ZERO);
+        SalaryDistribution high = new SalaryDistribution(SKETCH_ONLY);
+        high.add(HUGE);
+        high.add(50);
+        low.merge(high);
+
+        BigDecimal[] percentiles = low.percentiles(DistributionOptions.PERCENTILES);
+
+        assertTrue(percentiles[0].compareTo(BigDecimal.valueOf(Double.MIN_NORMAL)) < 0);
+        assertTrue(percentiles[1].compareTo(BigDecimal.valueOf(Double.MAX_VALUE / 2)) > 0);
+        assertTrue(percentiles[2].compareTo(BigDecimal.valueOf(Double.MAX_VALUE / 2)) > 0);
+    }
+
+    /**
+     * Log-normal around 3000.00 in cents, with a few zeros.
+     */
+    private static long[] salaries(Random random) {
+        long[] cents = new long[SALARIES];
+        for (int i = 0; i < cents.length; i++) {
+            cents[i] = i % 1000 == 0 ? 0 : Math.round(300_000 * Math.exp(random.nextGaussian() * 1.5));
+        }
+        return cents;
+    }
+}
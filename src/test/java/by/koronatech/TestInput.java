@@ -0,0 +1,85 @@
+package by.koronatech;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+public final class TestInput {
+
+    public static final int FILES = 3;
+    public static final int LINES_PER_FILE = 3000;
+
+    private TestInput() {
+    }
+
+    /**
+     * Managers of some departments more than once, employees of unknown managers, exact repeats
+     * of employee lines, reused ids, malformed lines and salaries with and without cents, over
+     * several files.
+     */
+    public static Path generate(Path directory) throws IOException {
+        Path input = Files.createDirectories(directory);
+        Random random = new Random(42);
+        int nextEmployeeId = 1000;
+        List<String> employees = new ArrayList<>();
+        for (int file = 1; file <= FILES; file++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < LINES_PER_FILE; i++) {
+                int kind = random.nextInt(100);
+                if (kind < 2) {
+                    int managerId = 1 + random.nextInt(40);
+                    text.append("Manager,").append(managerId).append(",Менеджер ").append(managerId).append(',')
+                            .append(salary(random)).append(",Dept").append(managerId % 25);
+                } else if (kind < 4) {
+                    text.append("Employee,").append(random.nextInt(1, 5)).append(",Dup,100,1");
+                } else if (kind < 5) {
+                    text.append("Employee,1001,Bad Salary,notanumber,3");
+                } else if (kind < 6) {
+                    text.append("Intern,").append(nextEmployeeId++).append(",Who,100,3");
+                } else if (kind < 7) {
+                    text.append("Employee,broken line");
+                } else if (kind < 9 && !employees.isEmpty()) {
+                    text.append(employees.get(random.nextInt(employees.size())));
+                } else {
+                    String line = "Employee," + nextEmployeeId++ + ",Name " + random.nextInt(500) + ","
+                            + salary(random) + "," + (1 + random.nextInt(45));
+                    employees.add(line);
+                    text.append(line);
+                }
+                text.append('\n');
+            }
+            Files.writeString(input.resolve("input" + file + App.INPUT_EXTENSION), text);
+        }
+        return input;
+    }
+
+    /**
+     * The files directly in {@code directory} by name, with their content as UTF-8; a
+     * subdirectory is only marked as such.
+     */
+    public static Map<String, String> readFiles(Path directory) throws IOException {
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path file : paths.toList()) {
+                files.put(file.getFileName().toString(), Files.isRegularFile(file)
+                        ? new String(Files.readAllBytes(file), StandardCharsets.UTF_8)
+                        : "<directory>");
+            }
+        }
+        return files;
+    }
+
+    private static String salary(Random random) {
+        return random.nextBoolean()
+                ? String.valueOf(1 + random.nextInt(9000))
+                : BigDecimal.valueOf(100 + random.nextInt(900_000), 2).toPlainString();
+    }
+}
@@ -0,0 +1,138 @@
+package by.koronatech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriterTest {
+
+    private static final String MARKER = "marker.txt";
+    private static final int PUBLISHES = 50;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    @Timeout(60)
+    void readersNeverSeeTheOutputMissing() throws Exception {
+        Path output = temp.resolve("output");
+        Writer writer = stagedWriter(output);
+        publish(writer, "0");
+
+        AtomicBoolean publishing = new AtomicBoolean(true);
+        AtomicInteger missing = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (publishing.get()) {
+                try {
+                    Files.readString(output.resolve(MARKER));
+                } catch (IOException e) {
+                    missing.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= PUBLISHES; i++) {
+            publish(writer, String.valueOf(i));
+        }
+        publishing.set(false);
+        reader.join();
+
+        assertEquals(0, missing.get());
+        assertEquals(String.valueOf(PUBLISHES), Files.readString(output.resolve(MARKER)));
+        assertTrue(Files.isSymbolicLink(output));
+        assertEquals(1, Writer.GENERATION_SUFFIXES.stream()
+                .filter(suffix -> Files.exists(temp.resolve(".output" + suffix)))
+                .count());
+    }
+
+    @Test
+    void plainOutputDirectoryIsReplacedByTheLink() throws IOException {
+        Path output = Files.createDirectories(temp.resolve("output"));
+        Files.writeString(output.resolve(MARKER), "plain");
+
+        publish(stagedWriter(output), "staged");
+        assertTrue(Files.isSymbolicLink(output));
+        assertEquals("staged", Files.readString(output.resolve(MARKER)));
+        assertFalse(Files.exists(temp.resolve(".output" + Writer.RETIRED_SUFFIX)));
+    }
+
+    /**
+     * A run that stopped after moving a plain output directory aside, followed by an unstaged run.
+     */
+    @Test
+    void unstagedRunRecoversAnInterruptedPublish() throws IOException {
+        Path input = TestInput.generate(temp.resolve("input"));
+        Path output = temp.resolve("output");
+        Path retired = Files.createDirectories(temp.resolve(".output" + Writer.RETIRED_SUFFIX));
+        Files.writeString(retired.resolve(MARKER), "published");
+        Path unfinished = Files.createDirectories(temp.resolve(".output" + Writer.GENERATION_SUFFIXES.get(0)));
+
+        Writer writer = new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION);
+        writer.recoverOutput();
+        assertEquals("published", Files.readString(output.resolve(MARKER)));
+        assertFalse(Files.exists(retired));
+        assertFalse(Files.exists(unfinished));
+
+        Files.move(output, retired);
+        Config config = new Config();
+        new App(input, Map.of(), writer, new Parser()).processFiles(config);
+        assertFalse(Files.exists(retired));
+        assertTrue(Files.exists(output.resolve(App.ERROR_LOG)));
+    }
+
+    @Test
+    void departmentFilesAreWrittenOnTheWritersOwnThreads() throws Exception {
+        ParseState state = new ParseState();
+        new Parser().parseFile(TestInput.generate(temp.resolve("input")).resolve("input1.sb"), state);
+        state.resolvePendingEmployees();
+        Path output = temp.resolve("pooled");
+        Writer writer = new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION);
+        writer.setMaxOpenFiles(2);
+        writer.prepareOutputDirectory();
+
+        writer.writeDepartmentFiles(state.getDepartments(), new ErrorSet());
+        Set<Thread> threads = writerThreads(output);
+        assertFalse(threads.isEmpty());
+        assertTrue(threads.size() <= 2);
+        writer.writeDepartmentFiles(state.getDepartments(), new ErrorSet());
+        assertEquals(threads, writerThreads(output));
+
+        writer.close();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(thread.isAlive());
+        }
+    }
+
+    private static Set<Thread> writerThreads(Path output) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals(Writer.THREAD_NAME_PREFIX + output.getFileName()))
+                .collect(Collectors.toSet());
+    }
+
+    private static Writer stagedWriter(Path output) {
+        Writer writer = new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION);
+        writer.setAtomicOutput(true);
+        return writer;
+    }
+
+    private static void publish(Writer writer, String marker) throws IOException {
+        writer.prepareOutputDirectory();
+        Files.writeString(writer.getOutputDir().resolve(MARKER), marker);
+        writer.publish();
+    }
+}
@@ -0,0 +1,133 @@
+package by.koronatech.api;
+
+import by.koronatech.App;
+import by.koronatech.Config;
+import by.koronatech.Department;
+import by.koronatech.PipelineMetrics;
+import by.koronatech.ResourceLimits;
+import by.koronatech.TestInput;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchExecutorTest {
+
+    private static final String STATISTICS_FILE = "stat.csv";
+    private static final int JOBS = 4;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void jobsWritingTheSameDirectoryAreRejected() throws IOException {
+        Path input = TestInput.generate(temp.resolve("input"));
+        Path output = temp.resolve("output");
+        List<BatchJob> jobs = List.of(
+                new BatchJob(input, output, config(Department.SORT_NAME)),
+                new BatchJob(input, output.resolve("."), config(Department.SORT_SALARY)));
+
+        try (BatchExecutor executor = new BatchExecutor(ResourceLimits.UNLIMITED)) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> executor.runAll(jobs));
+            assertTrue(e.getMessage().startsWith(BatchExecutor.CONFLICTING_JOBS));
+        }
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    void budgetsBelowOnePermitAreRejected() {
+        for (long bytes : new long[]{-1, 1, ResourceLimits.BYTES_PER_MEMORY_PERMIT - 1}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> new ResourceLimits(ResourceLimits.NO_LIMIT, bytes));
+            assertTrue(e.getMessage().startsWith(ResourceLimits.INVALID_MEMORY_BUDGET));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ResourceLimits(-1, ResourceLimits.NO_LIMIT));
+        assertThrows(IllegalArgumentException.class, () -> new BatchExecutor(ResourceLimits.UNLIMITED, 0));
+        new ResourceLimits(ResourceLimits.NO_LIMIT, ResourceLimits.BYTES_PER_MEMORY_PERMIT);
+    }
+
+    /**
+     * One file open at a time and a memory budget smaller than any single job, so the jobs take
+     * turns, down to each file they open.
+     */
+    @Test
+    @Timeout(60)
+    void jobsWithinTightLimitsMatchSingleJobs() throws IOException {
+        Path input = TestInput.generate(temp.resolve("input"));
+        List<BatchJob> jobs = jobs(input, "limited");
+
+        ResourceLimits limits = new ResourceLimits(1, ResourceLimits.BYTES_PER_MEMORY_PERMIT);
+        List<CompletableFuture<PipelineMetrics>> results;
+        try (BatchExecutor executor = new BatchExecutor(limits)) {
+            results = executor.runAll(jobs);
+        }
+        for (int i = 0; i < JOBS; i++) {
+            assertFalse(results.get(i).isCompletedExceptionally());
+            assertEquals(runAlone(jobs.get(i)), TestInput.readFiles(jobs.get(i).getOutputDirectory()));
+        }
+    }
+
+    @Test
+    void failedJobLeavesOthersIntact() throws IOException {
+        Path input = TestInput.generate(temp.resolve("input"));
+        List<BatchJob> jobs = new ArrayList<>(jobs(input, "mixed"));
+        Config missingSnapshot = config(null);
+        missingSnapshot.setSnapshotIn(temp.resolve("missing.snapshot").toString());
+        jobs.add(1, new BatchJob(input, temp.resolve("failed"), missingSnapshot));
+
+        List<CompletableFuture<PipelineMetrics>> results;
+        try (BatchExecutor executor = new BatchExecutor(ResourceLimits.UNLIMITED)) {
+            results = executor.runAll(jobs);
+        }
+        assertTrue(results.get(1).isCompletedExceptionally());
+        for (int i = 0; i < jobs.size(); i++) {
+            if (i != 1) {
+                assertFalse(results.get(i).isCompletedExceptionally());
+                assertEquals(runAlone(jobs.get(i)), TestInput.readFiles(jobs.get(i).getOutputDirectory()));
+            }
+        }
+    }
+
+    private List<BatchJob> jobs(Path input, String prefix) {
+        List<BatchJob> jobs = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            Config config = config(i % 2 == 0 ? Department.SORT_NAME : Department.SORT_SALARY);
+            config.setParallel(i >= JOBS / 2);
+            jobs.add(new BatchJob(input, temp.resolve(prefix + "-" + i), config));
+        }
+        return jobs;
+    }
+
+    private Map<String, String> runAlone(BatchJob job) throws IOException {
+        Path output = Files.createTempDirectory(temp, "alone");
+        try (BatchExecutor executor = new BatchExecutor(ResourceLimits.UNLIMITED)) {
+            executor.runAll(List.of(new BatchJob(job.getInputDirectory(), output, job.getConfig())))
+                    .get(0).join();
+        }
+        return TestInput.readFiles(output);
+    }
+
+    private static Config config(String sortType) {
+        Config config = new Config();
+        config.setGenerateStats(true);
+        config.setOutputType(App.FILE_OUTPUT);
+        config.setOutputPath(STATISTICS_FILE);
+        if (sortType != null) {
+            config.setSortType(sortType);
+            config.setOrder("asc");
+        }
+        return config;
+    }
+}
@@ -0,0 +1,130 @@
+package by.koronatech.api;
+
+import by.koronatech.App;
+import by.koronatech.Compression;
+import by.koronatech.Config;
+import by.koronatech.Department;
+import by.koronatech.Parser;
+import by.koronatech.TestInput;
+import by.koronatech.Writer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The library writes through the same output stage as the command line, so a
+ * {@link DirectorySink} and a {@link StatisticsCsvSink} built from the same options end up with
+ * exactly the files the command line writes.
+ */
+class BatchProcessorTest {
+
+    private static final String STATISTICS_FILE = "stat.csv";
+
+    @TempDir
+    Path temp;
+
+    static Stream<Arguments> options() {
+        return Stream.of(
+                Arguments.of("unsorted", (Consumer<Config>) config -> {
+                }),
+                Arguments.of("name asc, parallel", (Consumer<Config>) config -> {
+                    sort(config, Department.SORT_NAME, "asc");
+                    config.setParallel(true);
+                }),
+                Arguments.of("salary desc, spilled", (Consumer<Config>) config -> {
+                    sort(config, Department.SORT_SALARY, "desc");
+                    config.setSpillThreshold(20);
+                }),
+                Arguments.of("top, compressed", (Consumer<Config>) config -> {
+                    sort(config, Department.SORT_SALARY, "asc");
+                    config.setTop(3);
+                    config.setCompression(Compression.GZIP);
+                }),
+                Arguments.of("indexed", (Consumer<Config>) config -> {
+                    sort(config, Department.SORT_SALARY, "asc");
+                    config.setIndex(true);
+                }),
+                Arguments.of("streamed errors", (Consumer<Config>) config -> {
+                    config.setStreamErrors(true);
+                    config.setMaxErrors(50L);
+                }),
+                Arguments.of("stat-only with roll-up", (Consumer<Config>) config -> {
+                    config.setStreamingStats(true);
+                    config.setRollupCompany(true);
+                }));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("options")
+    void directoryAndStatisticsSinksMatchCommandLine(String name, Consumer<Config> options) throws IOException {
+        Path input = TestInput.generate(temp.resolve("input"));
+        assertEquals(runCommandLine(input, options), runLibrary(input, options));
+    }
+
+    @Test
+    void streamedErrorsNeedASinkThatWritesFiles() throws IOException {
+        Path input = TestInput.generate(temp.resolve("input"));
+        Config config = new Config();
+        config.setStreamErrors(true);
+        BatchProcessor processor = new BatchProcessor(config);
+
+        assertThrows(IllegalArgumentException.class, () -> processor.process(sources(input),
+                new StatisticsCsvSink(new StringBuilder(), config)));
+    }
+
+    private Map<String, String> runCommandLine(Path input, Consumer<Config> options) throws IOException {
+        Path output = temp.resolve("command-line");
+        Config config = new Config();
+        config.setGenerateStats(true);
+        config.setOutputType(App.FILE_OUTPUT);
+        config.setOutputPath(STATISTICS_FILE);
+        options.accept(config);
+        App.postValidate(config);
+
+        new App(input, Map.of(), new Writer(output, App.ERROR_LOG, App.INPUT_EXTENSION), new Parser())
+                .processFiles(config);
+        return TestInput.readFiles(output);
+    }
+
+    private Map<String, String> runLibrary(Path input, Consumer<Config> options) throws IOException {
+        Path output = temp.resolve("library");
+        Config config = new Config();
+        config.setGenerateStats(true);
+        options.accept(config);
+
+        StringBuilder statistics = new StringBuilder();
+        new BatchProcessor(config).process(sources(input),
+                OutputSink.of(new DirectorySink(output, config), new StatisticsCsvSink(statistics, config)));
+
+        Map<String, String> files = TestInput.readFiles(output);
+        files.put(STATISTICS_FILE, statistics.toString());
+        return files;
+    }
+
+    /**
+     * In the order the command line scans them, as the file system lists them.
+     */
+    private static List<InputSource> sources(Path input) throws IOException {
+        try (Stream<Path> files = Files.list(input)) {
+            return files.map(InputSource::of).toList();
+        }
+    }
+
+    private static void sort(Config config, String sortType, String order) {
+        config.setSortType(sortType);
+        config.setOrder(order);
+    }
+}